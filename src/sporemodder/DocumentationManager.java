@@ -36,6 +36,7 @@ import javafx.scene.control.Hyperlink;
 import javafx.scene.control.Label;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
+import sporemodder.util.LazyInitializer;
 
 public class DocumentationManager extends AbstractManager {
 	
@@ -56,6 +57,14 @@ public class DocumentationManager extends AbstractManager {
 	
 	private final Map<String, Properties> loadedFiles = new HashMap<>();
 	private final Map<String, List<DocumentationLinkCategory>> docLinks = new HashMap<>();
+	private final LazyInitializer docLinksLoader = new LazyInitializer("Documentation links", () -> {
+		try {
+			loadDocLinks(NetworkUtils.getJSON(NetworkUtils.getUrl("https://raw.githubusercontent.com/emd4600/SporeModder-FX/master/smfx_docs.json")));
+		} 
+		catch (Exception e) {
+			e.printStackTrace();
+		}
+	});
 
 	/**
 	 * Returns the class that controls the documentation of the program.
@@ -66,12 +75,8 @@ public class DocumentationManager extends AbstractManager {
 	}
 	
 	@Override public void initialize(Properties settings) {
-		try {
-			loadDocLinks(NetworkUtils.getJSON(NetworkUtils.getUrl("https://raw.githubusercontent.com/emd4600/SporeModder-FX/master/smfx_docs.json")));
-		} 
-		catch (Exception e) {
-			e.printStackTrace();
-		}
+		// Downloading the links can take a while, so don't block the program startup for it
+		docLinksLoader.startInBackground();
 	}
 	
 	/**
@@ -122,6 +127,7 @@ public class DocumentationManager extends AbstractManager {
 	}
 	
 	public List<DocumentationLinkCategory> getDocumentationLinks(String docsEntry) {
+		docLinksLoader.ensureInitialized();
 		return docLinks.get(docsEntry);
 	}
 	
@@ -34,6 +34,7 @@ import javafx.scene.image.ImageView;
 import sporemodder.MessageManager.MessageType;
 import sporemodder.util.Project;
 import sporemodder.util.ProjectItem;
+import sporemodder.util.ResourceCache;
 import sporemodder.view.EditorPaneUI;
 import sporemodder.view.EditorPaneUI.EditorTab;
 import sporemodder.view.StatusBar.Status;
@@ -100,6 +101,9 @@ public class EditorManager extends AbstractManager implements UIUpdateListener {
 	}
 	
 	
+	/** The maximum amount of megabytes used by the resources shared by the editors, see {@link ResourceCache}. */
+	private static final String PROPERTY_resourceCacheMaxMB = "resourceCacheMaxMB";
+	
 	/** All the supported editor factories. */
 	private final List<EditorFactory> editorFactories = new ArrayList<EditorFactory>();
 	/** The default editor factory that is used for non-specialized file types. */
@@ -181,6 +185,23 @@ public class EditorManager extends AbstractManager implements UIUpdateListener {
 		folderIcon = UIManager.get().loadImage("item-icon-folder.png");
 		
 		UIManager.get().addListener(this);
+		
+		String resourceCacheMaxMB = properties.getProperty(PROPERTY_resourceCacheMaxMB);
+		if (resourceCacheMaxMB != null) {
+			try {
+				ResourceCache.get().setMaxBytes(Long.parseLong(resourceCacheMaxMB) * 1024 * 1024);
+			} catch (NumberFormatException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	@Override
+	public void saveSettings(Properties properties) {
+		long maxBytes = ResourceCache.get().getMaxBytes();
+		if (maxBytes != ResourceCache.DEFAULT_MAX_BYTES) {
+			properties.put(PROPERTY_resourceCacheMaxMB, Long.toString(maxBytes / (1024 * 1024)));
+		}
 	}
 	
 	
@@ -232,6 +253,17 @@ public class EditorManager extends AbstractManager implements UIUpdateListener {
 		return true;
 	}
 	
+	/** Returns whether any editor has opened a file that is inside the given folder. */
+	public boolean isEditingFolder(File folder) {
+		if (paneUI == null) return false;
+		String folderPath = folder.getAbsolutePath() + File.separator;
+		for (Tab tab : paneUI.getTabPane().getTabs()) {
+			ProjectItem item = ((EditorTab) tab).item;
+			if (item != null && item.getFile() != null && item.getFile().getAbsolutePath().startsWith(folderPath)) return true;
+		}
+		return false;
+	}
+	
 	/**
 	 * Loads the given item into the main editor tab, making it visible if it was closed. 
 	 * This will choose the appropriate editor and edit this file with it.
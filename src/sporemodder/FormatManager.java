@@ -20,11 +20,13 @@ package sporemodder;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Properties;
 
 import sporemodder.file.Converter;
+import sporemodder.file.ConverterTable;
 import sporemodder.file.ResourceKey;
 import sporemodder.file.anim.AnimConverter;
 import sporemodder.file.arth.ArithmeticaConverter;
@@ -183,6 +185,18 @@ public class FormatManager extends AbstractManager {
 	public List<Converter> getConverters() {
 		return converters;
 	}
+	
+	/**
+	 * Creates a dispatch table with all the converters supported by the program, which can be used to find decoders and encoders
+	 * without checking every converter. The table uses the same priority as {@link #getEncoder(File)}: converters added later
+	 * are checked first. Tables depend on the registered type names, so a new one should be created for every operation.
+	 * @return
+	 */
+	public ConverterTable createConverterTable() {
+		List<Converter> list = new ArrayList<>(converters);
+		Collections.reverse(list);
+		return new ConverterTable(list);
+	}
 
 	/**
 	 * Returns the current instance of the FormatManager class.
@@ -23,9 +23,13 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.function.BiConsumer;
 
 import sporemodder.file.cnv.CnvUnit;
+import sporemodder.util.FloatFormatter;
+import sporemodder.util.LazyInitializer;
 import sporemodder.util.NameRegistry;
 
 /**
@@ -43,10 +47,8 @@ public class HashManager extends AbstractManager {
 
 	/** The symbols used to print floating point values. This decides the decimal separator: we must always use '.' to avoid language problems. */
 	private DecimalFormatSymbols decimalSymbols;
-	/** The format that decides the number of decimals used to print floating point values. */
-	private String decimalFormat;
-	/** The default decimal format object used to print float values. */
-	private DecimalFormat defaultDecimalFormat;
+	/** The decimal formats created for custom patterns in each thread. */
+	private final ThreadLocal<Map<String, DecimalFormat>> decimalFormats = ThreadLocal.withInitial(HashMap::new);
 	
 	/** The original registry used to look for instance and group IDs; it is read from reg_file.txt */
 	private final NameRegistry originalFileRegistry = new NameRegistry(this, "File Names", "reg_file.txt");
@@ -65,9 +67,12 @@ public class HashManager extends AbstractManager {
 	/** The registry used to look for property IDs; it is read from reg_property.txt */
 	private NameRegistry propRegistry = originalPropRegistry;
 	
-	/** A temporary registry that keeps names used by a certain Project. This is only updated when doing certain actions, like packing the mod. */
+	/** A temporary registry that keeps names used by a certain Project. This is only updated when doing certain actions, like packing the mod.
+	 * Files might be packed in parallel, so it is always used while synchronized on it. */
 	private final NameRegistry projectRegistry = new NameRegistry(this, "Names used by the project", "names.txt");
 	private boolean updateProjectRegistry;
+	/** If not null, it receives every name added to the project registry; it is called while synchronized on the registry. */
+	private BiConsumer<String, Integer> projectRegistryListener;
 	
 	/** A temporary registry that keeps track of all types/properties names used; can be used to import old projects without losing information. */
 	private NameRegistry extraRegistry;
@@ -78,26 +83,16 @@ public class HashManager extends AbstractManager {
 	public void initialize(Properties properties) {
 		decimalSymbols = new DecimalFormatSymbols(Locale.getDefault());
 		decimalSymbols.setDecimalSeparator('.');
-		decimalFormat = "#.#######";
-		defaultDecimalFormat = new DecimalFormat(decimalFormat, decimalSymbols);
-		defaultDecimalFormat.setNegativePrefix("-");
 		
-		UIManager.get().tryAction(() -> {
-			fileRegistry.read(PathManager.get().getProgramFile(fileRegistry.getFileName()));
-		}, "The file name registry (reg_file.txt) is corrupt or missing.");
-		
-		UIManager.get().tryAction(() -> {
-			typeRegistry.read(PathManager.get().getProgramFile(typeRegistry.getFileName()));
-		}, "The types registry (reg_type.txt) is corrupt or missing.");
-		
-		UIManager.get().tryAction(() -> {
-			propRegistry.read(PathManager.get().getProgramFile(propRegistry.getFileName()));
-		}, "The property registry (reg_property.txt) is corrupt or missing.");
-		
-		UIManager.get().tryAction(() -> {
-			simulatorRegistry.read(PathManager.get().getProgramFile(simulatorRegistry.getFileName()));
-			simulatorRegistry.read(PathManager.get().getProgramFile("reg_simulator_stub.txt"));
-		}, "The simulator attributes registry (reg_simulator.txt) is corrupt or missing.");
+		// Registries are big, so they are read in parallel in the background; they will wait for it if they are used before
+		readRegistryInBackground(fileRegistry, "The file name registry (reg_file.txt) is corrupt or missing.", 
+				fileRegistry.getFileName());
+		readRegistryInBackground(typeRegistry, "The types registry (reg_type.txt) is corrupt or missing.", 
+				typeRegistry.getFileName());
+		readRegistryInBackground(propRegistry, "The property registry (reg_property.txt) is corrupt or missing.", 
+				propRegistry.getFileName());
+		readRegistryInBackground(simulatorRegistry, "The simulator attributes registry (reg_simulator.txt) is corrupt or missing.", 
+				simulatorRegistry.getFileName(), "reg_simulator_stub.txt");
 		
 		CnvUnit.loadNameRegistry();
 		
@@ -108,6 +103,23 @@ public class HashManager extends AbstractManager {
 		registries.put(projectRegistry.getFileName(), projectRegistry);
 	}
 	
+	/**
+	 * Makes the given registry read the given program files in a background thread. If the registry is used before it
+	 * finishes, the caller waits for it.
+	 * @param registry
+	 * @param errorText The text shown if the files cannot be read; as they are read in the background, it is shown the next time the registry is used.
+	 * @param fileNames The names of the files, which are in the program folder.
+	 */
+	public void readRegistryInBackground(NameRegistry registry, String errorText, String ... fileNames) {
+		LazyInitializer initializer = new LazyInitializer("Registry " + registry.getFileName(), () -> {
+			for (String fileName : fileNames) {
+				registry.read(PathManager.get().getProgramFile(fileName));
+			}
+		}, errorText);
+		registry.setInitializer(initializer);
+		initializer.startInBackground();
+	}
+	
 	public void replaceRegistries(NameRegistry file, NameRegistry prop, NameRegistry type) {
 		fileRegistry = file == null ? originalFileRegistry : file;
 		propRegistry = prop == null ? originalPropRegistry : prop;
@@ -154,6 +166,29 @@ public class HashManager extends AbstractManager {
 	public void setUpdateProjectRegistry(boolean value) {
 		this.updateProjectRegistry = value;
 	}
+	
+	/**
+	 * Sets a listener that receives every name (and its hash) that is added to the project registry, or null to remove it.
+	 * This is used to know which names a single file adds when packing. The listener is called while synchronized on the registry.
+	 * @param listener
+	 */
+	public void setProjectRegistryListener(BiConsumer<String, Integer> listener) {
+		synchronized (projectRegistry) {
+			this.projectRegistryListener = listener;
+		}
+	}
+	
+	/**
+	 * Adds a name to the project registry, like {@link #getFileHash(String)} does when the project registry is being updated.
+	 * @param name
+	 * @param hash
+	 */
+	public void addProjectName(String name, int hash) {
+		synchronized (projectRegistry) {
+			projectRegistry.add(name, hash);
+			if (projectRegistryListener != null) projectRegistryListener.accept(name, hash);
+		}
+	}
 
 	public NameRegistry getExtraRegistry() {
 		return extraRegistry;
@@ -165,11 +200,22 @@ public class HashManager extends AbstractManager {
 
 	/**
 	 * Returns the string that represents this float, using the default pattern: 7 decimals of precision.
+	 * This method is thread-safe, see {@link FloatFormatter}.
 	 * @param value The value that will be turned into a string.
 	 */
 	public String floatToString(float value) {
-		if (Float.isNaN(value)) return "NaN";
-		return defaultDecimalFormat.format(value);
+		return FloatFormatter.toString(value);
+	}
+	
+	/**
+	 * Appends the string that represents this float, using the default pattern (7 decimals of precision), into the given builder.
+	 * This avoids creating an intermediate string; it is thread-safe, see {@link FloatFormatter}.
+	 * @param sb The builder where the text is appended.
+	 * @param value The value that will be turned into a string.
+	 * @return The same builder.
+	 */
+	public StringBuilder appendFloat(StringBuilder sb, float value) {
+		return FloatFormatter.append(sb, value);
 	}
 	
 	/**
@@ -178,15 +224,16 @@ public class HashManager extends AbstractManager {
 	 * @param format The pattern that will be parsed by DecimalFormat.
 	 */
 	public String floatToString(float value, String format) {
-		return new DecimalFormat(format, decimalSymbols).format(value);
+		return getDecimalFormat(format).format(value);
 	}
 	
 	/**
 	 * Returns the string that represents this float, using the default pattern: 7 decimals of precision.
+	 * This method is thread-safe, see {@link FloatFormatter}.
 	 * @param value The value that will be turned into a string.
 	 */
 	public String doubleToString(double value) {
-		return defaultDecimalFormat.format(value);
+		return FloatFormatter.toString(value);
 	}
 	
 	/**
@@ -195,7 +242,12 @@ public class HashManager extends AbstractManager {
 	 * @param format The pattern that will be parsed by DecimalFormat.
 	 */
 	public String doubleToString(double value, String format) {
-		return new DecimalFormat(format, decimalSymbols).format(value);
+		return getDecimalFormat(format).format(value);
+	}
+	
+	/** DecimalFormat is not thread-safe, so every thread keeps its own formats, mapped to their pattern. */
+	private DecimalFormat getDecimalFormat(String format) {
+		return decimalFormats.get().computeIfAbsent(format, pattern -> new DecimalFormat(pattern, decimalSymbols));
 	}
 	
 	/**
@@ -655,7 +707,9 @@ public class HashManager extends AbstractManager {
 		if (str != null) {
 			return str;
 		} else {
-			return projectRegistry.getName(hash);
+			synchronized (projectRegistry) {
+				return projectRegistry.getName(hash);
+			}
 		}
 	}
 	
@@ -666,7 +720,9 @@ public class HashManager extends AbstractManager {
 	public String getTypeName(int hash) {
 		String str = typeRegistry.getName(hash);
 		if (str == null && extraRegistry != null) {
-			str = extraRegistry.getName(hash);
+			synchronized (extraRegistry) {
+				str = extraRegistry.getName(hash);
+			}
 		}
 		if (str != null) {
 			return str;
@@ -682,7 +738,9 @@ public class HashManager extends AbstractManager {
 	public String getPropName(int hash) {
 		String str = propRegistry.getName(hash);
 		if (str == null && extraRegistry != null) {
-			str = extraRegistry.getName(hash);
+			synchronized (extraRegistry) {
+				str = extraRegistry.getName(hash);
+			}
 		}
 		if (str != null) {
 			return str;
@@ -713,7 +771,7 @@ public class HashManager extends AbstractManager {
 			if (!name.endsWith("~")) {
 				int hash = fnvHash(name);
 				if (updateProjectRegistry) {
-					projectRegistry.add(name, hash);
+					addProjectName(name, hash);
 				}
 				return hash;
 			} 
@@ -721,13 +779,15 @@ public class HashManager extends AbstractManager {
 				String lc = name.toLowerCase();
 				Integer i = fileRegistry.getHash(lc);
 				if (i == null) {
-					i = projectRegistry.getHash(lc);
+					synchronized (projectRegistry) {
+						i = projectRegistry.getHash(lc);
+					}
 				}
 				if (i == null) {
 					throw new IllegalArgumentException("Unable to find " + name + " hash.  It does not exist in the reg_file registry.");
 				}
 				if (updateProjectRegistry) {
-					projectRegistry.add(name, i);
+					addProjectName(name, i);
 				}
 				return i;
 			}
@@ -753,7 +813,9 @@ public class HashManager extends AbstractManager {
 		else {
 			Integer i = typeRegistry.getHash(name);
 			if (i == null && extraRegistry != null) {
-				extraRegistry.add(name, fnvHash(name));
+				synchronized (extraRegistry) {
+					extraRegistry.add(name, fnvHash(name));
+				}
 			}
 			return i == null ? fnvHash(name) : i;
 		}
@@ -778,7 +840,9 @@ public class HashManager extends AbstractManager {
 		else {
 			Integer i = propRegistry.getHash(name);
 			if (i == null && extraRegistry != null) {
-				extraRegistry.add(name, fnvHash(name));
+				synchronized (extraRegistry) {
+					extraRegistry.add(name, fnvHash(name));
+				}
 			}
 			return i == null ? fnvHash(name) : i;
 		}
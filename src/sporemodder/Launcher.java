@@ -1,14 +1,52 @@
 package sporemodder;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -16,8 +54,12 @@ import picocli.CommandLine.ITypeConverter;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import sporemodder.file.Converter;
+import sporemodder.file.ConverterBenchmark;
+import sporemodder.file.ConverterTable;
 import sporemodder.file.ResourceKey;
+import sporemodder.file.dbpf.DBPFMerger;
 import sporemodder.file.dbpf.DBPFPackingTask;
+import sporemodder.file.dbpf.DBPFProfiler;
 import sporemodder.file.dbpf.DBPFUnpackingTask;
 import sporemodder.file.filestructures.FileStream;
 import sporemodder.file.filestructures.MemoryStream;
@@ -26,6 +68,7 @@ import sporemodder.file.filestructures.StreamWriter;
 import sporemodder.file.simulator.SimulatorClass;
 import sporemodder.file.spui.SporeUserInterface;
 import sporemodder.util.NameRegistry;
+import sporemodder.util.ProjectPreset;
 
 public class Launcher {
 	
@@ -62,9 +105,13 @@ public class Launcher {
 					DecodeCommand.class,
 					EncodeCommand.class,
 					UnpackCommand.class,
+					UnpackPresetsCommand.class,
 					PackCommand.class,
+					MergeCommand.class,
+					BenchmarkCommand.class,
 					FindSpuiForControlIdCommand.class,
-					ScanSimulatorCommand.class
+					ScanSimulatorCommand.class,
+					ServeCommand.class
 			})
 	public static class SMFXCommand implements Callable<Integer> {
 
@@ -204,27 +251,270 @@ public class Launcher {
 		}
 	}
 	
-	@Command(name = "decode", description = "Decodes Spore files into usable formats.", mixinStandardHelpOptions = true)
+	/** A file given to a batch command, and the folder its output path is relative to. */
+	private static class BatchInput {
+		final File file;
+		final File baseFolder;
+		/** Whether the file was named explicitly, instead of being found in a folder or by a pattern. */
+		final boolean isExplicit;
+		
+		BatchInput(File file, File baseFolder, boolean isExplicit) {
+			this.file = file;
+			this.baseFolder = baseFolder;
+			this.isExplicit = isExplicit;
+		}
+		
+		String getRelativePath() {
+			return baseFolder.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+		}
+	}
+	
+	/** The result of converting one file in a batch command. */
+	private static class BatchResult {
+		String error;
+		long bytes;
+	}
+	
+	private static boolean isGlob(String path) {
+		return path.indexOf('*') != -1 || path.indexOf('?') != -1 || path.indexOf('[') != -1;
+	}
+	
+	/**
+	 * Converts a glob pattern into a regular expression that matches relative paths separated by '/'.
+	 * '**' matches any number of folders, '*' and '?' match characters within a single name, and '[...]' matches a character class.
+	 */
+	private static Pattern globToPattern(String glob) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < glob.length(); ++i) {
+			char c = glob.charAt(i);
+			if (c == '*') {
+				if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+					++i;
+					if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+						++i;
+						sb.append("(?:.*/)?");
+					} else {
+						sb.append(".*");
+					}
+				} else {
+					sb.append("[^/]*");
+				}
+			}
+			else if (c == '?') {
+				sb.append("[^/]");
+			}
+			else if (c == '[') {
+				int end = glob.indexOf(']', i + 1);
+				if (end == -1) {
+					sb.append("\\[");
+				} else {
+					String set = glob.substring(i + 1, end);
+					if (set.startsWith("!")) set = "^" + set.substring(1);
+					sb.append('[').append(set.replace("\\", "\\\\")).append(']');
+					i = end;
+				}
+			}
+			else {
+				sb.append(Pattern.quote(Character.toString(c)));
+			}
+		}
+		return Pattern.compile(sb.toString());
+	}
+	
+	/**
+	 * Finds the files given to a batch command. Every input can be a file, a folder (all the files inside it and its subfolders are used)
+	 * or a glob pattern such as <code>folder/**&#47;*.prop</code>. If <code>isUnit</code> is not null, folders for which it returns true
+	 * are used as a single input instead of searching inside them; this is used by encoders that take a whole folder.
+	 * The result is sorted by path and does not contain duplicates, so it doesn't depend on the order the files are found.
+	 */
+	private static List<BatchInput> expandInputs(List<String> inputs, Predicate<File> isUnit) throws IOException {
+		Map<File, BatchInput> result = new TreeMap<>();
+		for (String input : inputs) {
+			File baseFolder;
+			Pattern pattern;
+			
+			if (isGlob(input)) {
+				String path = input.replace(File.separatorChar, '/');
+				int wildcard = path.length();
+				for (char c : new char[] {'*', '?', '['}) {
+					if (path.indexOf(c) != -1) wildcard = Math.min(wildcard, path.indexOf(c));
+				}
+				int separator = path.lastIndexOf('/', wildcard);
+				baseFolder = new File(separator == -1 ? "." : (separator == 0 ? "/" : path.substring(0, separator))).getAbsoluteFile();
+				pattern = globToPattern(path.substring(separator + 1));
+				if (!baseFolder.isDirectory()) {
+					throw new IOException("Folder '" + baseFolder + "' does not exist.");
+				}
+			}
+			else {
+				File file = new File(input).getAbsoluteFile();
+				if (!file.exists()) {
+					throw new IOException("File '" + input + "' does not exist.");
+				}
+				if (!file.isDirectory() || (isUnit != null && isUnit.test(file))) {
+					result.put(file, new BatchInput(file, file.getParentFile(), true));
+					continue;
+				}
+				baseFolder = file;
+				pattern = null;
+			}
+			
+			final Path basePath = baseFolder.toPath();
+			final File base = baseFolder;
+			Files.walkFileTree(basePath, new SimpleFileVisitor<Path>() {
+				private boolean matches(Path path) {
+					return pattern == null || pattern.matcher(basePath.relativize(path).toString().replace(File.separatorChar, '/')).matches();
+				}
+				
+				@Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					if (isUnit != null && !dir.equals(basePath) && matches(dir) && isUnit.test(dir.toFile())) {
+						result.putIfAbsent(dir.toFile(), new BatchInput(dir.toFile(), base, false));
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile() && matches(file)) {
+						result.putIfAbsent(file.toFile(), new BatchInput(file.toFile(), base, false));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		return new ArrayList<>(result.values());
+	}
+	
+	/**
+	 * Executes a batch conversion over all the inputs, using the given amount of threads. The results are printed
+	 * in the same order as the inputs, regardless of which file finishes first; a failed file does not stop the others.
+	 * Inputs that don't have a task (a null element) are counted as skipped.
+	 * @return The exit code: 0 if all files succeeded, -1 otherwise.
+	 */
+	private static int executeBatch(String verb, List<BatchInput> inputs, List<Callable<BatchResult>> tasks, int threads) throws InterruptedException {
+		long startTime = System.nanoTime();
+		int succeeded = 0;
+		int failed = 0;
+		int skipped = 0;
+		long totalBytes = 0;
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+		try {
+			List<Future<BatchResult>> futures = new ArrayList<>();
+			for (Callable<BatchResult> task : tasks) {
+				futures.add(task == null ? null : executor.submit(task));
+			}
+			
+			for (int i = 0; i < futures.size(); ++i) {
+				String path = inputs.get(i).getRelativePath();
+				if (futures.get(i) == null) {
+					++skipped;
+					continue;
+				}
+				BatchResult result;
+				try {
+					result = futures.get(i).get();
+				} catch (ExecutionException e) {
+					result = new BatchResult();
+					Throwable cause = e.getCause();
+					result.error = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+				}
+				
+				if (result.error == null) {
+					++succeeded;
+					totalBytes += result.bytes;
+					System.out.println(verb + " " + path);
+				} else {
+					++failed;
+					System.err.println("Failed " + path + ": " + result.error);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		double seconds = Math.max(1e-9, (System.nanoTime() - startTime) / 1e9);
+		System.out.println(String.format(Locale.ROOT, "%d succeeded, %d failed, %d skipped in %.2f s (%.1f files/s, %.2f MB/s)",
+				succeeded, failed, skipped, seconds, succeeded / seconds, totalBytes / seconds / (1024.0 * 1024.0)));
+		
+		return failed == 0 ? 0 : -1;
+	}
+	
+	@Command(name = "decode", description = "Decodes Spore files into usable formats. Accepts multiple files, folders and glob patterns, which are decoded in parallel.", mixinStandardHelpOptions = true)
 	public static class DecodeCommand implements Callable<Integer> {
 		
-		@Parameters(index = "0", description = "The input file to decode.")
-		private File input;
+		@Parameters(arity = "1..*", description = "The input files to decode. Folders are searched recursively, and glob patterns such as 'folder/**/*.prop' are accepted.")
+		private List<String> inputs;
 		
-		@Option(names = {"--output-name"}, description = "Name of the output file, if not specified the same file name is used")
+		@Option(names = {"--output-name"}, description = "Name of the output file, if not specified the same file name is used. Only valid when decoding a single file.")
 		private String outputName;
 
-		@Override
-		public Integer call() throws Exception {
+		@Option(names = {"--threads"}, description = "How many files are decoded at the same time. Default is the number of processors.")
+		private int threads = Runtime.getRuntime().availableProcessors();
+		
+		private static ResourceKey parseKey(File input) {
 			String name;
-			input = input.getAbsoluteFile();
 			if (input.getParentFile().getName() != null) {
 				name = input.getParentFile().getName() + "!" + input.getName();
 			} else {
 				name = input.getName();
 			}
-			HashManager.get().setUpdateProjectRegistry(true);
 			ResourceKey key = new ResourceKey();
 			key.parse(name);
+			return key;
+		}
+		
+		@Override
+		public Integer call() throws Exception {
+			if (inputs.size() == 1 && !isGlob(inputs.get(0)) && new File(inputs.get(0)).isFile()) {
+				return decodeFile(new File(inputs.get(0)).getAbsoluteFile());
+			}
+			if (outputName != null) {
+				System.err.println("--output-name can only be used when decoding a single file.");
+				return -1;
+			}
+			
+			List<BatchInput> files = expandInputs(inputs, null);
+			
+			// Parse all names first: the name registries are not thread-safe, so new names can only be added here
+			ConverterTable converters = new ConverterTable(FormatManager.get().getConverters());
+			List<Callable<BatchResult>> tasks = new ArrayList<>();
+			HashManager.get().setUpdateProjectRegistry(true);
+			for (BatchInput input : files) {
+				ResourceKey key = parseKey(input.file);
+				Converter converter = converters.getDecoder(key);
+				if (converter == null) {
+					if (input.isExplicit) {
+						tasks.add(() -> {
+							BatchResult result = new BatchResult();
+							result.error = "The input file is not in any recognizable format";
+							return result;
+						});
+					} else {
+						tasks.add(null);
+					}
+					continue;
+				}
+				tasks.add(() -> {
+					BatchResult result = new BatchResult();
+					try (StreamReader stream = new FileStream(input.file, "r")) {
+						result.bytes = stream.length();
+						if (!converter.decode(stream, input.file.getParentFile(), key)) {
+							result.error = "Trying to convert format '" + converter.getName() + "' failed.";
+						}
+					}
+					return result;
+				});
+			}
+			HashManager.get().setUpdateProjectRegistry(false);
+			
+			return executeBatch("Decoded", files, tasks, threads);
+		}
+		
+		private int decodeFile(File input) throws Exception {
+			HashManager.get().setUpdateProjectRegistry(true);
+			ResourceKey key = parseKey(input);
 			
 			Converter converter = FormatManager.get().getDecoder(key);
 			if (converter == null) {
@@ -249,20 +539,89 @@ public class Launcher {
 		}
 	}
 	
-	@Command(name = "encode", description = "Encodes files into Spore formats.", mixinStandardHelpOptions = true)
+	@Command(name = "encode", description = "Encodes files into Spore formats. Accepts multiple files, folders and glob patterns, which are encoded in parallel "
+			+ "(except the formats whose converter is not thread safe, which are encoded one at a time).", mixinStandardHelpOptions = true)
 	public static class EncodeCommand implements Callable<Integer> {
 
-		@Parameters(index = "0", description = "The input file to encode.")
-		private File input;
+		@Parameters(arity = "2..*", description = "The input files to encode, followed by the output. When encoding a single file, the output is the file to generate; "
+				+ "otherwise, it is the folder where the encoded files are written, keeping the relative paths of the inputs. "
+				+ "Folders are searched recursively, and glob patterns such as 'folder/**/*.prop.xml' are accepted.")
+		private List<String> paths;
 		
-		@Parameters(index = "1", description = "The output file.")
-		private File output;
+		@Option(names = {"--threads"}, description = "How many files are encoded at the same time. Default is the number of processors.")
+		private int threads = Runtime.getRuntime().availableProcessors();
+		
+		/** Returns the name of the encoded file: the name of the input without its extensions, followed by the name of the resulting type. */
+		private static String getOutputName(File input, Converter converter) {
+			String[] splits = input.getName().split("\\.", 2);
+			if (splits.length < 2) return input.getName();
+			return splits[0] + "." + HashManager.get().getTypeName(converter.getOriginalTypeID("." + splits[1]));
+		}
 		
 		@Override
 		public Integer call() throws Exception {
-			input = input.getAbsoluteFile();
-			output = output.getAbsoluteFile();
+			List<String> inputs = paths.subList(0, paths.size() - 1);
+			File output = new File(paths.get(paths.size() - 1)).getAbsoluteFile();
+			
+			ConverterTable converters = FormatManager.get().createConverterTable();
+			
+			if (inputs.size() == 1 && !isGlob(inputs.get(0)) && !output.isDirectory()) {
+				File input = new File(inputs.get(0)).getAbsoluteFile();
+				if (input.isFile() || converters.getEncoder(input) != null) {
+					return encodeFile(input, output);
+				}
+			}
+			
+			List<BatchInput> files = expandInputs(inputs, file -> converters.getEncoder(file) != null);
+			
+			// Converters that are not thread safe (for example, they change global settings) encode their files alone
+			ReadWriteLock encodeLock = new ReentrantReadWriteLock();
+			
+			List<Callable<BatchResult>> tasks = new ArrayList<>();
+			for (BatchInput input : files) {
+				Converter converter = converters.getEncoder(input.file);
+				if (converter == null) {
+					if (input.isExplicit) {
+						tasks.add(() -> {
+							BatchResult result = new BatchResult();
+							result.error = "The input file is not in any recognizable format";
+							return result;
+						});
+					} else {
+						tasks.add(null);
+					}
+					continue;
+				}
+				String relativePath = input.getRelativePath();
+				int separator = relativePath.lastIndexOf('/');
+				File outputFile = new File(separator == -1 ? output : new File(output, relativePath.substring(0, separator)), getOutputName(input.file, converter));
+				
+				Lock lock = converter.isThreadSafe() ? encodeLock.readLock() : encodeLock.writeLock();
+				
+				tasks.add(() -> {
+					BatchResult result = new BatchResult();
+					lock.lock();
+					try (MemoryStream stream = new MemoryStream()) {
+						if (!converter.encode(input.file, stream)) {
+							result.error = "Trying to convert format '" + converter.getName() + "' failed.";
+						} else {
+							outputFile.getParentFile().mkdirs();
+							stream.writeToFile(outputFile, 0, (int) stream.length());
+							result.bytes = stream.length();
+						}
+					}
+					finally {
+						lock.unlock();
+					}
+					return result;
+				});
+			}
 			
+			HashManager.get().setUpdateProjectRegistry(false);
+			return executeBatch("Encoded", files, tasks, threads);
+		}
+		
+		private int encodeFile(File input, File output) throws Exception {
 			Converter converter = FormatManager.get().getEncoder(input);
 			if (converter == null) {
 				System.err.println("The input file is not in any recognizable format");
@@ -285,7 +644,17 @@ public class Launcher {
 	
 	private static long startTime = 0;
 	private static final int MAX_PROGRESS_CHARS = 100;
+	/** When running as a server, the output of the commands is sent as the response, so there's no progress bar. */
+	private static volatile boolean isServing;
+	
+	private static void printProgressBarStart() throws IOException {
+		if (!isServing) {
+			System.out.write(("|" + " ".repeat(MAX_PROGRESS_CHARS) + "|\r").getBytes());
+		}
+	}
+	
 	private static Consumer<Double> PROGRESS_BAR_LISTENER = progress -> {
+		if (isServing) return;
 		try {
 			String text = "\r|";
 			int progressChars;
@@ -323,6 +692,12 @@ public class Launcher {
 		@Option(names = {"--converters"}, description = "List of converters class names to use, such as 'PropConverter'. If not specified, the default converters will be used.")
 		private final List<String> converters = new ArrayList<>();
 		
+		@Option(names = {"--profile"}, description = "Measure how long every file takes to unpack, and write the report to this file; as CSV if it ends with .csv, otherwise as JSON.")
+		private File profileFile;
+		
+		@Option(names = {"--profile-top"}, description = "How many of the slowest files are listed in the profile summary (default: ${DEFAULT-VALUE}).")
+		private int profileTop = 20;
+		
 		@Override
 		public Integer call() throws Exception {
 			input = input.getAbsoluteFile();
@@ -348,9 +723,12 @@ public class Launcher {
 			final DBPFUnpackingTask task = new DBPFUnpackingTask(input, output, null, convertersList);
 			task.setNoJavaFX();
 			task.setNoJavaFXProgressListener(PROGRESS_BAR_LISTENER);
+			if (profileFile != null) {
+				task.setProfiler(new DBPFProfiler("unpack"));
+			}
 			
 			System.out.println("Unpacking " + input.getName() + " ...");
-			System.out.write(("|" + " ".repeat(MAX_PROGRESS_CHARS) + "|\r").getBytes());
+			printProgressBarStart();
 			Exception e = task.call();
 			System.out.println();
 			if (e != null) {
@@ -358,11 +736,89 @@ public class Launcher {
 				return -1;
 			}
 			else {
+				if (profileFile != null) {
+					writeProfile(task.getProfiler(), profileFile, profileTop);
+				}
 				return 0;
 			}
 		}
 	}
 	
+	@Command(name = "unpack-presets", description = "Unpack presets of Spore packages into their projects. If the unpack of a preset was interrupted, it continues where it stopped.", mixinStandardHelpOptions = true)
+	public static class UnpackPresetsCommand implements Callable<Integer> {
+		
+		@Parameters(arity = "0..*", description = "The names of the presets to unpack. If not specified, the recommended presets are unpacked.")
+		private final List<String> presetNames = new ArrayList<>();
+		
+		@Option(names = {"--list"}, description = "Print the names of the available presets instead of unpacking them.")
+		private boolean list;
+		
+		@Override
+		public Integer call() throws Exception {
+			List<ProjectPreset> allPresets = ProjectManager.get().getPresets();
+			
+			if (list) {
+				for (ProjectPreset preset : allPresets) {
+					System.out.println(preset.getName() + (preset.isRecommendable() ? " (recommended)" : ""));
+				}
+				return 0;
+			}
+			
+			List<ProjectPreset> presets = new ArrayList<>();
+			if (presetNames.isEmpty()) {
+				for (ProjectPreset preset : allPresets) {
+					if (preset.isRecommendable()) presets.add(preset);
+				}
+			}
+			else {
+				for (String name : presetNames) {
+					Optional<ProjectPreset> preset = allPresets.stream().filter(p -> p.getName().equalsIgnoreCase(name)).findFirst();
+					if (!preset.isPresent()) {
+						System.err.println("Preset '" + name + "' does not exist. Use --list to see the available presets.");
+						return -1;
+					}
+					presets.add(preset.get());
+				}
+			}
+			
+			List<Converter> convertersList = new ArrayList<>();
+			for (Converter converter : FormatManager.get().getConverters()) {
+				if (converter.isEnabledByDefault()) convertersList.add(converter);
+			}
+			
+			for (ProjectPreset preset : presets) {
+				Map<String, File> files = new LinkedHashMap<>();
+				preset.getFiles(files);
+				
+				startTime = System.currentTimeMillis();
+				final DBPFUnpackingTask task = ProjectManager.get().createPresetUnpackingTask(preset, files.values(), convertersList);
+				task.setNoJavaFX();
+				task.setNoJavaFXProgressListener(PROGRESS_BAR_LISTENER);
+				
+				System.out.println("Unpacking preset " + preset.getName() + " ...");
+				printProgressBarStart();
+				Exception e = task.call();
+				System.out.println();
+				if (e != null) {
+					e.printStackTrace();
+					System.err.println("Run the command again to continue unpacking.");
+					return -1;
+				}
+				
+				if (task.getResumedItemCount() != 0) {
+					System.out.println("Continued a previous unpack, " + task.getResumedItemCount() + " files were already unpacked.");
+				}
+				for (Map.Entry<String, File> entry : files.entrySet()) {
+					if (task.getFailedDBPFs().contains(entry.getValue())) {
+						System.err.println("Package " + entry.getKey() + " could not be found.");
+					}
+				}
+			}
+			
+			return 0;
+		}
+	}
+	
 	@Command(name = "pack", description = "Pack the contents of a folder into a Spore DBPF package.", mixinStandardHelpOptions = true)
 	public static class PackCommand implements Callable<Integer> {
 
@@ -375,6 +831,12 @@ public class Launcher {
 		@Option(names = {"--compress"}, description = "[Experimental] Compress files bigger than N bytes")
 		private int compressThreshold = -1;
 		
+		@Option(names = {"--profile"}, description = "Measure how long every file takes to pack, and write the report to this file; as CSV if it ends with .csv, otherwise as JSON.")
+		private File profileFile;
+		
+		@Option(names = {"--profile-top"}, description = "How many of the slowest files are listed in the profile summary (default: ${DEFAULT-VALUE}).")
+		private int profileTop = 20;
+		
 		@Override
 		public Integer call() throws Exception {
 			input = input.getAbsoluteFile();
@@ -385,16 +847,181 @@ public class Launcher {
 			task.setCompressThreshold(compressThreshold);
 			task.setNoJavaFX();
 			task.setNoJavaFXProgressListener(PROGRESS_BAR_LISTENER);
+			if (profileFile != null) {
+				task.setProfiler(new DBPFProfiler("pack"));
+			}
 			
 			System.out.println("Packing " + input.getName() + " ...");
-			System.out.write(("|" + " ".repeat(MAX_PROGRESS_CHARS) + "|\r").getBytes());
+			printProgressBarStart();
 			task.call();
 			System.out.println();
-			task.call();
+			
+			if (task.getFailException() != null) {
+				return -1;
+			}
+			if (profileFile != null) {
+				writeProfile(task.getProfiler(), profileFile, profileTop);
+			}
+			return 0;
+		}
+	}
+	
+	private static void writeProfile(DBPFProfiler profiler, File file, int slowestCount) throws IOException {
+		System.out.print(profiler.getSummary(slowestCount));
+		profiler.export(file.getAbsoluteFile(), slowestCount);
+		System.out.println("Profile written to " + file.getAbsolutePath());
+	}
+	
+	@Command(name = "merge", description = "Combines several DBPF packages into one, or removes files from a package, without unpacking them.", mixinStandardHelpOptions = true)
+	public static class MergeCommand implements Callable<Integer> {
+		
+		@Parameters(arity = "2..*", description = "The input DBPF files, in order of priority (if a file is in more than one package, the first one is used), followed by the output DBPF file to generate.")
+		private List<File> files;
+		
+		@Option(names = {"--include"}, description = "Only copy the files that match this pattern, written as 'group!instance.type' where any part can be '*'; the group and type can be omitted. Can be used more than once.")
+		private List<String> includes;
+		
+		@Option(names = {"--exclude"}, description = "Do not copy the files that match this pattern, written as 'group!instance.type' where any part can be '*'; the group and type can be omitted. Can be used more than once.")
+		private List<String> excludes;
+		
+		@Override
+		public Integer call() throws Exception {
+			List<File> inputs = new ArrayList<>();
+			for (File file : files.subList(0, files.size() - 1)) {
+				if (!file.isFile()) {
+					System.err.println("Package '" + file.getPath() + "' does not exist.");
+					return -1;
+				}
+				inputs.add(file.getAbsoluteFile());
+			}
+			File output = files.get(files.size() - 1).getAbsoluteFile();
+			
+			DBPFMerger merger = new DBPFMerger(inputs);
+			if (includes != null || excludes != null) {
+				merger.setItemFilter(DBPFMerger.createFilter(includes, excludes));
+			}
+			merger.setProgressListener(PROGRESS_BAR_LISTENER);
+			
+			System.out.println("Merging " + inputs.size() + " packages into " + output.getName() + " ...");
+			startTime = System.currentTimeMillis();
+			printProgressBarStart();
+			merger.merge(output);
+			System.out.println();
+			
+			double seconds = Math.max(0.001, (System.currentTimeMillis() - startTime) / 1000.0);
+			System.out.println(String.format(Locale.ROOT, "%d files copied, %d duplicated, %d filtered out; %.2f MB in %.2f s (%.2f MB/s)",
+					merger.getCopiedCount(), merger.getDuplicatedCount(), merger.getFilteredCount(),
+					merger.getCopiedBytes() / (1024.0 * 1024.0), seconds, merger.getCopiedBytes() / seconds / (1024.0 * 1024.0)));
 			
 			return 0;
 		}
 	}
+	
+	@Command(name = "benchmark", description = "Measures the converters by decoding and encoding back a corpus of Spore files. "
+			+ "Reports the speed, the allocated memory and whether the encoded files are identical to the originals.", mixinStandardHelpOptions = true)
+	public static class BenchmarkCommand implements Callable<Integer> {
+		
+		@Parameters(arity = "1..*", description = "The original Spore files to use. Folders are searched recursively, and glob patterns such as 'folder/**/*.prop' are accepted.")
+		private List<String> inputs;
+		
+		@Option(names = {"--warmup"}, description = "How many round trips of every file are done before measuring. Default is 2.")
+		private int warmupIterations = 2;
+		
+		@Option(names = {"--iterations"}, description = "How many round trips of every file are measured. Default is 5.")
+		private int iterations = 5;
+		
+		@Option(names = {"--output"}, description = "Write the results into this JSON file, so they can be compared with other versions.")
+		private File output;
+		
+		@Option(names = {"--require-identical"}, description = "Fail if any encoded file is not identical to the original.")
+		private boolean requireIdentical;
+		
+		@Option(names = {"--dispatch"}, description = "Instead of the round trips, measure how long it takes to find the decoder of every file, and the encoder of every decoded file.")
+		private boolean dispatch;
+		
+		@Override
+		public Integer call() throws Exception {
+			List<BatchInput> files = expandInputs(inputs, null);
+			
+			// Same order as packing and unpacking, the last converters have priority
+			List<Converter> converters = new ArrayList<>(FormatManager.get().getConverters());
+			Collections.reverse(converters);
+			
+			ConverterBenchmark benchmark = new ConverterBenchmark(converters);
+			benchmark.setWarmupIterations(warmupIterations);
+			benchmark.setIterations(iterations);
+			
+			if (dispatch) {
+				List<File> inputFiles = new ArrayList<>();
+				for (BatchInput input : files) inputFiles.add(input.file);
+				
+				ConverterBenchmark.DispatchResult result;
+				HashManager.get().setUpdateProjectRegistry(true);
+				try {
+					result = benchmark.runDispatch(inputFiles);
+				}
+				finally {
+					HashManager.get().setUpdateProjectRegistry(false);
+				}
+				System.out.println(String.format(Locale.ROOT, "Decoders: %d files, %d with a decoder: converter table %.3f ms, every converter %.3f ms",
+						result.files, result.matches, result.tableNanos / 1e6, result.linearNanos / 1e6));
+				System.out.println(String.format(Locale.ROOT, "Encoders: %d files, %d with an encoder: converter table %.3f ms, %.0f stat calls per 10k files; every converter %.3f ms, %.0f stat calls per 10k files",
+						result.encoderFiles, result.encoderMatches, 
+						result.encoderTableNanos / 1e6, result.getStatsPer10k(result.encoderTableStats),
+						result.encoderLinearNanos / 1e6, result.getStatsPer10k(result.encoderLinearStats)));
+				if (result.encoderMismatches != 0 || result.encoderFailures != 0) {
+					System.err.println(String.format(Locale.ROOT, "%d files got a different encoder, %d could not be encoded", 
+							result.encoderMismatches, result.encoderFailures));
+				}
+				
+				if (output != null) {
+					JSONObject json = new JSONObject();
+					json.put("version", VERSION);
+					json.put("dispatch", result.toJSON());
+					Files.write(output.toPath(), json.toString(4).getBytes(StandardCharsets.UTF_8));
+				}
+				return result.encoderMismatches != 0 ? -1 : 0;
+			}
+			
+			List<ConverterBenchmark.FileResult> results = new ArrayList<>();
+			HashManager.get().setUpdateProjectRegistry(true);
+			try {
+				for (BatchInput input : files) {
+					ConverterBenchmark.FileResult result = benchmark.run(input.file, input.getRelativePath());
+					if (result == null) continue;
+					results.add(result);
+					
+					if (result.error != null) {
+						System.err.println("Failed " + result.path + ": " + result.error);
+					} else {
+						System.out.println(String.format(Locale.ROOT, "%s %s: decode %.3f ms, encode %.3f ms",
+								result.isIdentical ? "Identical" : "Different", result.path, result.decodeNanos / 1e6, result.encodeNanos / 1e6));
+					}
+				}
+			}
+			finally {
+				HashManager.get().setUpdateProjectRegistry(false);
+			}
+			
+			System.out.println();
+			boolean hasErrors = false;
+			for (Map.Entry<String, ConverterBenchmark.ConverterResult> entry : ConverterBenchmark.summarize(results).entrySet()) {
+				ConverterBenchmark.ConverterResult result = entry.getValue();
+				int different = result.files - result.identical - result.failed;
+				System.out.println(String.format(Locale.ROOT, "%s: %d files (%d identical, %d different, %d failed), %.2f MB/s, %.2f MB allocated",
+						entry.getKey(), result.files, result.identical, different, result.failed,
+						result.getThroughput(), result.allocatedBytes / (1024.0 * 1024.0)));
+				
+				if (result.failed != 0 || (requireIdentical && different != 0)) hasErrors = true;
+			}
+			
+			if (output != null) {
+				Files.write(output.toPath(), benchmark.toJSON(VERSION, results).toString(4).getBytes(StandardCharsets.UTF_8));
+			}
+			
+			return hasErrors ? -1 : 0;
+		}
+	}
 
 	@Command(name = "find-spui", description = "Find all SPUIs that have a specific control ID", mixinStandardHelpOptions = true)
 	public static class FindSpuiForControlIdCommand implements Callable<Integer> {
@@ -426,4 +1053,217 @@ public class Launcher {
 			return 0;
 		}
 	}
+
+	@Command(name = "serve", description = "Keeps the program running, executing the commands received as JSON lines from the standard input or a local socket. "
+			+ "Every request is an object like {\"id\": 1, \"args\": [\"decode\", \"file.prop\"]}; every response is an object with the same id, "
+			+ "the exit code, the output of the command and how many milliseconds it took. Send {\"shutdown\": true} to stop. "
+			+ "Only name-to-id and id-to-name requests are executed at the same time; the rest are executed one at a time, "
+			+ "although commands like decode and encode still use multiple threads for their own files.", mixinStandardHelpOptions = true)
+	public static class ServeCommand implements Callable<Integer> {
+		
+		/** 
+		 * These commands only read the name registries, so they can be executed at the same time. The rest can modify the registries
+		 * or other global state, so they are executed alone. This includes decode and encode: they add names to the project registry
+		 * and toggle whether it is updated, which is shared by the whole program and by the threads they use for their own files,
+		 * and some converters change global settings while encoding.
+		 */
+		private static final Set<String> READ_ONLY_COMMANDS = new HashSet<>(Arrays.asList("name-to-id", "id-to-name"));
+		
+		@Option(names = {"--port"}, description = "Accept connections on this port of the local machine instead of reading the standard input.")
+		private int port = -1;
+		
+		private final ReadWriteLock commandLock = new ReentrantReadWriteLock();
+		private ExecutorService executor;
+		private RequestOutputStream requestOut;
+		private RequestOutputStream requestErr;
+		private volatile boolean isShutdown;
+		
+		/** 
+		 * Redirects everything written by a thread while it executes a request into the buffer of that request. Commands that are
+		 * executed alone can use other threads, so the output of any other thread goes into the buffer of that command.
+		 */
+		private static class RequestOutputStream extends OutputStream {
+			private final OutputStream fallback;
+			private final ThreadLocal<ByteArrayOutputStream> buffer = new ThreadLocal<>();
+			/** The buffer of the command that is being executed alone, if any. */
+			private volatile ByteArrayOutputStream exclusiveBuffer;
+			
+			RequestOutputStream(OutputStream fallback) {
+				this.fallback = fallback;
+			}
+			
+			private OutputStream getTarget() {
+				OutputStream target = buffer.get();
+				if (target == null) target = exclusiveBuffer;
+				return target == null ? fallback : target;
+			}
+			
+			@Override public void write(int b) throws IOException {
+				getTarget().write(b);
+			}
+			
+			@Override public void write(byte[] b, int off, int len) throws IOException {
+				getTarget().write(b, off, len);
+			}
+			
+			@Override public void flush() throws IOException {
+				getTarget().flush();
+			}
+		}
+
+		@Override
+		public Integer call() throws Exception {
+			PrintStream stdout = System.out;
+			// The standard output is used for the responses, so output that doesn't belong to any request goes to the standard error
+			requestOut = new RequestOutputStream(System.err);
+			requestErr = new RequestOutputStream(System.err);
+			System.setOut(new PrintStream(requestOut, true));
+			System.setErr(new PrintStream(requestErr, true));
+			isServing = true;
+			
+			// Only the read-only commands run at the same time, and they are short
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+			try {
+				if (port == -1) {
+					PrintWriter writer = new PrintWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8), true);
+					serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), writer);
+				}
+				else {
+					try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+						stdout.println("Listening on " + serverSocket.getLocalSocketAddress());
+						// Check regularly if a connection requested a shutdown
+						serverSocket.setSoTimeout(500);
+						while (!isShutdown) {
+							Socket socket;
+							try {
+								socket = serverSocket.accept();
+							} catch (SocketTimeoutException e) {
+								continue;
+							}
+							Thread thread = new Thread(() -> {
+								try (Socket connection = socket) {
+									PrintWriter writer = new PrintWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8), true);
+									serve(new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)), writer);
+								} catch (IOException | InterruptedException e) {
+									e.printStackTrace();
+								}
+							}, "smfx connection");
+							thread.setDaemon(true);
+							thread.start();
+						}
+					}
+				}
+			}
+			finally {
+				executor.shutdown();
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			}
+			return 0;
+		}
+		
+		/** Reads requests until the input ends or a shutdown is requested, and waits until all of them have been answered. */
+		private void serve(BufferedReader reader, PrintWriter writer) throws IOException, InterruptedException {
+			List<Future<?>> pending = new ArrayList<>();
+			String line;
+			while (!isShutdown && (line = reader.readLine()) != null) {
+				if (line.isBlank()) continue;
+				
+				JSONObject request;
+				try {
+					request = new JSONObject(line);
+				} catch (JSONException e) {
+					JSONObject response = new JSONObject();
+					response.put("id", JSONObject.NULL);
+					response.put("exitCode", -1);
+					response.put("stderr", "Invalid request: " + e.getMessage());
+					respond(writer, response);
+					continue;
+				}
+				
+				if (request.optBoolean("shutdown")) {
+					isShutdown = true;
+					break;
+				}
+				
+				pending.removeIf(Future::isDone);
+				try {
+					pending.add(executor.submit(() -> respond(writer, execute(request))));
+				} catch (RejectedExecutionException e) {
+					// Another connection requested a shutdown
+					JSONObject response = new JSONObject();
+					response.put("id", request.has("id") ? request.get("id") : JSONObject.NULL);
+					response.put("exitCode", -1);
+					response.put("stderr", "The server is shutting down");
+					respond(writer, response);
+					break;
+				}
+			}
+			
+			for (Future<?> future : pending) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		private static void respond(PrintWriter writer, JSONObject response) {
+			synchronized (writer) {
+				writer.println(response.toString());
+			}
+		}
+		
+		private JSONObject execute(JSONObject request) {
+			JSONObject response = new JSONObject();
+			response.put("id", request.has("id") ? request.get("id") : JSONObject.NULL);
+			
+			JSONArray argsArray = request.optJSONArray("args");
+			if (argsArray == null || argsArray.length() == 0 || argsArray.optString(0).equals("serve")) {
+				response.put("exitCode", -1);
+				response.put("stderr", "Invalid request: 'args' must be a non-empty list with a command other than 'serve'");
+				return response;
+			}
+			String[] args = new String[argsArray.length()];
+			for (int i = 0; i < args.length; ++i) {
+				args[i] = argsArray.optString(i);
+			}
+			
+			boolean isExclusive = !READ_ONLY_COMMANDS.contains(args[0]);
+			Lock lock = isExclusive ? commandLock.writeLock() : commandLock.readLock();
+			
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+			requestOut.buffer.set(out);
+			requestErr.buffer.set(err);
+			
+			lock.lock();
+			if (isExclusive) {
+				requestOut.exclusiveBuffer = out;
+				requestErr.exclusiveBuffer = err;
+			}
+			long time = System.nanoTime();
+			try {
+				response.put("exitCode", new CommandLine(new SMFXCommand()).execute(args));
+			}
+			finally {
+				time = System.nanoTime() - time;
+				if (isExclusive) {
+					// The names added by this command must not affect the following ones
+					HashManager.get().setUpdateProjectRegistry(false);
+					HashManager.get().getProjectRegistry().clear();
+					requestOut.exclusiveBuffer = null;
+					requestErr.exclusiveBuffer = null;
+				}
+				lock.unlock();
+				requestOut.buffer.remove();
+				requestErr.buffer.remove();
+			}
+			
+			response.put("stdout", new String(out.toByteArray(), StandardCharsets.UTF_8));
+			response.put("stderr", new String(err.toByteArray(), StandardCharsets.UTF_8));
+			response.put("timeMs", time / 1000000.0);
+			return response;
+		}
+	}
 }
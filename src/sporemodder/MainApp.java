@@ -25,6 +25,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import javafx.application.Application;
@@ -40,6 +43,11 @@ import sporemodder.file.shaders.ShaderData;
 public class MainApp extends Application {
 	
 	private static MainApp instance;
+	
+	private static final String PROPERTY_printStartupTimes = "sporemodder.printStartupTimes";
+	/** How long each initialization phase took, in nanoseconds. */
+	private static final Map<String, Long> startupTimes = Collections.synchronizedMap(new LinkedHashMap<>());
+	
 	private UIManager uiManager;
 	private MessageManager messageManager;
 	private EditorManager editorManager;
@@ -150,12 +158,43 @@ public class MainApp extends Application {
 		return MainApp.instance;
 	}
 	
+	/**
+	 * Records how long an initialization phase took. The times can be printed while the program starts by setting the
+	 * <code>sporemodder.printStartupTimes</code> system property to <code>true</code>.
+	 * @param phase The name of the phase, such as the manager that was initialized.
+	 * @param nanoTime The time it took, in nanoseconds.
+	 */
+	public static void recordStartupTime(String phase, long nanoTime) {
+		startupTimes.put(phase, nanoTime);
+		if (Boolean.getBoolean(PROPERTY_printStartupTimes)) {
+			System.err.println(String.format("%s: %.1f ms", phase, nanoTime / 1000000.0));
+		}
+	}
+	
+	/**
+	 * Returns how long (in nanoseconds) each of the initialization phases took, in the order they finished. Phases that are
+	 * executed in the background, like loading the name registries, might not be here until they finish.
+	 * @return
+	 */
+	public static Map<String, Long> getStartupTimes() {
+		synchronized (startupTimes) {
+			return new LinkedHashMap<>(startupTimes);
+		}
+	}
+	
+	private static void timePhase(String phase, Runnable action) {
+		long time = System.nanoTime();
+		action.run();
+		recordStartupTime(phase, System.nanoTime() - time);
+	}
+	
 	public static void testInit() {
 		new MainApp().init(true);
 	}
 	
 	private void init(boolean testInit) {
 		MainApp.instance = this;
+		long startTime = System.nanoTime();
 		
 		messageManager = new MessageManager();
 		gameManager = new GameManager();
@@ -171,7 +210,7 @@ public class MainApp extends Application {
 		fxCompiler = new FXCompiler();
 		
 		// Initialize it first, otherwise we can't get the settings
-		pathManager.initialize(null);
+		timePhase("PathManager", () -> pathManager.initialize(null));
 		
 		settings = new Properties();
 		File settingsFile = pathManager.getProgramFile("config.properties");
@@ -185,21 +224,23 @@ public class MainApp extends Application {
 		
 		// The path managers might be used in other manager initialization methods,
 		// so we ensure we initialize them first.
-		messageManager.initialize(settings);
-		gameManager.initialize(settings);
-		fileManager.initialize(settings);
+		timePhase("MessageManager", () -> messageManager.initialize(settings));
+		timePhase("GameManager", () -> gameManager.initialize(settings));
+		timePhase("FileManager", () -> fileManager.initialize(settings));
 		
-		if (!testInit) uiManager.initialize(settings);
-		if (!testInit) editorManager.initialize(settings);
-		hashManager.initialize(settings);
-		projectManager.initialize(settings);
-		if (!testInit) documentationManager.initialize(settings);
-		formatManager.initialize(settings);
-		fxCompiler.initialize(settings);
+		if (!testInit) timePhase("UIManager", () -> uiManager.initialize(settings));
+		if (!testInit) timePhase("EditorManager", () -> editorManager.initialize(settings));
+		timePhase("HashManager", () -> hashManager.initialize(settings));
+		timePhase("ProjectManager", () -> projectManager.initialize(settings));
+		if (!testInit) timePhase("DocumentationManager", () -> documentationManager.initialize(settings));
+		timePhase("FormatManager", () -> formatManager.initialize(settings));
+		timePhase("FXCompiler", () -> fxCompiler.initialize(settings));
 		
 		ShaderData.initialize();
 		
 		messageManager.postMessage(MessageType.OnSettingsLoad, settings);
+		
+		recordStartupTime("Total", System.nanoTime() - startTime);
 	}
 	
 	public void saveSettings() {
@@ -87,6 +87,18 @@ public class PathManager extends AbstractManager {
 		return projectsFolder;
 	}
 	
+	/** 
+	 * Returns the folder where the program stores cached data, such as indices that speed up repeated operations.
+	 * The contents of this folder can be safely deleted at any time. The folder is created if it does not exist.
+	 */
+	public File getCacheFolder() {
+		File folder = new File(programFolder, "Cache");
+		if (!folder.exists()) {
+			folder.mkdirs();
+		}
+		return folder;
+	}
+	
 	/**
 	 * Returns the file that corresponds to the given relative path, in the program folder. For example, if the program is at
 	 * "C:\SporeModder" and you provide the relative path "WinMerge\WinMerge.exe", the file "C:\SporeModder\WinMerge\WinMerge.exe"
@@ -78,6 +78,7 @@ import sporemodder.util.DefaultProjectItemFactory;
 import sporemodder.util.ImportProjectTask;
 import sporemodder.util.NameRegistry;
 import sporemodder.util.OmitProjectItemFactory;
+import sporemodder.util.PackageSource;
 import sporemodder.util.Project;
 import sporemodder.util.ProjectItem;
 import sporemodder.util.ProjectItemFactory;
@@ -1000,6 +1001,7 @@ public class ProjectManager extends AbstractManager {
 		while (iterable.hasPrevious())
 		{
 			Project source = iterable.previous();
+			source.loadPackageFolder(relativePath);
 			File folder = new File(source.getFolder(), relativePath);
 			
 			if (folder.exists()) {
@@ -1023,6 +1025,7 @@ public class ProjectManager extends AbstractManager {
 			}
 		}
 		
+		project.loadPackageFolder(relativePath);
 		File folder = new File(project.getFolder(), relativePath);
 		if (folder.exists()) {
 			String[] fileNames = folder.list();
@@ -1175,7 +1178,18 @@ public class ProjectManager extends AbstractManager {
 	 * @param project
 	 */
 	public void initializeProject(Project project) throws IOException {
-		if (project.getFolder().exists()) {
+		initializeProject(project, true);
+	}
+	
+	/**
+	 * Same as {@link #initializeProject(Project)}, but it can keep the existing contents of the folder; this is used
+	 * when continuing an unpack that was interrupted.
+	 * @param project
+	 * @param clearFolder If true, the existing contents of the project folder are deleted.
+	 * @throws IOException
+	 */
+	public void initializeProject(Project project, boolean clearFolder) throws IOException {
+		if (clearFolder && project.getFolder().exists()) {
 			// Ensure there isn't such folder
 			FileManager.get().deleteDirectory(project.getFolder());
 		}
@@ -1299,6 +1313,7 @@ public class ProjectManager extends AbstractManager {
 	public boolean hasSource(String relativePath) {
 		// This method is faster than getting the item and then checking
 		for (Project source : activeProject.getSources()) {
+			source.loadPackageFolder(relativePath);
 			if (new File(source.getFolder(), relativePath).exists()) return true;
 		}
 		return false;
@@ -1321,6 +1336,7 @@ public class ProjectManager extends AbstractManager {
  	
  	public File getSourceFile(String relativePath) {
  		for (Project source : activeProject.getSources()) {
+ 			source.loadPackageFolder(relativePath);
  			File file = new File(source.getFolder(), relativePath);
  			if (file.exists()) return file;
  		}
@@ -1330,6 +1346,7 @@ public class ProjectManager extends AbstractManager {
  	public Project getProjectByFile(String relativePath) {
  		if (getModFile(relativePath) != null) return activeProject;
  		for (Project source : activeProject.getSources()) {
+ 			source.loadPackageFolder(relativePath);
  			if (new File(source.getFolder(), relativePath).exists()) return source;
  		}
  		return null;
@@ -1342,10 +1359,12 @@ public class ProjectManager extends AbstractManager {
  	 * @return
  	 */
  	public File getFile(String relativePath) {
+ 		activeProject.loadPackageFolder(relativePath);
  		File file = new File(activeProject.getFolder(), relativePath);
 		if (file.exists()) return file;
 
  		for (Project source : activeProject.getSources()) {
+ 			source.loadPackageFolder(relativePath);
  			file = new File(source.getFolder(), relativePath);
  			if (file.exists()) return file;
  		}
@@ -1358,6 +1377,30 @@ public class ProjectManager extends AbstractManager {
  		return getFile(relativePath);
 	}
 	
+	/**
+	 * Creates the task that unpacks a preset into its project. If a previous unpack of the preset was interrupted,
+	 * the task continues it instead of starting from scratch.
+	 * @param preset
+	 * @param files The package files of the preset, as returned by {@link ProjectPreset#getFiles(Map)}.
+	 * @param converters The converters used to unpack the files.
+	 * @return
+	 */
+	public DBPFUnpackingTask createPresetUnpackingTask(ProjectPreset preset, Collection<File> files, List<Converter> converters) {
+		// Create the project or override the existing one
+		final Project project = getOrCreateProject(preset.getName());
+		project.setReadOnly(true);
+		project.setPackageSource(null);
+		// We don't need to save the settings here, as the unpacking task will call initializeProject()
+		// project.saveSettings();
+		
+		// The project is passed to set the 'packageSignature' setting, but we don't want that in presets
+		final DBPFUnpackingTask task = new DBPFUnpackingTask(files, project.getFolder(), project, converters);
+		
+		task.setItemFilter(preset.getItemFilter(), preset.getName());
+		
+		return task;
+	}
+	
 	public void unpackPresets(List<ProjectPreset> presets, List<Converter> converters) {
 		
 		if (converters == null) {
@@ -1381,16 +1424,7 @@ public class ProjectManager extends AbstractManager {
 				fileToName.put(entry.getValue(), entry.getKey());
 			}
 			
-			// Create the project or override the existing one
-			final Project project = getOrCreateProject(preset.getName());
-			project.setReadOnly(true);
-			// We don't need to save the settings here, as the unpacking task will call initializeProject()
-			// project.saveSettings();
-			
-			// The project is passed to set the 'packageSignature' setting, but we don't want that in presets
-			final DBPFUnpackingTask task = new DBPFUnpackingTask(files.values(), project.getFolder(), project, converters);
-			
-			task.setItemFilter(preset.getItemFilter());
+			final DBPFUnpackingTask task = createPresetUnpackingTask(preset, files.values(), converters);
 			
 			ProgressDialogUI progressUI = UIManager.get().loadUI("dialogs/ProgressDialogUI");
 			Dialog<ButtonType> progressDialog = progressUI.createDialog(task);
@@ -1465,6 +1499,35 @@ public class ProjectManager extends AbstractManager {
 		UIManager.get().showDialog(resultDialog);
 	}
 	
+	/**
+	 * Creates a read-only project for every given preset, without unpacking its packages: the files are decoded from the
+	 * original packages the first time they are needed, using the given converters (see {@link PackageSource}).
+	 * @param presets
+	 * @param converters The converters used to decode the files, or null to use the ones enabled by default.
+	 */
+	public void linkPresets(List<ProjectPreset> presets, List<Converter> converters) {
+		for (ProjectPreset preset : presets) {
+			Project project = getOrCreateProject(preset.getName());
+			project.setReadOnly(true);
+			
+			PackageSource packageSource = new PackageSource(project, preset.getName());
+			if (converters != null) {
+				for (Converter converter : converters) {
+					packageSource.getConverterNames().add(converter.getClass().getName());
+				}
+			}
+			project.setPackageSource(packageSource);
+			
+			try {
+				initializeProject(project);
+			}
+			catch (Exception e) {
+				UIManager.get().showErrorDialog(e, "Project for preset \"" + preset.getName() + "\" could not be created", true);
+				return;
+			}
+		}
+	}
+	
 	/**
 	 * Executes WinMerge to compare the source and mod version of a given item. The method returns true if the program was executed successfully,
 	 * and false if item does not have a source or a mod version (so there's nothing to compare). Throws an exception if the program does not exist.
@@ -0,0 +1,156 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sporemodder.file.shaders.CompiledShader;
+import sporemodder.file.shaders.FXCompiler;
+import sporemodder.file.shaders.FXCompiler.ShaderCompiler;
+import sporemodder.file.shaders.ShaderCompilationScheduler;
+import sporemodder.file.shaders.ShaderFragments;
+import sporemodder.file.shaders.VertexShaderFragment;
+
+/**
+ * Checks the shader compilation scheduler using a stub compiler instead of fxc.exe, so it can run on any system.
+ */
+public class ShaderCompilerTest {
+	
+	/** Writes the profile and the HLSL code as the "bytecode", and counts how many times it was called. */
+	private static class StubCompiler implements ShaderCompiler {
+		final AtomicInteger calls = new AtomicInteger();
+		final String identity;
+		
+		StubCompiler(String identity) {
+			this.identity = identity;
+		}
+		
+		@Override public void compile(String targetProfile, File sourceHLSL, File includePath, File outputFile) throws IOException {
+			calls.incrementAndGet();
+			byte[] hlsl = Files.readAllBytes(sourceHLSL.toPath());
+			byte[] profile = (targetProfile + "\n").getBytes(StandardCharsets.US_ASCII);
+			byte[] data = Arrays.copyOf(profile, profile.length + hlsl.length);
+			System.arraycopy(hlsl, 0, data, profile.length, hlsl.length);
+			Files.write(outputFile.toPath(), data);
+		}
+		
+		@Override public String getCacheIdentity() {
+			return identity;
+		}
+	}
+	
+	private static final int[][] BUILDS = {{0}, {1}, {0}, {0, 1}, {1}};
+	
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+	
+	private static ShaderFragments createFragments() {
+		ShaderFragments fragments = new ShaderFragments();
+		for (int i = 0; i < 2; ++i) {
+			VertexShaderFragment fragment = new VertexShaderFragment();
+			fragment.shaderName = "fragment" + i;
+			fragment.declareCode = "";
+			fragment.mainCode = "Current.position.x += " + i + ";";
+			fragments.vertexFragments.add(fragment);
+		}
+		return fragments;
+	}
+	
+	private static List<CompiledShader> compile(ShaderFragments fragments, StubCompiler compiler, int expectedCalls, int expectedCacheHits) throws IOException, InterruptedException {
+		FXCompiler.get().setCompiler(compiler);
+		compiler.calls.set(0);
+		
+		ShaderCompilationScheduler scheduler = new ShaderCompilationScheduler(fragments, true);
+		for (int i = 0; i < BUILDS.length; ++i) {
+			scheduler.add(BUILDS[i], "build" + i);
+		}
+		check(scheduler.getUniqueCount() == 3, "Expected 3 unique permutations, got " + scheduler.getUniqueCount());
+		
+		List<CompiledShader> result = scheduler.compile();
+		check(compiler.calls.get() == expectedCalls, "Expected " + expectedCalls + " compiler calls, got " + compiler.calls.get());
+		check(scheduler.getCacheHits() == expectedCacheHits, "Expected " + expectedCacheHits + " cache hits, got " + scheduler.getCacheHits());
+		
+		// One shader for every add(), in the same order
+		check(result.size() == BUILDS.length, "Expected " + BUILDS.length + " shaders, got " + result.size());
+		for (int i = 0; i < BUILDS.length; ++i) {
+			int[] indices = Arrays.copyOf(result.get(i).fragmentIndices, BUILDS[i].length);
+			check(Arrays.equals(indices, BUILDS[i]), "Shader " + i + " has the wrong fragments");
+		}
+		check(Arrays.equals(result.get(0).data, result.get(2).data), "Equal permutations have different bytecode");
+		check(!Arrays.equals(result.get(0).data, result.get(1).data), "Different permutations have the same bytecode");
+		check(new String(result.get(3).data, StandardCharsets.US_ASCII).startsWith(FXCompiler.VS_PROFILE + "\n"), "Wrong profile");
+		
+		return result;
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		MainApp.testInit();
+		
+		ShaderCompiler oldCompiler = FXCompiler.get().getCompiler();
+		File cacheFolder = new File(PathManager.get().getCacheFolder(), "shaders");
+		Set<String> oldCacheFiles = new HashSet<>();
+		if (cacheFolder.isDirectory()) {
+			oldCacheFiles.addAll(Arrays.asList(cacheFolder.list()));
+		}
+		
+		try {
+			ShaderFragments fragments = createFragments();
+			
+			// Without an identity, nothing is cached
+			StubCompiler uncached = new StubCompiler(null);
+			compile(fragments, uncached, 3, 0);
+			compile(fragments, uncached, 3, 0);
+			
+			// With an identity, the second time everything comes from the cache
+			String identity = "stub-" + System.nanoTime();
+			List<CompiledShader> compiled = compile(fragments, new StubCompiler(identity), 3, 0);
+			List<CompiledShader> cached = compile(fragments, new StubCompiler(identity), 0, 3);
+			for (int i = 0; i < BUILDS.length; ++i) {
+				check(Arrays.equals(compiled.get(i).data, cached.get(i).data), "Cached shader " + i + " is different");
+			}
+			
+			// A different compiler must not use those cached shaders
+			compile(fragments, new StubCompiler(identity + "-other"), 3, 0);
+			
+			System.out.println("All shader compilation checks passed.");
+		}
+		finally {
+			FXCompiler.get().setCompiler(oldCompiler);
+			
+			if (cacheFolder.isDirectory()) {
+				for (File file : cacheFolder.listFiles()) {
+					if (!oldCacheFiles.contains(file.getName())) {
+						file.delete();
+					}
+				}
+			}
+		}
+	}
+}
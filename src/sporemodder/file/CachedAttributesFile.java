@@ -0,0 +1,84 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file that reads its attributes (whether it exists, is a file or folder, its size and modification time) only once,
+ * when it is created. Converters call methods like {@link #isFile()} many times for the same file; when packing thousands of files,
+ * giving them one of these avoids asking the file system again every time.
+ * <p>
+ * The attributes are not updated if the file changes, so these objects should only be used for a single operation.
+ */
+public class CachedAttributesFile extends File {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/** The attributes of the file, or null if it does not exist. */
+	private final transient BasicFileAttributes attributes;
+	
+	public CachedAttributesFile(File file) {
+		super(file.getPath());
+		attributes = readAttributes(this);
+	}
+	
+	public CachedAttributesFile(File parent, String child) {
+		super(parent, child);
+		attributes = readAttributes(this);
+	}
+	
+	private static BasicFileAttributes readAttributes(File file) {
+		try {
+			return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		}
+		catch (IOException | InvalidPathException e) {
+			return null;
+		}
+	}
+	
+	@Override
+	public boolean exists() {
+		return attributes != null;
+	}
+	
+	@Override
+	public boolean isFile() {
+		return attributes != null && attributes.isRegularFile();
+	}
+	
+	@Override
+	public boolean isDirectory() {
+		return attributes != null && attributes.isDirectory();
+	}
+	
+	@Override
+	public long length() {
+		return attributes == null ? 0L : attributes.size();
+	}
+	
+	@Override
+	public long lastModified() {
+		return attributes == null ? 0L : attributes.lastModifiedTime().toMillis();
+	}
+}
@@ -69,6 +69,26 @@ public interface Converter {
 	 */
 	public boolean isEncoder(File file);
 	
+	/**
+	 * Returns the type IDs of all the resources this converter can be a decoder for, or null if that cannot be known in advance.
+	 * This is used to find the candidate decoders of a resource without asking every converter (see {@link ConverterTable});
+	 * {@link #isDecoder(ResourceKey)} is still called for the resources that have one of these types.
+	 * @return
+	 */
+	default int[] getDecoderTypeIDs() {
+		return null;
+	}
+	
+	/**
+	 * Returns the endings of the names of all the files this converter can be an encoder for (such as <code>".prop.prop_t"</code>),
+	 * or null if that cannot be known in advance. This is used to find the candidate encoders of a file without asking every converter
+	 * (see {@link ConverterTable}); {@link #isEncoder(File)} is still called for the files whose name ends with one of these.
+	 * @return
+	 */
+	default String[] getEncoderSuffixes() {
+		return null;
+	}
+	
 	/**
 	 * Returns a name for this decoder, such as "Properties File (.prop)"
 	 * @return
@@ -101,4 +121,23 @@ public interface Converter {
 	default void reset() {
 		
 	}
+	
+	/**
+	 * Whether the output of {@link #encode(File, DBPFPacker, int)} can be cached between packs. This is only possible if the
+	 * converter does not keep any state between files, if the output only depends on the contents of the input, the files it includes
+	 * with ArgScript, its path in the project and the names of the files next to it.
+	 * @return
+	 */
+	default boolean isCacheable() {
+		return false;
+	}
+	
+	/**
+	 * Whether {@link #encode(File, StreamWriter)} can be called from multiple threads at the same time. This is only possible if the
+	 * converter does not keep any state between files and does not change any global state, such as the settings of the {@link HashManager}.
+	 * @return
+	 */
+	default boolean isThreadSafe() {
+		return false;
+	}
 }
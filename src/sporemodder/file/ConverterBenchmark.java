@@ -0,0 +1,601 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import sporemodder.FileManager;
+import sporemodder.HashManager;
+import sporemodder.file.filestructures.MemoryStream;
+
+/**
+ * Measures the converters by doing decode-encode round trips over a corpus of original Spore files. For every file it
+ * measures how long decoding and encoding take, how many bytes are allocated, and whether the encoded data is identical
+ * to the original file. The results can be exported as JSON, so they can be compared between versions.
+ * <p>
+ * Files are processed one by one on the calling thread, so that the times are stable. The allocated bytes are the ones
+ * allocated by the calling thread; converters that use other threads internally allocate more than what is reported.
+ */
+public class ConverterBenchmark {
+
+	/** The result of the round trips of a single file. */
+	public static class FileResult {
+		public String path;
+		public String converter;
+		public long size;
+		/** Average time, in nanoseconds, of the measured iterations. */
+		public long decodeNanos;
+		public long encodeNanos;
+		/** Average bytes allocated in each measured iteration, or -1 if the JVM cannot measure it. */
+		public long allocatedBytes = -1;
+		public boolean isIdentical;
+		public String error;
+
+		public JSONObject toJSON() {
+			JSONObject json = new JSONObject();
+			json.put("path", path);
+			json.put("converter", converter);
+			json.put("size", size);
+			if (error != null) {
+				json.put("error", error);
+			} else {
+				json.put("decodeNanos", decodeNanos);
+				json.put("encodeNanos", encodeNanos);
+				json.put("allocatedBytes", allocatedBytes);
+				json.put("identical", isIdentical);
+			}
+			return json;
+		}
+	}
+
+	/** The results of all the files of a converter added together. */
+	public static class ConverterResult {
+		public int files;
+		public int identical;
+		public int failed;
+		public long bytes;
+		public long decodeNanos;
+		public long encodeNanos;
+		public long allocatedBytes;
+
+		public void add(FileResult result) {
+			++files;
+			if (result.error != null) {
+				++failed;
+				return;
+			}
+			if (result.isIdentical) ++identical;
+			bytes += result.size;
+			decodeNanos += result.decodeNanos;
+			encodeNanos += result.encodeNanos;
+			if (result.allocatedBytes != -1) allocatedBytes += result.allocatedBytes;
+		}
+
+		/** Returns how many megabytes of original data are decoded and encoded back per second. */
+		public double getThroughput() {
+			long nanos = decodeNanos + encodeNanos;
+			return nanos == 0 ? 0 : (bytes / (1024.0 * 1024.0)) / (nanos / 1e9);
+		}
+
+		public JSONObject toJSON() {
+			JSONObject json = new JSONObject();
+			json.put("files", files);
+			json.put("identical", identical);
+			json.put("different", files - identical - failed);
+			json.put("failed", failed);
+			json.put("bytes", bytes);
+			json.put("decodeNanos", decodeNanos);
+			json.put("encodeNanos", encodeNanos);
+			json.put("allocatedBytes", allocatedBytes);
+			json.put("throughputMBs", getThroughput());
+			return json;
+		}
+	}
+
+	/**
+	 * How long it takes to find the converters of every file, with the converter table and checking every converter in order.
+	 * Decoders are found for the original files; encoders are found for the files those decoders generate, the same way
+	 * packing does, and for them it also counts how many times the file attributes are read from the file system.
+	 */
+	public static class DispatchResult {
+		public int files;
+		public int matches;
+		/** Average time, in nanoseconds, of finding the decoders of all the files. */
+		public long tableNanos;
+		public long linearNanos;
+
+		/** How many unpacked files were used to find encoders, and how many of them have one. */
+		public int encoderFiles;
+		public int encoderMatches;
+		/** How many files got a different encoder or input file with the converter table than checking every converter. */
+		public int encoderMismatches;
+		/** How many files could not be encoded by the encoder that was found. */
+		public int encoderFailures;
+		/** Average time, in nanoseconds, of finding the encoders of all the unpacked files. */
+		public long encoderTableNanos;
+		public long encoderLinearNanos;
+		/** Average number of times the file attributes are read when finding the encoders of all the unpacked files. */
+		public long encoderTableStats;
+		public long encoderLinearStats;
+
+		/** Returns the given number of file attribute reads scaled to 10000 unpacked files. */
+		public double getStatsPer10k(long stats) {
+			return encoderFiles == 0 ? 0 : stats * 10000.0 / encoderFiles;
+		}
+
+		public JSONObject toJSON() {
+			JSONObject json = new JSONObject();
+			json.put("files", files);
+			json.put("matches", matches);
+			json.put("tableNanos", tableNanos);
+			json.put("linearNanos", linearNanos);
+			json.put("encoderFiles", encoderFiles);
+			json.put("encoderMatches", encoderMatches);
+			json.put("encoderMismatches", encoderMismatches);
+			json.put("encoderFailures", encoderFailures);
+			json.put("encoderTableNanos", encoderTableNanos);
+			json.put("encoderLinearNanos", encoderLinearNanos);
+			json.put("encoderTableStatsPer10k", getStatsPer10k(encoderTableStats));
+			json.put("encoderLinearStatsPer10k", getStatsPer10k(encoderLinearStats));
+			return json;
+		}
+	}
+
+	/** A file that counts how many times its attributes are read from the file system. */
+	private class CountingFile extends File {
+		private static final long serialVersionUID = 1L;
+
+		CountingFile(File file) {
+			super(file.getPath());
+		}
+
+		CountingFile(File parent, String child) {
+			super(parent, child);
+		}
+
+		@Override public boolean exists() {
+			++statCount;
+			return super.exists();
+		}
+
+		@Override public boolean isFile() {
+			++statCount;
+			return super.isFile();
+		}
+
+		@Override public boolean isDirectory() {
+			++statCount;
+			return super.isDirectory();
+		}
+
+		@Override public long length() {
+			++statCount;
+			return super.length();
+		}
+
+		@Override public long lastModified() {
+			++statCount;
+			return super.lastModified();
+		}
+	}
+
+	/** A file with cached attributes that counts its single read of the attributes. */
+	private class CountingCachedFile extends CachedAttributesFile {
+		private static final long serialVersionUID = 1L;
+
+		CountingCachedFile(File file) {
+			super(file);
+			++statCount;
+		}
+
+		CountingCachedFile(File parent, String child) {
+			super(parent, child);
+			++statCount;
+		}
+	}
+
+	private final List<Converter> converterList;
+	private final ConverterTable converters;
+	private int warmupIterations = 2;
+	private int iterations = 5;
+	/** How many times the file attributes have been read, in the dispatch benchmark. */
+	private long statCount;
+
+	public ConverterBenchmark(List<Converter> converters) {
+		this.converterList = converters;
+		this.converters = new ConverterTable(converters);
+	}
+
+	/**
+	 * Sets how many round trips of every file are done before measuring, so the code is already compiled when it is measured.
+	 * @param warmupIterations
+	 */
+	public void setWarmupIterations(int warmupIterations) {
+		this.warmupIterations = warmupIterations;
+	}
+
+	/**
+	 * Sets how many measured round trips of every file are done; the reported times are their average.
+	 * @param iterations
+	 */
+	public void setIterations(int iterations) {
+		this.iterations = Math.max(1, iterations);
+	}
+
+	/**
+	 * Returns the resource key of an original Spore file, taking the name of its folder as the group.
+	 * @param file
+	 * @return
+	 */
+	public static ResourceKey getKey(File file) {
+		ResourceKey key = new ResourceKey();
+		if (file.getParentFile() != null) {
+			key.parse(file.getParentFile().getName() + "!" + file.getName());
+		} else {
+			key.parse(file.getName());
+		}
+		return key;
+	}
+
+	/**
+	 * Does the round trips of a single file. Returns null if there is no converter that decodes the file.
+	 * @param file The original Spore file.
+	 * @param path The path that identifies the file in the results.
+	 * @return
+	 */
+	public FileResult run(File file, String path) {
+		ResourceKey key = getKey(file);
+		Converter decoder = converters.getDecoder(key);
+		if (decoder == null) return null;
+
+		FileResult result = new FileResult();
+		result.path = path;
+		result.converter = decoder.getName();
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocationBean = null;
+		if (threadBean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+			allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+			allocationBean.setThreadAllocatedMemoryEnabled(true);
+		}
+		long threadID = Thread.currentThread().getId();
+
+		try {
+			byte[] original = Files.readAllBytes(file.toPath());
+			result.size = original.length;
+
+			long[] times = new long[2];
+			long allocated = 0;
+			for (int i = 0; i < warmupIterations + iterations; ++i) {
+				boolean isMeasured = i >= warmupIterations;
+				long startAllocated = allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(threadID);
+
+				byte[] encoded = roundTrip(decoder, key, original, times);
+
+				if (isMeasured) {
+					if (allocationBean != null) allocated += allocationBean.getThreadAllocatedBytes(threadID) - startAllocated;
+					result.decodeNanos += times[0];
+					result.encodeNanos += times[1];
+					result.isIdentical = Arrays.equals(original, encoded);
+				}
+			}
+
+			result.decodeNanos /= iterations;
+			result.encodeNanos /= iterations;
+			if (allocationBean != null) result.allocatedBytes = allocated / iterations;
+		}
+		catch (Exception e) {
+			result.error = e.getMessage() == null ? e.toString() : e.getMessage();
+		}
+		return result;
+	}
+
+	/**
+	 * Decodes the data into a temporary folder and encodes the output back.
+	 * @param times Receives the nanoseconds spent decoding and encoding.
+	 * @return The encoded data.
+	 */
+	private byte[] roundTrip(Converter decoder, ResourceKey key, byte[] original, long[] times) throws Exception {
+		File folder = Files.createTempDirectory("smfx-benchmark").toFile();
+		try {
+			long startTime = System.nanoTime();
+			try (MemoryStream stream = new MemoryStream(original)) {
+				if (!decoder.decode(stream, folder, key)) {
+					throw new Exception("Trying to convert format '" + decoder.getName() + "' failed.");
+				}
+			}
+			times[0] = System.nanoTime() - startTime;
+
+			File[] outputs = folder.listFiles();
+			Arrays.sort(outputs);
+			for (File output : outputs) {
+				Converter encoder = converters.getEncoder(output);
+				if (encoder != null) {
+					startTime = System.nanoTime();
+					try (MemoryStream stream = new MemoryStream()) {
+						if (!encoder.encode(output, stream)) {
+							throw new Exception("Trying to encode format '" + encoder.getName() + "' failed.");
+						}
+						times[1] = System.nanoTime() - startTime;
+						return stream.toByteArray();
+					}
+				}
+			}
+			throw new Exception("The decoded file cannot be encoded back.");
+		}
+		finally {
+			FileManager.get().deleteDirectory(folder);
+		}
+	}
+
+	/**
+	 * Finds the encoder of an unpacked file the same way packing does: with the converter table, reading the
+	 * file attributes only once. Folders that are not converted are treated as nested files.
+	 * @param file
+	 * @param resolvedFile Receives the file that would be given to the encoder.
+	 * @return The encoder, or null if there is none.
+	 */
+	private Converter dispatchEncoderTable(File file, File[] resolvedFile) {
+		String name = file.getName();
+		file = new CountingCachedFile(file);
+		if (!file.isFile()) {
+			boolean isEncoded = false;
+			for (Converter converter : converters.getEncoderCandidates(name)) {
+				if (converter.isEncoder(file)) {
+					isEncoded = true;
+					break;
+				}
+			}
+			if (!isEncoded) {
+				file = new CountingCachedFile(file, name);
+				if (!file.exists()) return null;
+			}
+		}
+		resolvedFile[0] = file;
+		for (Converter converter : converters.getEncoderCandidates(name)) {
+			if (converter.isEncoder(file)) return converter;
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the encoder of an unpacked file the way packing used to do: checking every converter in order,
+	 * and asking the file system for the attributes every time a converter checks them.
+	 * @param file
+	 * @param resolvedFile Receives the file that would be given to the encoder.
+	 * @return The encoder, or null if there is none.
+	 */
+	private Converter dispatchEncoderLinear(File file, File[] resolvedFile) {
+		String name = file.getName();
+		file = new CountingFile(file);
+		if (!file.isFile()) {
+			boolean isEncoded = false;
+			for (Converter converter : converterList) {
+				if (converter.isEncoder(file)) {
+					isEncoded = true;
+					break;
+				}
+			}
+			if (!isEncoded) {
+				file = new CountingFile(file, name);
+				if (!file.exists()) return null;
+			}
+		}
+		resolvedFile[0] = file;
+		for (Converter converter : converterList) {
+			if (converter.isEncoder(file)) return converter;
+		}
+		return null;
+	}
+
+	/**
+	 * Decodes the original files into the given folder, one subfolder per group like in a project, and returns the
+	 * files that packing would find there. Files that have no decoder, or that cannot be decoded, are copied as they are.
+	 */
+	private List<File> unpack(List<File> files, File folder) throws IOException {
+		for (File file : files) {
+			ResourceKey key = getKey(file);
+			File groupFolder = new File(folder, HashManager.get().getFileName(key.getGroupID()));
+			groupFolder.mkdir();
+
+			Converter decoder = converters.getDecoder(key);
+			boolean isDecoded = false;
+			if (decoder != null) {
+				try (MemoryStream stream = new MemoryStream(Files.readAllBytes(file.toPath()))) {
+					isDecoded = decoder.decode(stream, groupFolder, key);
+				}
+				catch (Exception e) {
+					isDecoded = false;
+				}
+			}
+			if (!isDecoded) {
+				Files.copy(file.toPath(), new File(groupFolder, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		List<File> unpackedFiles = new ArrayList<>();
+		File[] groupFolders = folder.listFiles();
+		Arrays.sort(groupFolders);
+		for (File groupFolder : groupFolders) {
+			File[] groupFiles = groupFolder.listFiles();
+			Arrays.sort(groupFiles);
+			unpackedFiles.addAll(Arrays.asList(groupFiles));
+		}
+		return unpackedFiles;
+	}
+
+	/**
+	 * Measures how long it takes to find the converters of every file, comparing the converter table with checking
+	 * every converter until one accepts the file, which is what packing and unpacking used to do.
+	 * <p>
+	 * Decoders are found for the original files. Then the files are decoded into a temporary folder, and the encoders
+	 * of the decoded files are found like packing does; for them, the times and the number of file attribute reads are measured.
+	 * After measuring, every file is encoded once with the encoder that was found, to check that it is really able to encode it.
+	 * @param files The original Spore files.
+	 * @return
+	 * @throws IOException If the temporary folder with the decoded files cannot be created.
+	 */
+	public DispatchResult runDispatch(List<File> files) throws IOException {
+		List<ResourceKey> keys = new ArrayList<>();
+		for (File file : files) keys.add(getKey(file));
+
+		DispatchResult result = new DispatchResult();
+		result.files = keys.size();
+		for (int i = 0; i < warmupIterations + iterations; ++i) {
+			boolean isMeasured = i >= warmupIterations;
+
+			long startTime = System.nanoTime();
+			int matches = 0;
+			for (ResourceKey key : keys) {
+				if (converters.getDecoder(key) != null) ++matches;
+			}
+			if (isMeasured) result.tableNanos += System.nanoTime() - startTime;
+			result.matches = matches;
+
+			startTime = System.nanoTime();
+			for (ResourceKey key : keys) {
+				for (Converter converter : converterList) {
+					if (converter.isDecoder(key)) break;
+				}
+			}
+			if (isMeasured) result.linearNanos += System.nanoTime() - startTime;
+		}
+		result.tableNanos /= iterations;
+		result.linearNanos /= iterations;
+
+		File folder = Files.createTempDirectory("smfx-benchmark").toFile();
+		try {
+			List<File> unpackedFiles = unpack(files, folder);
+			result.encoderFiles = unpackedFiles.size();
+
+			File[] resolvedFile = new File[1];
+			for (int i = 0; i < warmupIterations + iterations; ++i) {
+				boolean isMeasured = i >= warmupIterations;
+
+				statCount = 0;
+				long startTime = System.nanoTime();
+				int matches = 0;
+				for (File file : unpackedFiles) {
+					if (dispatchEncoderTable(file, resolvedFile) != null) ++matches;
+				}
+				if (isMeasured) {
+					result.encoderTableNanos += System.nanoTime() - startTime;
+					result.encoderTableStats += statCount;
+				}
+				result.encoderMatches = matches;
+
+				statCount = 0;
+				startTime = System.nanoTime();
+				for (File file : unpackedFiles) {
+					dispatchEncoderLinear(file, resolvedFile);
+				}
+				if (isMeasured) {
+					result.encoderLinearNanos += System.nanoTime() - startTime;
+					result.encoderLinearStats += statCount;
+				}
+			}
+			result.encoderTableNanos /= iterations;
+			result.encoderLinearNanos /= iterations;
+			result.encoderTableStats /= iterations;
+			result.encoderLinearStats /= iterations;
+
+			// Both ways must give the same encoder, and the encoder must accept the file
+			File[] linearFile = new File[1];
+			for (File file : unpackedFiles) {
+				resolvedFile[0] = null;
+				linearFile[0] = null;
+				Converter encoder = dispatchEncoderTable(file, resolvedFile);
+				Converter linearEncoder = dispatchEncoderLinear(file, linearFile);
+				String resolvedPath = resolvedFile[0] == null ? null : resolvedFile[0].getPath();
+				String linearPath = linearFile[0] == null ? null : linearFile[0].getPath();
+
+				if (encoder != linearEncoder || (resolvedPath == null ? linearPath != null : !resolvedPath.equals(linearPath))) {
+					++result.encoderMismatches;
+				}
+				else if (encoder != null) {
+					try (MemoryStream stream = new MemoryStream()) {
+						if (!encoder.encode(resolvedFile[0], stream)) ++result.encoderFailures;
+					}
+					catch (Exception e) {
+						++result.encoderFailures;
+					}
+				}
+			}
+		}
+		finally {
+			FileManager.get().deleteDirectory(folder);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds together the results of every converter, sorted by the converter name.
+	 * @param results
+	 * @return
+	 */
+	public static Map<String, ConverterResult> summarize(List<FileResult> results) {
+		Map<String, ConverterResult> map = new TreeMap<>();
+		for (FileResult result : results) {
+			map.computeIfAbsent(result.converter, name -> new ConverterResult()).add(result);
+		}
+		return map;
+	}
+
+	/**
+	 * Generates the JSON report of the given results, with the totals of every converter and the result of every file.
+	 * @param version The program version that generated the results.
+	 * @param results
+	 * @return
+	 */
+	public JSONObject toJSON(String version, List<FileResult> results) {
+		JSONObject json = new JSONObject();
+		json.put("version", version);
+		json.put("javaVersion", System.getProperty("java.version"));
+		json.put("warmupIterations", warmupIterations);
+		json.put("iterations", iterations);
+
+		JSONObject convertersJson = new JSONObject();
+		for (Map.Entry<String, ConverterResult> entry : summarize(results).entrySet()) {
+			convertersJson.put(entry.getKey(), entry.getValue().toJSON());
+		}
+		json.put("converters", convertersJson);
+
+		JSONArray filesJson = new JSONArray();
+		for (FileResult result : results) {
+			filesJson.put(result.toJSON());
+		}
+		json.put("files", filesJson);
+
+		return json;
+	}
+
+}
@@ -0,0 +1,175 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dispatch table that finds the converters that can decode a resource or encode a file without asking every converter.
+ * Decoders are indexed by the type IDs returned by {@link Converter#getDecoderTypeIDs()}, and encoders by the file name
+ * endings returned by {@link Converter#getEncoderSuffixes()}, stored in a tree of reversed characters; converters that
+ * return null are always considered candidates.
+ * <p>
+ * The candidates are returned in the same order as the list the table was created with, so the priority of the converters
+ * does not change. Converters can have more conditions than the type or the name, so {@link Converter#isDecoder(ResourceKey)}
+ * and {@link Converter#isEncoder(File)} must still be called on the candidates.
+ * <p>
+ * Extensions depend on the names registered in the {@link sporemodder.HashManager}, so tables should be created when
+ * an operation starts instead of being kept forever.
+ */
+public class ConverterTable {
+	
+	/** A node of the reversed suffix tree; the path from the root to the node is a file name ending read backwards. */
+	private static class SuffixNode {
+		final Map<Character, SuffixNode> children = new HashMap<>();
+		/** The indices of the converters that have a suffix that ends in this node. */
+		final List<Integer> converters = new ArrayList<>();
+	}
+	
+	private final List<Converter> converters;
+	
+	/** For every indexed type ID, all the converters that might decode it, in order. */
+	private final Map<Integer, List<Converter>> decoders = new HashMap<>();
+	/** The converters that don't declare their type IDs; these are the candidates for types that are not indexed. */
+	private final List<Converter> genericDecoders = new ArrayList<>();
+	
+	private final SuffixNode suffixRoot = new SuffixNode();
+	/** The indices of the converters that don't declare their suffixes. */
+	private final BitSet genericEncoders = new BitSet();
+	
+	/**
+	 * Creates a dispatch table for the given converters. The order of the list is kept when returning the candidates. 
+	 * @param converters
+	 */
+	public ConverterTable(List<Converter> converters) {
+		this.converters = new ArrayList<>(converters);
+		
+		Map<Integer, BitSet> typeMap = new HashMap<>();
+		BitSet genericTypes = new BitSet();
+		
+		for (int i = 0; i < this.converters.size(); ++i) {
+			Converter converter = this.converters.get(i);
+			
+			int[] typeIDs = converter.getDecoderTypeIDs();
+			if (typeIDs == null) {
+				genericTypes.set(i);
+				genericDecoders.add(converter);
+			} else {
+				for (int typeID : typeIDs) {
+					typeMap.computeIfAbsent(typeID, k -> new BitSet()).set(i);
+				}
+			}
+			
+			String[] suffixes = converter.getEncoderSuffixes();
+			if (suffixes == null) {
+				genericEncoders.set(i);
+			} else {
+				for (String suffix : suffixes) {
+					SuffixNode node = suffixRoot;
+					for (int c = suffix.length() - 1; c >= 0; --c) {
+						node = node.children.computeIfAbsent(suffix.charAt(c), k -> new SuffixNode());
+					}
+					if (!node.converters.contains(i)) node.converters.add(i);
+				}
+			}
+		}
+		
+		for (Map.Entry<Integer, BitSet> entry : typeMap.entrySet()) {
+			BitSet indices = entry.getValue();
+			indices.or(genericTypes);
+			decoders.put(entry.getKey(), toList(indices));
+		}
+	}
+	
+	private List<Converter> toList(BitSet indices) {
+		List<Converter> list = new ArrayList<>(indices.cardinality());
+		for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+			list.add(converters.get(i));
+		}
+		return list;
+	}
+	
+	/**
+	 * Returns all the converters of this table, in order.
+	 * @return
+	 */
+	public List<Converter> getConverters() {
+		return Collections.unmodifiableList(converters);
+	}
+	
+	/**
+	 * Returns the converters that might be decoders for the given resource, in order. The returned list must not be modified.
+	 * @param key
+	 * @return
+	 */
+	public List<Converter> getDecoderCandidates(ResourceKey key) {
+		List<Converter> list = decoders.get(key.getTypeID());
+		return list == null ? genericDecoders : list;
+	}
+	
+	/**
+	 * Returns the converters that might be encoders for a file with the given name, in order.
+	 * @param fileName
+	 * @return
+	 */
+	public List<Converter> getEncoderCandidates(String fileName) {
+		BitSet indices = null;
+		SuffixNode node = suffixRoot;
+		for (int c = fileName.length() - 1; c >= 0; --c) {
+			node = node.children.get(fileName.charAt(c));
+			if (node == null) break;
+			
+			if (!node.converters.isEmpty()) {
+				if (indices == null) indices = (BitSet) genericEncoders.clone();
+				for (int i : node.converters) indices.set(i);
+			}
+		}
+		return toList(indices == null ? genericEncoders : indices);
+	}
+	
+	/**
+	 * Returns the first converter of the table that is capable of decoding the given resource, or null if there is none.
+	 * @param key
+	 * @return
+	 */
+	public Converter getDecoder(ResourceKey key) {
+		for (Converter converter : getDecoderCandidates(key)) {
+			if (converter.isDecoder(key)) return converter;
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the first converter of the table that is capable of encoding the given file, or null if there is none.
+	 * @param file
+	 * @return
+	 */
+	public Converter getEncoder(File file) {
+		for (Converter converter : getEncoderCandidates(file.getName())) {
+			if (converter.isEncoder(file)) return converter;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,142 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file;
+
+import java.util.Arrays;
+
+/**
+ * A set of resource keys stored as primitive values, without creating an object for every key. Group and instance IDs are
+ * packed into a <code>long</code> and stored together with the type ID in an open addressing hash table, so adding and 
+ * checking keys takes constant time even when the set has hundreds of thousands of keys, such as when unpacking
+ * all the packages of the game.
+ */
+public class ResourceKeySet {
+	
+	private static final int DEFAULT_CAPACITY = 1024;
+	
+	/** For every slot, <code>(groupID << 32) | instanceID</code>. */
+	private long[] groupInstances;
+	private int[] typeIDs;
+	private boolean[] used;
+	private int size;
+	
+	public ResourceKeySet() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a set that can store the given amount of keys without growing.
+	 * @param expectedSize
+	 */
+	public ResourceKeySet(int expectedSize) {
+		// Keep the table at most half full
+		int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+		groupInstances = new long[capacity];
+		typeIDs = new int[capacity];
+		used = new boolean[capacity];
+	}
+	
+	private static int hash(long groupInstance, int typeID) {
+		long h = (groupInstance ^ ((long) typeID * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+		return (int) (h ^ (h >>> 31));
+	}
+	
+	/** Returns the slot that contains the key, or the empty slot where it would be added. */
+	private int findSlot(long groupInstance, int typeID) {
+		int mask = used.length - 1;
+		int slot = hash(groupInstance, typeID) & mask;
+		while (used[slot] && (groupInstances[slot] != groupInstance || typeIDs[slot] != typeID)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	private static long pack(int groupID, int instanceID) {
+		return ((long) groupID << 32) | (instanceID & 0xFFFFFFFFL);
+	}
+	
+	private void grow() {
+		long[] oldGroupInstances = groupInstances;
+		int[] oldTypeIDs = typeIDs;
+		boolean[] oldUsed = used;
+		
+		groupInstances = new long[oldUsed.length * 2];
+		typeIDs = new int[oldUsed.length * 2];
+		used = new boolean[oldUsed.length * 2];
+		
+		for (int i = 0; i < oldUsed.length; ++i) {
+			if (oldUsed[i]) {
+				int slot = findSlot(oldGroupInstances[i], oldTypeIDs[i]);
+				used[slot] = true;
+				groupInstances[slot] = oldGroupInstances[i];
+				typeIDs[slot] = oldTypeIDs[i];
+			}
+		}
+	}
+	
+	/**
+	 * Adds the given key to the set.
+	 * @param groupID
+	 * @param instanceID
+	 * @param typeID
+	 * @return True if the key was added, false if it was already in the set.
+	 */
+	public boolean add(int groupID, int instanceID, int typeID) {
+		long groupInstance = pack(groupID, instanceID);
+		int slot = findSlot(groupInstance, typeID);
+		if (used[slot]) return false;
+		
+		used[slot] = true;
+		groupInstances[slot] = groupInstance;
+		typeIDs[slot] = typeID;
+		
+		if (++size * 2 > used.length) grow();
+		return true;
+	}
+	
+	/**
+	 * Adds the given key to the set.
+	 * @param key
+	 * @return True if the key was added, false if it was already in the set.
+	 */
+	public boolean add(ResourceKey key) {
+		return add(key.getGroupID(), key.getInstanceID(), key.getTypeID());
+	}
+	
+	public boolean contains(int groupID, int instanceID, int typeID) {
+		return used[findSlot(pack(groupID, instanceID), typeID)];
+	}
+	
+	public boolean contains(ResourceKey key) {
+		return contains(key.getGroupID(), key.getInstanceID(), key.getTypeID());
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+}
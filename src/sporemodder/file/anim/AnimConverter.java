@@ -101,6 +101,11 @@ public class AnimConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == TYPE_ID;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {TYPE_ID};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -113,6 +118,12 @@ public class AnimConverter implements Converter {
 		checkExtensions();
 		return file.isFile() && file.getName().endsWith("." + extension + ".anim_t");
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return new String[] {"." + extension + ".anim_t"};
+	}
 
 	@Override
 	public String getName() {
@@ -125,6 +136,16 @@ public class AnimConverter implements Converter {
 		return false;
 	}
 
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public int getOriginalTypeID(String extension) {
 		checkExtensions();
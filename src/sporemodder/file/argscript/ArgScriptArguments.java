@@ -21,19 +21,20 @@ package sporemodder.file.argscript;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
-import java.util.TreeMap;
 
 /** An unmodifiable list with the arguments of a line or option .*/
 public class ArgScriptArguments {
 	int splitIndex;
 	List<String> arguments;
-	List<Integer> positions;
-	List<Integer> endPositions;
+	/** The start positions of the words of the line; the ones of these arguments start at <code>positionsOffset</code>. */
+	int[] positions;
+	/** The end positions of the words of the line; the ones of these arguments start at <code>positionsOffset</code>. */
+	int[] endPositions;
+	int positionsOffset;
 	int numArguments;
 	ArgScriptStream<?> stream;
 	TextPositionMap tracker;
-	TreeMap<Integer, Integer> originalToText;
+	TextPositionMap originalToText;
 	
 	public ArgScriptStream<?> getStream() {
 		return stream;
@@ -48,48 +49,28 @@ public class ArgScriptArguments {
 	}
 	
 	public int getStartPosition() {
-		return positions.get(0);
+		return positions[positionsOffset];
 	}
 	public int getEndPosition() {
-		return endPositions.get(endPositions.size() - 1);
+		return endPositions[positionsOffset + numArguments - 1];
 	}
 	public int getPosition(int index) {
-		return positions.get(index);
+		return positions[positionsOffset + index];
 	}
 	public int getEndPosition(int index) {
-		return endPositions.get(index);
+		return endPositions[positionsOffset + index];
 	}
 	public int getRealPosition(int position) {
 		return tracker == null ? position : tracker.getRealPosition(position);
 	}
 	
 	public void addHyperlink(String type, Object object, int index) {
-		stream.addHyperlink(type, object, positions.get(index), endPositions.get(index));
+		stream.addHyperlink(type, object, getPosition(index), getEndPosition(index));
 	}
 	
 	// Converts a position in the original text to a position in the splits text
 	public int toTextPosition(int position) {
-		Map.Entry<Integer, Integer> entry = originalToText.floorEntry(position);
-		
-		// If there are no entries until our position, just return what the user gave
-		if (entry == null) {
-			return position;
-		}
-		
-		// If what we have found is the exact position, just return it
-		if (entry.getKey() == position) {
-			return entry.getValue();
-		}
-		else {
-			// The closest original position
-			int floorOriginal = entry.getValue();
-			
-			// How much until the position the user asked for?
-			int difference = position - entry.getKey();
-			
-			// Since we used floorEntry, we know we can safely do this because there are no mappings in between
-			return floorOriginal + difference;
-		}
+		return originalToText.getRealPosition(position);
 	}
 	
 	public int size() {
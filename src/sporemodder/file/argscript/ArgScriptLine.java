@@ -20,9 +20,9 @@
 package sporemodder.file.argscript;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.TreeMap;
 
 import sporemodder.file.DocumentError;
 import sporemodder.file.DocumentException;
@@ -72,16 +72,48 @@ public final class ArgScriptLine {
 	final TextPositionMap positionTracker = new TextPositionMap();
 	
 	/** A list that keeps track of the position in the text of all the words in the 'splits' list. */
-	private final List<Integer> splitPositions = new ArrayList<Integer>();
+	private final PositionList splitPositions = new PositionList();
 	
 	/** Sometimes we need to operate on the text positions and not the original ones. */
-	private final TreeMap<Integer, Integer> originalToText = new TreeMap<Integer, Integer>();
+	private final TextPositionMap originalToText = new TextPositionMap();
 	
 	/** Similar to splitPositions, but this is for the end of the splits. */
-	private final List<Integer> endPositions = new ArrayList<Integer>();
+	private final PositionList endPositions = new PositionList();
 	
 	private final LineLexer lexer = new LineLexer(this);
 	
+	/** A list of positions stored as ints, so they don't need to be boxed; a line is parsed for every line of every file. */
+	private static final class PositionList {
+		int[] array = new int[16];
+		int size;
+		
+		void add(int value) {
+			if (size == array.length) {
+				array = Arrays.copyOf(array, size * 2);
+			}
+			array[size++] = value;
+		}
+		
+		int get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+			}
+			return array[index];
+		}
+		
+		int size() {
+			return size;
+		}
+		
+		boolean isEmpty() {
+			return size == 0;
+		}
+		
+		void clear() {
+			size = 0;
+		}
+	}
+	
 	
 	public ArgScriptLine(ArgScriptStream<?> stream) {
 		this.stream = stream;
@@ -239,8 +271,9 @@ public final class ArgScriptLine {
 	public void getSplitsAsArguments(ArgScriptArguments args) {
 		args.arguments = Collections.unmodifiableList(splits);
 		args.numArguments = args.arguments.size();
-		args.positions = splitPositions.subList(0, args.numArguments);
-		args.endPositions = endPositions.subList(0, args.numArguments);
+		args.positions = splitPositions.array;
+		args.endPositions = endPositions.array;
+		args.positionsOffset = 0;
 		args.stream = stream;
 		args.tracker = positionTracker;
 		args.originalToText = originalToText;
@@ -293,8 +326,9 @@ public final class ArgScriptLine {
 		else {
 			args.arguments = Collections.unmodifiableList(splits.subList(1, numArguments + 1));
 			args.numArguments = args.arguments.size();
-			args.positions = splitPositions.subList(1, 1 + args.numArguments);
-			args.endPositions = endPositions.subList(1, 1 + args.numArguments);
+			args.positions = splitPositions.array;
+			args.endPositions = endPositions.array;
+			args.positionsOffset = 1;
 			args.stream = stream;
 			args.tracker = positionTracker;
 			args.originalToText = originalToText;
@@ -371,8 +405,9 @@ public final class ArgScriptLine {
 				else {
 					args.arguments = Collections.unmodifiableList(splits.subList(option.splitIndex + 1, option.splitIndex + option.numArguments + 1));
 					args.numArguments = args.arguments.size();
-					args.positions = splitPositions.subList(option.splitIndex + 1, option.splitIndex + 1 + args.numArguments);
-					args.endPositions = endPositions.subList(option.splitIndex + 1, option.splitIndex + 1 + args.numArguments);
+					args.positions = splitPositions.array;
+					args.endPositions = endPositions.array;
+					args.positionsOffset = option.splitIndex + 1;
 					args.stream = stream;
 					args.tracker = positionTracker;
 					args.originalToText = originalToText;
@@ -517,7 +552,7 @@ public final class ArgScriptLine {
 	private static class LineLexer {
 		
 		private ArgScriptLine line;
-		private WordSplitLexer ws;
+		private final WordSplitLexer ws = new WordSplitLexer("");
 		
 		private LineLexer(ArgScriptLine line) {
 			this.line = line;
@@ -526,26 +561,26 @@ public final class ArgScriptLine {
 		
 		private void parse(String text) throws DocumentException {
 			
-			ws = new WordSplitLexer(text);
+			ws.setText(text);
 			
 			Option option = null;
 			String optionKeyword = null;
 			
 			//TODO accept (0,1,2)(0,3,2)
 			
-			while (ws.index < ws.chars.length) {
+			while (ws.index < ws.length) {
 				ws.skipWhitespaces();
-				if (ws.index == ws.chars.length) {
+				if (ws.index == ws.length) {
 					break;
 				}
 				
 				int splitPosition = line.getRealPosition(ws.index);
 				line.splitPositions.add(splitPosition);
-				line.originalToText.put(splitPosition, ws.index);
+				line.originalToText.addEntry(splitPosition, ws.index);
 				
 				if (ws.chars[ws.index] == '-') {
 					// If we have reached the end of the line, throw an error
-					if (ws.index+1 == ws.chars.length) {
+					if (ws.index+1 == ws.length) {
 						throw new DocumentException(new DocumentError("Expected a number or a name after - sign.", ws.index, ws.index+1));
 					}
 					// If the next character is whitespace (so no number and no option)
@@ -554,7 +589,7 @@ public final class ArgScriptLine {
 					}
 					
 					// If this is really an option, we need at least one alphabetic character
-					if (ws.index+1 < ws.chars.length && Character.isAlphabetic(ws.chars[ws.index+1])) {
+					if (ws.index+1 < ws.length && Character.isAlphabetic(ws.chars[ws.index+1])) {
 						
 						// Is this the first option we find?
 						if (option == null) {
@@ -578,19 +613,18 @@ public final class ArgScriptLine {
 						option = line.new Option();
 						option.splitIndex = line.splits.size();
 						
-						StringBuilder sb = new StringBuilder();
 						// Read the keyword
-						while (ws.index < ws.chars.length && (ws.chars[ws.index] == '_' || Character.isAlphabetic(ws.chars[ws.index]) || Character.isDigit(ws.chars[ws.index]))) {
-							sb.append(ws.chars[ws.index]);
+						int keywordStart = ws.index;
+						while (ws.index < ws.length && (ws.chars[ws.index] == '_' || Character.isAlphabetic(ws.chars[ws.index]) || Character.isDigit(ws.chars[ws.index]))) {
 							ws.index++;
 						}
-						optionKeyword = sb.toString();
+						optionKeyword = new String(ws.chars, keywordStart, ws.index - keywordStart);
 						
 						// We don't do the normal parsing, since we just parsed the keyword.
 						splitPosition = line.getRealPosition(ws.index);
-						line.splits.add("-" + sb.toString());
+						line.splits.add(new String(ws.chars, keywordStart - 1, ws.index - keywordStart + 1));
 						line.endPositions.add(splitPosition);
-						line.originalToText.put(splitPosition, ws.index);
+						line.originalToText.addEntry(splitPosition, ws.index);
 						continue;
 					}
 				}
@@ -599,7 +633,7 @@ public final class ArgScriptLine {
 				
 				splitPosition = line.getRealPosition(ws.index);
 				line.endPositions.add(splitPosition);
-				line.originalToText.put(splitPosition, ws.index);
+				line.originalToText.addEntry(splitPosition, ws.index);
 			}
 			
 			// Add the last option, if any
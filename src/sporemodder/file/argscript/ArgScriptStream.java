@@ -27,8 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 import sporemodder.HashManager;
 import sporemodder.file.DocumentError;
@@ -72,7 +71,8 @@ public class ArgScriptStream<T> {
 	public static final String SYNTAX_ENUM = "argscript-enum";
 	public static final String SYNTAX_VARIABLE = "argscript-variable";
 	
-	private static final Pattern NEWLINE_PATTERN = Pattern.compile("\\R");
+	/** Receives the files included by the streams processed in each thread; see {@link #setIncludeListener(Consumer)}. */
+	private static final ThreadLocal<Consumer<File>> includeListener = new ThreadLocal<>();
 	
 	/** The folder where this stream is being processed. */
 	private File folder;
@@ -254,6 +254,11 @@ public class ArgScriptStream<T> {
 	
 	private String removeComments(String line, TextPositionMap tracker) {
 		
+		// Most lines don't have comments, there's no need to copy them
+		if (line.indexOf('#') == -1) {
+			return insideBlockComment ? "" : line;
+		}
+		
 		/** The index of the # character. */
 		int index = -1;
 		
@@ -389,17 +394,48 @@ public class ArgScriptStream<T> {
 		}
 	}
 	
-	public void process(String text) {
-		Matcher matcher = NEWLINE_PATTERN.matcher(text);
-		List<String> lines = new ArrayList<String>();
+	/**
+	 * The text of a document split into lines. Splitting does not depend on the stream, so it can be done
+	 * in any thread and then processed with {@link ArgScriptStream#process(TokenizedText)}.
+	 */
+	public static class TokenizedText {
+		private final String text;
+		private final List<String> lines = new ArrayList<String>();
+		private final List<Integer> linePositions = new ArrayList<Integer>();
+		private final List<Integer> lineEnds = new ArrayList<Integer>();
+		
+		private TokenizedText(String text) {
+			this.text = text;
+		}
 		
-		List<Integer> linePositions = new ArrayList<Integer>();
-		List<Integer> lineEnds = new ArrayList<Integer>();
+		public String getText() {
+			return text;
+		}
+	}
+	
+	/**
+	 * Splits the text into lines. This does not modify any stream, so it can be called from any thread.
+	 * @param text
+	 * @return
+	 */
+	public static TokenizedText tokenize(String text) {
+		TokenizedText tokens = new TokenizedText(text);
+		List<String> lines = tokens.lines;
+		List<Integer> linePositions = tokens.linePositions;
+		List<Integer> lineEnds = tokens.lineEnds;
 		linePositions.add(0);
 		
-		while (matcher.find()) {
-			linePositions.add(matcher.end());
-			lineEnds.add(matcher.start());
+		// Same line breaks as the \R regular expression, but without using a matcher
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u000B' || c == '\f' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				lineEnds.add(i);
+				if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+					i++;
+				}
+				linePositions.add(i + 1);
+			}
 		}
 		
 		lineEnds.add(text.length());
@@ -408,6 +444,23 @@ public class ArgScriptStream<T> {
 			lines.add(text.substring(linePositions.get(i), lineEnds.get(i)));
 		}
 		
+		return tokens;
+	}
+	
+	public void process(String text) {
+		process(tokenize(text));
+	}
+	
+	/**
+	 * Processes a text that has already been split into lines with {@link #tokenize(String)}.
+	 * @param tokens
+	 */
+	public void process(TokenizedText tokens) {
+		String text = tokens.text;
+		List<String> lines = tokens.lines;
+		List<Integer> linePositions = tokens.linePositions;
+		List<Integer> lineEnds = tokens.lineEnds;
+		
 		if (!isIncluding) {
 			resetStatus();
 			
@@ -449,6 +502,34 @@ public class ArgScriptStream<T> {
 		}
 	}
 	
+	/**
+	 * Sets a listener that receives every file that the streams processed in the current thread try to include, even if it does not exist,
+	 * or null to remove it. This is used to know which files a file depends on when packing. Code that processes streams in other
+	 * threads must set the listener of the calling thread (see {@link #getIncludeListener()}) in those threads.
+	 * @param listener
+	 */
+	public static void setIncludeListener(Consumer<File> listener) {
+		if (listener == null) includeListener.remove();
+		else includeListener.set(listener);
+	}
+	
+	/**
+	 * Returns the include listener of the current thread, or null if there is none.
+	 * @return
+	 */
+	public static Consumer<File> getIncludeListener() {
+		return includeListener.get();
+	}
+	
+	/**
+	 * Notifies the include listener, if any, that the given file is being included.
+	 * @param file
+	 */
+	public static void notifyInclude(File file) {
+		Consumer<File> listener = includeListener.get();
+		if (listener != null) listener.accept(file);
+	}
+	
 	// Similar to process, but this restores the line number, errors, etc after it
 	public void includeFile(File file) throws Exception {
 		
@@ -469,6 +550,8 @@ public class ArgScriptStream<T> {
 		boolean oldIncluding = isIncluding;
 		isIncluding = true;
 		TextPositionMap oldCommentTracker = commentTracker;
+		// The included lines must not modify the comment tracker of the line that is being parsed
+		commentTracker = null;
 		int oldErrorsSize = errors.size();
 		int oldWarningsSize = warnings.size();
 		ArgScriptLine oldLine = line;
@@ -501,7 +584,12 @@ public class ArgScriptStream<T> {
 	
 	public boolean processLine(String text) {
 		
-		commentTracker = new TextPositionMap();
+		// The trackers are reused for every line
+		if (commentTracker == null) {
+			commentTracker = new TextPositionMap();
+		} else {
+			commentTracker.clear();
+		}
 		text = removeComments(text, commentTracker);
 		
 		if (text == null) return false;
@@ -550,15 +638,19 @@ public class ArgScriptStream<T> {
 			}
 		}
 		
-		TextPositionMap positionTracker = new TextPositionMap();
-		positionTracker.addAll(commentTracker);
-		StringBuilder dst = new StringBuilder();
-		if (!replaceVariables(text.toCharArray(), dst, commentTracker, positionTracker)) {
-			return false;
+		// Only replace variables if there are any, so the text doesn't have to be copied
+		TextPositionMap positionTracker = commentTracker;
+		if (text.indexOf('$') != -1) {
+			positionTracker = new TextPositionMap();
+			positionTracker.addAll(commentTracker);
+			StringBuilder dst = new StringBuilder();
+			if (!replaceVariables(text.toCharArray(), dst, commentTracker, positionTracker)) {
+				return false;
+			}
+			
+			text = dst.toString();
 		}
 		
-		text = dst.toString();
-		
 		// Only parse it if there are no errors
 		if (line.fromLine(text, positionTracker)) {
 			
@@ -180,7 +180,7 @@ public class ArgScriptWriter {
 		HashManager hasher = HashManager.get();
 		for (float v : values) {
 			if (!firstArgument) sb.append(' ');
-			sb.append(hasher.floatToString(v));
+			hasher.appendFloat(sb, v);
 			firstArgument = false;
 		}
 		return this;
@@ -190,7 +190,7 @@ public class ArgScriptWriter {
 		HashManager hasher = HashManager.get();
 		for (float v : values) {
 			if (!firstArgument) sb.append(' ');
-			sb.append(hasher.floatToString(v));
+			hasher.appendFloat(sb, v);
 			firstArgument = false;
 		}
 		return this;
@@ -214,7 +214,7 @@ public class ArgScriptWriter {
 		sb.append('(');
 		for (float v : values) {
 			if (!firstValue) sb.append(", ");
-			sb.append(hasher.floatToString(v));
+			hasher.appendFloat(sb, v);
 			firstValue = false;
 		}
 		sb.append(')');
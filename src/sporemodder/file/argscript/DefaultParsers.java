@@ -46,6 +46,7 @@ class DefaultParsers {
 					file = new File(stream.getFolder(), path);
 				}
 				
+				ArgScriptStream.notifyInclude(file);
 				if (file.exists()) {
 					try {
 						stream.includeFile(file);
@@ -75,6 +76,7 @@ class DefaultParsers {
 					file = new File(stream.getFolder(), path);
 				}
 				
+				ArgScriptStream.notifyInclude(file);
 				if (file.exists()) {
 					try {
 						stream.includeFile(file);
@@ -336,6 +338,7 @@ class DefaultParsers {
 							newArgs.arguments = Arrays.asList(text);
 							newArgs.positions = args.positions;
 							newArgs.endPositions = args.endPositions;
+							newArgs.positionsOffset = args.positionsOffset;
 							newArgs.originalToText = args.originalToText;
 							newArgs.stream = args.stream;
 							newArgs.numArguments = 1;
@@ -18,50 +18,102 @@
 ****************************************************************************/
 package sporemodder.file.argscript;
 
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Arrays;
 
 /**
  * A class used to keep track of the original text positions so we can replace variables, remove comments, etc
  * and still be able to correctly show errors.
+ * <p>
+ * The entries are kept in two sorted int arrays: this is used for every line that is parsed, and entries are almost always
+ * added in increasing order, so it is much cheaper than a map of boxed integers.
  */
 public class TextPositionMap {
-
+	
+	/** The positions in the changed text, sorted. */
+	private int[] positions = new int[4];
 	/** Maps the position to the original position before doing any changes to the text. */
-	private final TreeMap<Integer, Integer> map = new TreeMap<Integer, Integer>();
+	private int[] realPositions = new int[4];
+	private int size;
 	
 	public void addAll(TextPositionMap other) {
-		map.putAll(other.map);
+		if (size == 0) {
+			ensureCapacity(other.size);
+			System.arraycopy(other.positions, 0, positions, 0, other.size);
+			System.arraycopy(other.realPositions, 0, realPositions, 0, other.size);
+			size = other.size;
+		}
+		else {
+			for (int i = 0; i < other.size; ++i) {
+				addEntry(other.positions[i], other.realPositions[i]);
+			}
+		}
 	}
 	
 	public void clear() {
-		map.clear();
+		size = 0;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (capacity > positions.length) {
+			int newCapacity = Math.max(capacity, positions.length * 2);
+			positions = Arrays.copyOf(positions, newCapacity);
+			realPositions = Arrays.copyOf(realPositions, newCapacity);
+		}
 	}
 	
 	public void addEntry(int position, int realPosition) {
-		map.put(position, realPosition);
+		// Most of the time entries are added in order
+		if (size == 0 || position > positions[size - 1]) {
+			ensureCapacity(size + 1);
+			positions[size] = position;
+			realPositions[size] = realPosition;
+			++size;
+			return;
+		}
+		
+		int index = Arrays.binarySearch(positions, 0, size, position);
+		if (index >= 0) {
+			realPositions[index] = realPosition;
+		}
+		else {
+			index = -index - 1;
+			ensureCapacity(size + 1);
+			System.arraycopy(positions, index, positions, index + 1, size - index);
+			System.arraycopy(realPositions, index, realPositions, index + 1, size - index);
+			positions[index] = position;
+			realPositions[index] = realPosition;
+			++size;
+		}
 	}
 	
 	public int getRealPosition(int position) {
-		Map.Entry<Integer, Integer> entry = map.floorEntry(position);
+		// Find the closest entry that is not after our position
+		int index = Arrays.binarySearch(positions, 0, size, position);
+		if (index < 0) {
+			index = -index - 2;
+		}
 		
 		// If there are no entries until our position, just return what the user gave
-		if (entry == null) {
+		if (index < 0) {
 			return position;
 		}
 		
 		// If what we have found is the exact position, just return it
-		if (entry.getKey() == position) {
-			return entry.getValue();
+		if (positions[index] == position) {
+			return realPositions[index];
 		}
 		else {
 			// The closest original position
-			int floorOriginal = entry.getValue();
+			int floorOriginal = realPositions[index];
 			
 			// How much until the position the user asked for?
-			int difference = position - entry.getKey();
+			int difference = position - positions[index];
 			
-			// Since we used floorEntry, we know we can safely do this because there are no mappings in between
+			// Since we used the floor entry, we know we can safely do this because there are no mappings in between
 			return floorOriginal + difference;
 		}
 	}
@@ -23,26 +23,44 @@ import sporemodder.file.DocumentException;
 
 public class WordSplitLexer {
 	char[] chars;
+	/** How many characters of the array are part of the text. */
+	int length;
 	int index;
 	
 	public WordSplitLexer(String text) {
 		chars = text.toCharArray();
+		length = chars.length;
 		index = 0;
 	}
 	
 	public WordSplitLexer(char[] chars, int index) {
 		this.chars = chars;
+		this.length = chars.length;
 		this.index = index;
 	}
 	
+	/**
+	 * Starts reading the given text from the beginning. The character array of this lexer is reused if it's big enough,
+	 * so the same lexer can be used to read many lines without creating new arrays.
+	 * @param text
+	 */
+	void setText(String text) {
+		length = text.length();
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
+		}
+		text.getChars(0, length, chars, 0);
+		index = 0;
+	}
+	
 	public void skipWhitespaces() {
-		while (index < chars.length && Character.isWhitespace(chars[index])) {
+		while (index < length && Character.isWhitespace(chars[index])) {
 			index++;
 		}
 	}
 	
 	public boolean isEOF() {
-		return index >= chars.length;
+		return index >= length;
 	}
 	
 	public char peekChar() {
@@ -55,7 +73,7 @@ public class WordSplitLexer {
 	public String nextParameter() throws DocumentException {
 		skipWhitespaces();
 		
-		if (index >= chars.length) {
+		if (index >= length) {
 			return null;
 		}
 		
@@ -64,7 +82,7 @@ public class WordSplitLexer {
 		// We want to keep parenthesis in functions, which start with a letter
 		boolean keepParenthesis = Character.isAlphabetic(chars[index]);
 		
-		while (index < chars.length && !Character.isWhitespace(chars[index])) {
+		while (index < length && !Character.isWhitespace(chars[index])) {
 			// We want to keep parenthesis in functions, which start with a letter
 			if (!parseBasic(sb, keepParenthesis, 0, true)) break;
 		}
@@ -75,16 +93,26 @@ public class WordSplitLexer {
 	public String nextWord() throws DocumentException {
 		skipWhitespaces();
 		
-		if (index >= chars.length) {
+		if (index >= length) {
 			return null;
 		}
 		
+		// Most words don't have quotes nor parenthesis, so they can be taken directly from the text
+		int startIndex = index;
+		while (index < length && !Character.isWhitespace(chars[index]) && chars[index] != '"' && chars[index] != '(') {
+			index++;
+		}
+		if (index == length || Character.isWhitespace(chars[index])) {
+			return new String(chars, startIndex, index - startIndex);
+		}
+		index = startIndex;
+		
 		StringBuilder sb = new StringBuilder();
 		// Read the keyword
 		// We want to keep parenthesis in functions, which start with a letter
 		boolean keepParenthesis = Character.isAlphabetic(chars[index]);
 		
-		while (index < chars.length && !Character.isWhitespace(chars[index])) {
+		while (index < length && !Character.isWhitespace(chars[index])) {
 			// We want to keep parenthesis in functions, which start with a letter
 			if (!parseBasic(sb, keepParenthesis, 0, false)) break;
 		}
@@ -93,7 +121,7 @@ public class WordSplitLexer {
 	}
 	
 	public void skipUnreadable() {
-		while (index < chars.length && !isReadableWord(chars[index])) {
+		while (index < length && !isReadableWord(chars[index])) {
 			++index;
 		}
 	}
@@ -106,14 +134,14 @@ public class WordSplitLexer {
 	public String nextReadableWord() throws DocumentException {
 		skipWhitespaces();
 		
-		if (index >= chars.length) {
+		if (index >= length) {
 			return null;
 		}
 		
 		
 		StringBuilder sb = new StringBuilder();
 		
-		while (index < chars.length && isReadableWord(chars[index])) {
+		while (index < length && isReadableWord(chars[index])) {
 			sb.append(chars[index]);
 			index++;
 		}
@@ -167,7 +195,7 @@ public class WordSplitLexer {
 		
 		// We have already parsed the ( in a previous method
 		
-		while (index < chars.length) {
+		while (index < length) {
 			if (chars[index] == ')') {
 				parenthesisClosed = true;
 				index++;
@@ -189,7 +217,7 @@ public class WordSplitLexer {
 		
 		// We have already parsed the " in a previous method
 		
-		while (index < chars.length) {
+		while (index < length) {
 			if (chars[index] == '"') {
 				quoteClosed = true;
 				index++;
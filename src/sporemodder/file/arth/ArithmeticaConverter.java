@@ -93,6 +93,11 @@ public class ArithmeticaConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == TYPE_ID;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {TYPE_ID};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -105,6 +110,12 @@ public class ArithmeticaConverter implements Converter {
 		checkExtensions();
 		return file.isFile() && file.getName().endsWith("." + extension + ".arth_t");
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return new String[] {"." + extension + ".arth_t"};
+	}
 
 	@Override
 	public String getName() {
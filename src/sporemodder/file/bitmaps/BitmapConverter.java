@@ -108,6 +108,11 @@ public class BitmapConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return SUPPORTED_TYPES.contains(key.getTypeID());
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return SUPPORTED_TYPES.stream().mapToInt(Integer::intValue).toArray();
+	}
 
 	private void checkExtensions() {
 		if (EXTENSIONS.isEmpty()) {
@@ -125,6 +130,12 @@ public class BitmapConverter implements Converter {
 		}
 		return false;
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return EXTENSIONS.stream().map(extension -> "." + extension + ".png").toArray(String[]::new);
+	}
 
 	@Override
 	public String getName() {
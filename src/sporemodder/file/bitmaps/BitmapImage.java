@@ -21,16 +21,15 @@ package sporemodder.file.bitmaps;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import sporemodder.file.filestructures.FileStream;
-import sporemodder.file.filestructures.FixedMemoryStream;
 import sporemodder.file.filestructures.StreamReader;
 import sporemodder.file.filestructures.StreamWriter;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.PixelWriter;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
 import sporemodder.FileManager;
 import sporemodder.HashManager;
 
@@ -95,49 +94,64 @@ public class BitmapImage {
 		return image;
 	}
 
-	private void processImage(StreamReader stream, PixelWriter dst) throws IOException {
+	/** Images with at least this amount of pixels are converted using multiple threads. */
+	private static final int PARALLEL_PIXEL_COUNT = 256 * 256;
+	
+	private void forEachRow(IntConsumer action) {
+		IntStream rows = IntStream.range(0, height);
+		if (width * height >= PARALLEL_PIXEL_COUNT) rows = rows.parallel();
+		rows.forEach(action);
+	}
+	
+	/** Converts a 16-bit channel into 8 bits, rounding to the nearest value. */
+	private static int to8Bit(byte[] data, int offset) {
+		int value = (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8);
+		return (value + 128) / 257;
+	}
+	
+	/** Converts the image data into non-premultiplied ARGB pixels. */
+	private int[] processImage(byte[] data) {
+		int[] pixels = new int[width * height];
+		
 		if (type == TYPE_1BIT) {
-			for (int j = 0; j < height; ++j) {
+			forEachRow(j -> {
+				int offset = j * (width / 8);
 				for (int i = 0; i < width; i += 8) {
-					int data = stream.readUByte();
-					
+					int bits = data[offset++];
 					for (int k = 0; k < 8; ++k) {
-						dst.setColor(i + k, j, Color.gray((data & 1) != 0 ? 1.0 : 0.0));
-						data >>= 1;
+						pixels[j * width + i + k] = (bits & 1) != 0 ? 0xFFFFFFFF : 0xFF000000;
+						bits >>= 1;
 					}
 				}
-			}
+			});
 		}
 		else if (type == TYPE_8BIT) {
-			for (int j = 0; j < height; ++j) {
-				for (int i = 0; i < width; ++i) {
-					int data = stream.readUByte();
-					dst.setColor(i, j, Color.gray(data / 255.0));
+			forEachRow(j -> {
+				for (int i = j * width; i < (j + 1) * width; ++i) {
+					int gray = data[i] & 0xFF;
+					pixels[i] = 0xFF000000 | (gray << 16) | (gray << 8) | gray;
 				}
-			}
+			});
 		}
 		else if (type == TYPE_32BIT) {
-			for (int j = 0; j < height; ++j) {
-				for (int i = 0; i < width; ++i) {
-					double b = stream.readUByte() / 255.0;
-					double g = stream.readUByte() / 255.0;
-					double r = stream.readUByte() / 255.0;
-					double a = stream.readUByte() / 255.0;
-					dst.setColor(i, j, Color.color(r, g, b, a));
+			forEachRow(j -> {
+				for (int i = j * width; i < (j + 1) * width; ++i) {
+					// BGRA
+					int offset = i * 4;
+					pixels[i] = ((data[offset + 3] & 0xFF) << 24) | ((data[offset + 2] & 0xFF) << 16) | ((data[offset + 1] & 0xFF) << 8) | (data[offset] & 0xFF);
 				}
-			}
+			});
 		}
 		else if (type == TYPE_48BIT) {
-			for (int j = 0; j < height; ++j) {
-				for (int i = 0; i < width; ++i) {
-					Color color = Color.color(
-							stream.readLEUShort() / 65535.0,
-							stream.readLEUShort() / 65535.0,
-							stream.readLEUShort() / 65535.0);
-					dst.setColor(i, j, color);
+			forEachRow(j -> {
+				for (int i = j * width; i < (j + 1) * width; ++i) {
+					// 16-bit RGB, but JavaFX images only have 8 bits per channel
+					int offset = i * 6;
+					pixels[i] = 0xFF000000 | (to8Bit(data, offset) << 16) | (to8Bit(data, offset + 2) << 8) | to8Bit(data, offset + 4);
 				}
-			}
+			});
 		}
+		return pixels;
 	}
 	
 	private int getDataSize() {
@@ -151,48 +165,57 @@ public class BitmapImage {
 		return -1;
 	}
 	
-	private void writeImageData(StreamWriter stream, PixelReader src) throws IOException {
+	/** Converts non-premultiplied ARGB pixels into the image data. */
+	private byte[] writeImageData(int[] pixels) {
+		byte[] data = new byte[getDataSize()];
+		
 		if (type == TYPE_1BIT) {
-			for (int j = 0; j < height; ++j) {
+			forEachRow(j -> {
+				int offset = j * (width / 8);
 				for (int i = 0; i < width; i += 8) {
-					int data = 0;
+					int bits = 0;
 					for (int k = 7; k >= 0; --k) {
-						boolean b = src.getColor(i + k, j).getRed() > 0.5;
-						if (b) data |= 1;
-						if (k != 0) data <<= 1;
+						// Red channel bigger than 0.5
+						if (((pixels[j * width + i + k] >> 16) & 0xFF) >= 128) bits |= 1 << k;
 					}
-					stream.writeUByte(data);
+					data[offset++] = (byte) bits;
 				}
-			}
+			});
 		}
 		else if (type == TYPE_8BIT) {
-			for (int j = 0; j < height; ++j) {
-				for (int i = 0; i < width; ++i) {
-					stream.writeUByte((int) Math.round((src.getColor(i, j).getRed() * 255.0)));
+			forEachRow(j -> {
+				for (int i = j * width; i < (j + 1) * width; ++i) {
+					data[i] = (byte) (pixels[i] >> 16);
 				}
-			}
+			});
 		}
 		else if (type == TYPE_32BIT) {
-			for (int j = 0; j < height; ++j) {
-				for (int i = 0; i < width; ++i) {
-					Color c = src.getColor(i, j);
-					stream.writeUByte((int) Math.round((c.getBlue() * 255.0)));
-					stream.writeUByte((int) Math.round((c.getGreen() * 255.0)));
-					stream.writeUByte((int) Math.round((c.getRed() * 255.0)));
-					stream.writeUByte((int) Math.round((c.getOpacity() * 255.0)));
+			forEachRow(j -> {
+				for (int i = j * width; i < (j + 1) * width; ++i) {
+					int offset = i * 4;
+					int argb = pixels[i];
+					data[offset] = (byte) argb;
+					data[offset + 1] = (byte) (argb >> 8);
+					data[offset + 2] = (byte) (argb >> 16);
+					data[offset + 3] = (byte) (argb >> 24);
 				}
-			}
+			});
 		}
 		else if (type == TYPE_48BIT) {
-			for (int j = 0; j < height; ++j) {
-				for (int i = 0; i < width; ++i) {
-					Color c = src.getColor(i, j);
-					stream.writeLEUShort((int) Math.round((c.getRed() * 65535.0)));
-					stream.writeLEUShort((int) Math.round((c.getGreen() * 65535.0)));
-					stream.writeLEUShort((int) Math.round((c.getBlue() * 65535.0)));
+			forEachRow(j -> {
+				for (int i = j * width; i < (j + 1) * width; ++i) {
+					int offset = i * 6;
+					int argb = pixels[i];
+					// Expand 8-bit channels into 16-bit (255 -> 65535)
+					for (int c = 0; c < 3; ++c) {
+						int value = ((argb >> (16 - c * 8)) & 0xFF) * 257;
+						data[offset + c * 2] = (byte) value;
+						data[offset + c * 2 + 1] = (byte) (value >> 8);
+					}
 				}
-			}
+			});
 		}
+		return data;
 	}
 	
 	public void read(StreamReader stream) throws IOException {
@@ -210,10 +233,9 @@ public class BitmapImage {
 			unknown = stream.readInt();
 		}
 		
-		try (FixedMemoryStream dataStream = new FixedMemoryStream(data)) {
-			image = new WritableImage(width, height);
-			processImage(dataStream, ((WritableImage)image).getPixelWriter());
-		}
+		WritableImage writableImage = new WritableImage(width, height);
+		writableImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), processImage(data), 0, width);
+		image = writableImage;
 	}
 	
 	public void write(StreamWriter stream) throws IOException {
@@ -222,13 +244,12 @@ public class BitmapImage {
 		stream.writeInt(height);
 		stream.writeInt(channelCount);
 		
-		try (FixedMemoryStream dataStream = new FixedMemoryStream(getDataSize())) {
-			dataStream.seek(0);
-			writeImageData(dataStream, image.getPixelReader());
-			
-			stream.writeUInt(dataStream.length());
-			stream.write(dataStream.toByteArray());
-		}
+		int[] pixels = new int[width * height];
+		image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+		
+		byte[] data = writeImageData(pixels);
+		stream.writeUInt(data.length);
+		stream.write(data);
 		
 		if (type == TYPE_1BIT) {
 			stream.writeInt(unknown);
@@ -83,6 +83,11 @@ public class CellEffectMapConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == TYPE_ID;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {TYPE_ID};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -95,6 +100,12 @@ public class CellEffectMapConverter implements Converter {
 		checkExtensions();
 		return file.isFile() && file.getName().endsWith("." + extension + ".effectMap_t");
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return new String[] {"." + extension + ".effectMap_t"};
+	}
 
 	@Override
 	public String getName() {
@@ -106,6 +117,16 @@ public class CellEffectMapConverter implements Converter {
 		return true;
 	}
 
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public int getOriginalTypeID(String extension) {
 		checkExtensions();
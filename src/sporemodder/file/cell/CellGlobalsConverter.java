@@ -82,6 +82,11 @@ public class CellGlobalsConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == TYPE_ID;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {TYPE_ID};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -94,6 +99,12 @@ public class CellGlobalsConverter implements Converter {
 		checkExtensions();
 		return file.isFile() && file.getName().endsWith("." + extension + ".globals_t");
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return new String[] {"." + extension + ".globals_t"};
+	}
 
 	@Override
 	public String getName() {
@@ -105,6 +116,16 @@ public class CellGlobalsConverter implements Converter {
 		return true;
 	}
 
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public int getOriginalTypeID(String extension) {
 		checkExtensions();
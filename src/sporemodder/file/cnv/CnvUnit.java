@@ -25,8 +25,6 @@ import java.util.List;
 import sporemodder.file.filestructures.StreamReader;
 import sporemodder.file.filestructures.StreamWriter;
 import sporemodder.HashManager;
-import sporemodder.PathManager;
-import sporemodder.UIManager;
 import sporemodder.file.DocumentError;
 import sporemodder.file.argscript.ArgScriptArguments;
 import sporemodder.file.argscript.ArgScriptBlock;
@@ -45,9 +43,8 @@ public class CnvUnit {
 	public static void loadNameRegistry() {
 		FLAGS_REGISTRY = new NameRegistry(HashManager.get(), "Conversation flags registry", "reg_cnv.txt");
 		
-		UIManager.get().tryAction(() -> {
-			FLAGS_REGISTRY.read(PathManager.get().getProgramFile(FLAGS_REGISTRY.getFileName()));
-		}, "The conversation flags registry (reg_cnv.txt) is corrupt or missing.");
+		HashManager.get().readRegistryInBackground(FLAGS_REGISTRY, "The conversation flags registry (reg_cnv.txt) is corrupt or missing.", 
+				FLAGS_REGISTRY.getFileName());
 	}
 	
 	public final List<CnvAnimation> animations = new ArrayList<>();
@@ -54,6 +54,9 @@ public class DBPFConverter implements Converter {
 		long oldBase = stream.getBaseOffset();
 		
 		DBPFUnpackingTask task = createUnpackTask(stream, Converter.getOutputFile(key, outputFolder, "unpacked"));
+		// The progress of the nested package is not shown
+		task.setNoJavaFX();
+		task.setNoJavaFXProgressListener(progress -> {});
 		task.call();
 		
 		stream.setBaseOffset(oldBase);
@@ -81,13 +84,32 @@ public class DBPFConverter implements Converter {
 			name.setGroupID(groupID);
 			name.setTypeID(TYPE_ID);  // audioProp or prop
 			
-			packer.writeFile(name, stream -> {
-				DBPFPackingTask task = new DBPFPackingTask(input, stream);
+			// The nested package is written directly into the output, so it never has to be kept in memory
+			StreamWriter stream = packer.getStream();
+			DBPFItem item = packer.getTemporaryItem();
+			long oldBase = stream.getBaseOffset();
+			item.chunkOffset = stream.getFilePointer();
+			
+			DBPFPackingTask task = new DBPFPackingTask(input, stream);
+			// The progress of the nested package is not shown
+			task.setNoJavaFX();
+			task.setNoJavaFXProgressListener(progress -> {});
+			try {
 				task.call();
-				
+			}
+			finally {
+				stream.setBaseOffset(oldBase);
 				// The task will have disabled this, enable it again
 				HashManager.get().setUpdateProjectRegistry(true);
-			});
+			}
+			if (task.getFailException() != null) {
+				throw task.getFailException();
+			}
+			
+			item.isCompressed = false;
+			item.memSize = (int) (stream.getFilePointer() - item.chunkOffset);
+			item.compressedSize = item.memSize;
+			packer.addFile(item);
 			
 			return true;
 		}
@@ -98,6 +120,11 @@ public class DBPFConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == TYPE_ID;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {TYPE_ID};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -110,6 +137,12 @@ public class DBPFConverter implements Converter {
 		checkExtensions();
 		return file.isDirectory() && file.getName().endsWith("." + extension + ".unpacked");
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return new String[] {"." + extension + ".unpacked"};
+	}
 
 	@Override
 	public String getName() {
@@ -0,0 +1,289 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file.dbpf;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import sporemodder.HashManager;
+import sporemodder.file.ResourceKey;
+import sporemodder.file.ResourceKeySet;
+import sporemodder.file.dbpf.DBPFUnpackingTask.DBPFItemFilter;
+import sporemodder.file.filestructures.FileStream;
+import sporemodder.file.filestructures.StreamReader;
+import sporemodder.util.NameRegistry;
+
+/**
+ * Combines several DBPF packages into a new one without unpacking them. The data of every item is copied as it is stored
+ * in the input package (still compressed, if it was), so no file is decoded nor decompressed and merging runs as fast as the disk allows.
+ * <p>
+ * Packages are given in order of priority: if the same file is in more than one package, only the first one is kept.
+ * Optionally, a filter decides which items are copied; this can also be used with a single package to remove files from it.
+ * The names lists (<code>sporemaster!names</code>) of all the packages are combined into one.
+ */
+public class DBPFMerger {
+	
+	private static final int NAMES_GROUP = 0x9C9059AE;
+	private static final int NAMES_INSTANCE = 0xCC2F616F;
+	private static final int NAMES_TYPE = 0x2B6CAB5F;
+	
+	/** Every package, in order of priority. */
+	private final List<File> inputFiles = new ArrayList<>();
+	/** An optional filter that defines which items are copied (true) and which aren't (false). */
+	private DBPFItemFilter itemFilter;
+	private Consumer<Double> progressListener;
+	
+	private int copiedCount;
+	private int duplicatedCount;
+	private int filteredCount;
+	private long copiedBytes;
+	
+	public DBPFMerger(List<File> inputFiles) {
+		this.inputFiles.addAll(inputFiles);
+	}
+	
+	/**
+	 * Sets a method that decides which items are copied and which are ignored.
+	 * @param itemFilter
+	 */
+	public void setItemFilter(DBPFItemFilter itemFilter) {
+		this.itemFilter = itemFilter;
+	}
+	
+	/**
+	 * Sets a method that is called with the progress, in [0, 1], as the items are copied.
+	 * @param progressListener
+	 */
+	public void setProgressListener(Consumer<Double> progressListener) {
+		this.progressListener = progressListener;
+	}
+	
+	/** Returns how many items were written in the output package, including the combined names list. */
+	public int getCopiedCount() {
+		return copiedCount;
+	}
+	
+	/** Returns how many items were not copied because a package with higher priority already had them. */
+	public int getDuplicatedCount() {
+		return duplicatedCount;
+	}
+	
+	/** Returns how many items were not copied because of the item filter. */
+	public int getFilteredCount() {
+		return filteredCount;
+	}
+	
+	/** Returns the amount of item data bytes that were written in the output package. */
+	public long getCopiedBytes() {
+		return copiedBytes;
+	}
+	
+	private static boolean isNamesList(ResourceKey key) {
+		return key.getGroupID() == NAMES_GROUP && key.getInstanceID() == NAMES_INSTANCE;
+	}
+	
+	/**
+	 * Writes the merged package into the given file. The output file cannot be one of the input packages.
+	 * @param outputFile
+	 * @throws IOException
+	 */
+	public void merge(File outputFile) throws IOException {
+		for (File inputFile : inputFiles) {
+			if (inputFile.getCanonicalFile().equals(outputFile.getCanonicalFile())) {
+				throw new IOException("The output package cannot be one of the inputs: " + inputFile.getPath());
+			}
+		}
+		
+		copiedCount = 0;
+		duplicatedCount = 0;
+		filteredCount = 0;
+		copiedBytes = 0;
+		
+		// Decide which items are copied before writing anything, reading only the indices
+		List<List<DBPFItem>> selectedItems = new ArrayList<>();
+		List<List<DBPFItem>> namesItems = new ArrayList<>();
+		ResourceKeySet writtenFiles = new ResourceKeySet();
+		long totalBytes = 0;
+		
+		for (File inputFile : inputFiles) {
+			DatabasePackedFile header = new DatabasePackedFile();
+			try (StreamReader stream = new FileStream(inputFile, "r")) {
+				header.read(stream);
+			}
+			
+			List<DBPFItem> selected = new ArrayList<>();
+			List<DBPFItem> names = new ArrayList<>();
+			for (DBPFItem item : header.index.items) {
+				if (itemFilter != null && !itemFilter.filter(item)) {
+					++filteredCount;
+				}
+				else if (isNamesList(item.name)) {
+					names.add(item);
+				}
+				else if (!writtenFiles.add(item.name)) {
+					++duplicatedCount;
+				}
+				else {
+					selected.add(item);
+					totalBytes += item.compressedSize;
+				}
+			}
+			// Reading the data in the order it is stored avoids seeking back and forth
+			selected.sort(Comparator.comparingLong(item -> item.chunkOffset));
+			
+			selectedItems.add(selected);
+			namesItems.add(names);
+		}
+		
+		NameRegistry names = new NameRegistry(HashManager.get(), "Merged names", "names.txt");
+		
+		try (FileStream outputStream = new FileStream(outputFile, "rw");
+				DBPFPacker packer = new DBPFPacker(outputStream, false)) {
+			
+			FileChannel outputChannel = outputStream.getChannel();
+			
+			for (int i = 0; i < inputFiles.size(); ++i) {
+				try (FileStream inputStream = new FileStream(inputFiles.get(i), "r")) {
+					FileChannel inputChannel = inputStream.getChannel();
+					
+					for (DBPFItem item : selectedItems.get(i)) {
+						long offset = outputStream.getFilePointer();
+						// DBPFPacker writes 32-bit offsets
+						if (offset + item.compressedSize > 0xFFFFFFFFL) {
+							throw new IOException("The merged package is too big, it cannot be bigger than 4 GB.");
+						}
+						
+						long position = item.chunkOffset;
+						long remaining = item.compressedSize;
+						while (remaining > 0) {
+							long transferred = inputChannel.transferTo(position, remaining, outputChannel);
+							if (transferred <= 0) {
+								throw new IOException("Unexpected end of file in " + inputFiles.get(i).getName() + " reading " + item.name);
+							}
+							position += transferred;
+							remaining -= transferred;
+						}
+						
+						item.chunkOffset = offset;
+						packer.addFile(item);
+						
+						++copiedCount;
+						copiedBytes += item.compressedSize;
+						if (progressListener != null) {
+							progressListener.accept(totalBytes == 0 ? 1.0 : (double) copiedBytes / totalBytes);
+						}
+					}
+					
+					for (DBPFItem item : namesItems.get(i)) {
+						try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+								new ByteArrayInputStream(item.processFile(inputStream).getRawData())))) {
+							names.read(reader);
+						}
+					}
+				}
+			}
+			
+			if (!names.isEmpty()) {
+				packer.writeFile(new ResourceKey(NAMES_GROUP, NAMES_INSTANCE, NAMES_TYPE), stream -> names.write(stream));
+				++copiedCount;
+			}
+		}
+		catch (IOException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IOException(e);
+		}
+		
+		if (progressListener != null) {
+			progressListener.accept(1.0);
+		}
+	}
+	
+	/**
+	 * A pattern that matches resource keys, written as <code>group!instance.type</code>. Every part can be a name,
+	 * a hexadecimal ID or <code>*</code> to match anything; the group and type can be omitted, which also matches anything.
+	 * For example, <code>*.prop</code> matches all .prop files, and <code>animations!*</code> all files in the <code>animations</code> folder.
+	 */
+	public static class KeyPattern {
+		private final Integer groupID;
+		private final Integer instanceID;
+		private final Integer typeID;
+		
+		public KeyPattern(String pattern) {
+			HashManager hasher = HashManager.get();
+			
+			String group = null;
+			int index = pattern.indexOf('!');
+			if (index != -1) {
+				group = pattern.substring(0, index);
+				pattern = pattern.substring(index + 1);
+			}
+			String type = null;
+			index = pattern.lastIndexOf('.');
+			if (index != -1) {
+				type = pattern.substring(index + 1);
+				pattern = pattern.substring(0, index);
+			}
+			
+			groupID = group == null || group.equals("*") ? null : hasher.getFileHash(group);
+			instanceID = pattern.equals("*") ? null : hasher.getFileHash(pattern);
+			typeID = type == null || type.equals("*") ? null : hasher.getTypeHash(type);
+		}
+		
+		public boolean matches(ResourceKey key) {
+			return (groupID == null || groupID == key.getGroupID()) &&
+					(instanceID == null || instanceID == key.getInstanceID()) &&
+					(typeID == null || typeID == key.getTypeID());
+		}
+	}
+	
+	/**
+	 * Creates an item filter from lists of key patterns (see {@link KeyPattern}). An item is accepted if it matches
+	 * any of the included patterns (or there are none) and none of the excluded ones.
+	 * @param includes The patterns of the items that are copied, might be null.
+	 * @param excludes The patterns of the items that are not copied, might be null.
+	 * @return
+	 */
+	public static DBPFItemFilter createFilter(List<String> includes, List<String> excludes) {
+		List<KeyPattern> includePatterns = new ArrayList<>();
+		List<KeyPattern> excludePatterns = new ArrayList<>();
+		if (includes != null) {
+			for (String pattern : includes) includePatterns.add(new KeyPattern(pattern));
+		}
+		if (excludes != null) {
+			for (String pattern : excludes) excludePatterns.add(new KeyPattern(pattern));
+		}
+		
+		return item -> {
+			if (!includePatterns.isEmpty() && includePatterns.stream().noneMatch(pattern -> pattern.matches(item.name))) {
+				return false;
+			}
+			return excludePatterns.stream().noneMatch(pattern -> pattern.matches(item.name));
+		};
+	}
+}
@@ -56,6 +56,12 @@ public class DBPFPacker implements AutoCloseable {
 		public void consume(StreamWriter stream) throws Exception;
 	}
 	
+	@FunctionalInterface
+	public static interface WriteListener {
+		/** Called with the uncompressed data of every file written with {@link DBPFPacker#writeFile(ResourceKey, byte[], int)}; the data must not be kept. */
+		public void onFileWritten(ResourceKey name, byte[] data, int length) throws IOException;
+	}
+	
 	/** The output stream where the DBPF file will be written. */
 	private final StreamWriter stream;
 	/** The fast memory stream used to write the DBPF index. */
@@ -67,12 +73,28 @@ public class DBPFPacker implements AutoCloseable {
 	private int compressThreshold = -1;
 	private final RefPackCompression.CompressorOutput compressOut = new RefPackCompression.CompressorOutput();
 	private File currentFile;
+	private WriteListener writeListener;
+	/** The total size of the data of all the files added, before and after compressing them. */
+	private long uncompressedBytes;
+	private long compressedBytes;
 	
 	private boolean closeStream;
+	/** The base offset of the output stream when the packer was created; offsets in the package are relative to it. */
+	private final long baseOffset;
 	
+	/**
+	 * Creates a packer that writes the package into the given stream. The package starts at the current position
+	 * of the stream, and the base offset of the stream is set to that position while it is written; this way,
+	 * a package can be written directly inside another one. Once closed, the stream is left at the end of the package.
+	 * @param output
+	 * @param closeStream Whether the stream must be closed when the packer is closed.
+	 * @throws IOException
+	 */
 	public DBPFPacker(StreamWriter output, boolean closeStream) throws IOException {
 		stream = output;
 		this.closeStream = closeStream;
+		this.baseOffset = output.getBaseOffset() + output.getFilePointer();
+		stream.setBaseOffset(baseOffset);
 		initialWrite();
 	}
 	
@@ -102,18 +124,20 @@ public class DBPFPacker implements AutoCloseable {
 		DatabasePackedFile header = new DatabasePackedFile();
 		
 		// Write header and index
-		// First ensure we have no offset base
-		stream.setBaseOffset(0);
+		// First ensure the offset base is the start of the package
+		stream.setBaseOffset(baseOffset);
 		header.indexOffset = stream.getFilePointer();
 		header.indexCount = nItemsCount;
 		header.indexSize = (int) indexStream.length();
 		
 		indexStream.writeInto(stream);
 		stream.write(indexStream.toByteArray());
+		long endOffset = stream.getFilePointer();
 		
 		// Go back and write header
 		stream.seek(0);
 		header.writeHeader(stream);
+		stream.seek(endOffset);
 		
 		if (closeStream) stream.close();
 		indexStream.close();
@@ -163,6 +187,15 @@ public class DBPFPacker implements AutoCloseable {
 		return item.name;
 	}
 	
+	/**
+	 * Sets a listener that receives the data of every file written through this packer, or null to remove it.
+	 * Files added directly with {@link #addFile(DBPFItem)} are not notified.
+	 * @param listener
+	 */
+	public void setWriteListener(WriteListener listener) {
+		this.writeListener = listener;
+	}
+	
 	/**
 	 * Writes the given data to the output stream and adds the file to the DBPF index.
 	 * More precisely, it writes the data in <code>data[0..length-1]</code> to the stream. 
@@ -177,6 +210,8 @@ public class DBPFPacker implements AutoCloseable {
 	 * @throws IOException
 	 */
 	public boolean writeFile(ResourceKey name, byte[] data, int length) throws IOException {
+		if (writeListener != null) writeListener.onFileWritten(name, data, length);
+		
 		item.name.copy(name);
 		item.chunkOffset = stream.getFilePointer();
 		
@@ -231,6 +266,24 @@ public class DBPFPacker implements AutoCloseable {
 	public void addFile(DBPFItem item) throws IOException {
 		item.write(indexStream, false, true, true);
 		nItemsCount++;
+		uncompressedBytes += item.memSize;
+		compressedBytes += item.compressedSize;
+	}
+	
+	/**
+	 * Returns the total uncompressed size of all the files added to the package so far.
+	 * @return
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes;
+	}
+	
+	/**
+	 * Returns the total size that all the files added so far take in the package, after compressing them.
+	 * @return
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes;
 	}
 	
 }
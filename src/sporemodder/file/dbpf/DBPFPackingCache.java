@@ -0,0 +1,390 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file.dbpf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import sporemodder.HashManager;
+import sporemodder.Launcher;
+import sporemodder.PathManager;
+import sporemodder.file.Converter;
+import sporemodder.file.ResourceKey;
+import sporemodder.file.argscript.ArgScriptStream;
+import sporemodder.util.NameRegistry;
+
+/**
+ * Stores the output of the converters when packing a project, so that files that have not changed since the last pack
+ * are not converted again. Only converters that return true in {@link Converter#isCacheable()} are cached.
+ * <p>
+ * Every project folder has its own subfolder in the program cache folder. An entry is named after a hash of everything
+ * that is known before converting a file: the program version, the converter, the path of the file in the project, the group,
+ * the names of the files next to it that have the same name, the contents of the file (or of all the files inside it, if it's a folder),
+ * and the aliases (names that end with <code>~</code>) of the project registry when the pack started, as they can be assigned to any hash.
+ * The files included with ArgScript are only known after converting it, so the entry stores them with a hash of their contents,
+ * and it is discarded if any of them has changed. Entries also store the names that were added to the project registry and
+ * the files written into the package, which are added again when the entry is used.
+ */
+public class DBPFPackingCache {
+
+	private static final String CACHE_FOLDER = "packing";
+	/** Increase this if the format of the entries changes. */
+	private static final int ENTRY_VERSION = 1;
+
+	private static class Item {
+		final ResourceKey name;
+		final byte[] data;
+
+		Item(ResourceKey name, byte[] data) {
+			this.name = name;
+			this.data = data;
+		}
+	}
+
+	private static class Entry {
+		final List<String> includes = new ArrayList<>();
+		final List<String> includeHashes = new ArrayList<>();
+		final List<String> names = new ArrayList<>();
+		final List<Integer> hashes = new ArrayList<>();
+		final List<Item> items = new ArrayList<>();
+	}
+
+	private final File inputFolder;
+	private final File cacheFolder;
+	/** The entries used in this pack; the rest are deleted when it finishes. */
+	private final Set<String> usedEntries = new HashSet<>();
+	/** The file names of every folder, so they are only listed once. */
+	private final Map<File, String[]> folderNames = new HashMap<>();
+	/** The hash of the aliases in the project registry, which is added to the name of every entry. */
+	private final String aliasesHash;
+	private int hitCount;
+	private int missCount;
+
+	public DBPFPackingCache(File inputFolder) throws IOException {
+		this.inputFolder = inputFolder.getAbsoluteFile();
+
+		MessageDigest digest = createDigest();
+		digest.update(this.inputFolder.getPath().getBytes(StandardCharsets.UTF_8));
+		cacheFolder = new File(new File(PathManager.get().getCacheFolder(), CACHE_FOLDER), toHex(digest.digest()).substring(0, 16));
+		cacheFolder.mkdirs();
+
+		aliasesHash = hashProjectAliases();
+	}
+
+	/**
+	 * Returns how many files were taken from the cache.
+	 * @return
+	 */
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns how many files had to be converted.
+	 * @return
+	 */
+	public int getMissCount() {
+		return missCount;
+	}
+
+	private static MessageDigest createDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static void updateString(MessageDigest digest, String text) {
+		digest.update(text.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static void updateFile(MessageDigest digest, File file) throws IOException {
+		byte[] buffer = new byte[8192];
+		try (InputStream in = new FileInputStream(file)) {
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		}
+	}
+
+	/** Adds the contents of a file to the digest; folders add the relative path and contents of every file inside them. */
+	private static void updateContents(MessageDigest digest, File file, String relativePath) throws IOException {
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			Arrays.sort(files);
+			for (File child : files) {
+				updateContents(digest, child, relativePath + '/' + child.getName());
+			}
+		}
+		else {
+			updateString(digest, relativePath);
+			updateString(digest, Long.toString(file.length()));
+			updateFile(digest, file);
+		}
+	}
+
+	/**
+	 * Returns the hash of the aliases in the project registry, which come from the project names.txt and the source packages.
+	 * The rest of names are always assigned to their FNV hash, and the aliases of the program registry take precedence,
+	 * so those don't change the output of the converters.
+	 */
+	private static String hashProjectAliases() throws IOException {
+		NameRegistry fileRegistry = HashManager.get().getFileRegistry();
+		NameRegistry registry = HashManager.get().getProjectRegistry();
+		List<String> aliases = new ArrayList<>();
+		synchronized (registry) {
+			for (String name : registry.getNames()) {
+				String lowercaseName = name.toLowerCase();
+				Integer hash = registry.getHash(lowercaseName);
+				if (name.endsWith("~") && hash != null && fileRegistry.getHash(lowercaseName) == null) {
+					aliases.add(lowercaseName + '=' + Integer.toHexString(hash));
+				}
+			}
+		}
+		aliases.sort(null);
+
+		MessageDigest digest = createDigest();
+		for (String alias : aliases) {
+			updateString(digest, alias);
+		}
+		return toHex(digest.digest());
+	}
+
+	/** Returns the hash of an included file, or an empty string if it does not exist. */
+	private static String hashInclude(File file) throws IOException {
+		if (!file.isFile()) return "";
+		MessageDigest digest = createDigest();
+		updateFile(digest, file);
+		return toHex(digest.digest());
+	}
+
+	private String getEntryName(Converter converter, File input, int groupID) throws IOException {
+		String relativePath = inputFolder.toPath().relativize(input.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/');
+
+		MessageDigest digest = createDigest();
+		updateString(digest, Integer.toString(ENTRY_VERSION));
+		updateString(digest, Launcher.VERSION);
+		updateString(digest, converter.getClass().getName());
+		updateString(digest, relativePath);
+		updateString(digest, Integer.toHexString(groupID));
+		updateString(digest, aliasesHash);
+
+		// Some converters check if other versions of the file exist
+		File parentFolder = input.getAbsoluteFile().getParentFile();
+		String[] names = folderNames.get(parentFolder);
+		if (names == null) {
+			names = parentFolder.list();
+			Arrays.sort(names);
+			folderNames.put(parentFolder, names);
+		}
+		String prefix = input.getName().split("\\.", 2)[0] + '.';
+		for (String name : names) {
+			if (name.startsWith(prefix)) updateString(digest, name);
+		}
+
+		updateContents(digest, input, relativePath);
+
+		return toHex(digest.digest()) + ".bin";
+	}
+
+	/**
+	 * Encodes a file with the given converter, adding the result to the packer. If the file has not changed since it was
+	 * encoded last time, the output is taken from the cache instead.
+	 * @param converter
+	 * @param input
+	 * @param packer
+	 * @param groupID
+	 * @return The result of {@link Converter#encode(File, DBPFPacker, int)}.
+	 * @throws Exception
+	 */
+	public boolean encode(Converter converter, File input, DBPFPacker packer, int groupID) throws Exception {
+		String entryName = getEntryName(converter, input, groupID);
+		File entryFile = new File(cacheFolder, entryName);
+
+		Entry entry = entryFile.isFile() ? readEntry(entryFile) : null;
+		if (entry != null && isValid(entry)) {
+			usedEntries.add(entryName);
+			++hitCount;
+
+			HashManager hasher = HashManager.get();
+			for (int i = 0; i < entry.names.size(); ++i) {
+				hasher.addProjectName(entry.names.get(i), entry.hashes.get(i));
+			}
+			for (Item item : entry.items) {
+				packer.writeFile(item.name, item.data, item.data.length);
+			}
+			return true;
+		}
+
+		++missCount;
+
+		Entry newEntry = new Entry();
+		// Effects are compiled in parallel, so the includes and names can come from multiple threads;
+		// the include listener only applies to the current thread, EffectDirectory passes it to the threads it uses
+		Set<File> includes = ConcurrentHashMap.newKeySet();
+
+		HashManager.get().setProjectRegistryListener((name, hash) -> {
+			synchronized (newEntry) {
+				newEntry.names.add(name);
+				newEntry.hashes.add(hash);
+			}
+		});
+		packer.setWriteListener((name, data, length) -> {
+			Item item = new Item(new ResourceKey(name), Arrays.copyOf(data, length));
+			synchronized (newEntry) {
+				newEntry.items.add(item);
+			}
+		});
+		ArgScriptStream.setIncludeListener(includes::add);
+
+		boolean result;
+		try {
+			result = converter.encode(input, packer, groupID);
+		}
+		finally {
+			HashManager.get().setProjectRegistryListener(null);
+			packer.setWriteListener(null);
+			ArgScriptStream.setIncludeListener(null);
+		}
+
+		if (result) {
+			List<File> sortedIncludes = new ArrayList<>(includes);
+			sortedIncludes.sort(null);
+			for (File file : sortedIncludes) {
+				newEntry.includes.add(file.getAbsolutePath());
+				newEntry.includeHashes.add(hashInclude(file));
+			}
+
+			writeEntry(entryFile, newEntry);
+			usedEntries.add(entryName);
+		}
+		return result;
+	}
+
+	private static boolean isValid(Entry entry) throws IOException {
+		for (int i = 0; i < entry.includes.size(); ++i) {
+			if (!hashInclude(new File(entry.includes.get(i))).equals(entry.includeHashes.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Entry readEntry(File file) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != ENTRY_VERSION) return null;
+
+			Entry entry = new Entry();
+			int count = in.readInt();
+			for (int i = 0; i < count; ++i) {
+				entry.includes.add(in.readUTF());
+				entry.includeHashes.add(in.readUTF());
+			}
+			count = in.readInt();
+			for (int i = 0; i < count; ++i) {
+				entry.names.add(in.readUTF());
+				entry.hashes.add(in.readInt());
+			}
+			count = in.readInt();
+			for (int i = 0; i < count; ++i) {
+				ResourceKey name = new ResourceKey(in.readInt(), in.readInt(), in.readInt());
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				entry.items.add(new Item(name, data));
+			}
+			return entry;
+		}
+		catch (IOException e) {
+			// A corrupted entry is just converted again
+			return null;
+		}
+	}
+
+	private void writeEntry(File file, Entry entry) throws IOException {
+		// Write to a temporary file first, so an interrupted pack never leaves an incomplete entry
+		File tempFile = new File(cacheFolder, file.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+			out.writeInt(ENTRY_VERSION);
+			out.writeInt(entry.includes.size());
+			for (int i = 0; i < entry.includes.size(); ++i) {
+				out.writeUTF(entry.includes.get(i));
+				out.writeUTF(entry.includeHashes.get(i));
+			}
+			out.writeInt(entry.names.size());
+			for (int i = 0; i < entry.names.size(); ++i) {
+				out.writeUTF(entry.names.get(i));
+				out.writeInt(entry.hashes.get(i));
+			}
+			out.writeInt(entry.items.size());
+			for (Item item : entry.items) {
+				out.writeInt(item.name.getGroupID());
+				out.writeInt(item.name.getInstanceID());
+				out.writeInt(item.name.getTypeID());
+				out.writeInt(item.data.length);
+				out.write(item.data);
+			}
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Deletes the entries that were not used in this pack, as they belong to files that have changed or don't exist anymore.
+	 * This must only be called when the pack finishes successfully.
+	 */
+	public void deleteUnusedEntries() {
+		File[] files = cacheFolder.listFiles();
+		if (files == null) return;
+		for (File file : files) {
+			if (!usedEntries.contains(file.getName())) {
+				file.delete();
+			}
+		}
+	}
+}
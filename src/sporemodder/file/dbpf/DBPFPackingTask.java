@@ -23,9 +23,6 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
@@ -35,7 +32,9 @@ import sporemodder.FormatManager;
 import sporemodder.HashManager;
 import sporemodder.MessageManager;
 import sporemodder.MessageManager.MessageType;
+import sporemodder.file.CachedAttributesFile;
 import sporemodder.file.Converter;
+import sporemodder.file.ConverterTable;
 import sporemodder.file.ResourceKey;
 import sporemodder.util.NameRegistry;
 import sporemodder.util.Project;
@@ -67,6 +66,12 @@ public class DBPFPackingTask extends Task<Void> {
 	private Consumer<Double> noJavaFXProgressListener;
 	private int compressThreshold = -1;
 	
+	/** Whether the output of the converters is kept between packs, so unchanged files are not converted again. */
+	private boolean useCache = true;
+	private DBPFPackingCache packingCache;
+	/** An optional profiler that measures how long every file takes to be packed. */
+	private DBPFProfiler profiler;
+	
 	public DBPFPackingTask(Project project, boolean storeDebugInformation) {
 		this.inputFolder = project.getFolder();
 		this.outputFile = project.getOutputPackage();
@@ -90,6 +95,17 @@ public class DBPFPackingTask extends Task<Void> {
 		this.outputFile = null;
 		this.outputStream = outputStream;
 		this.packageSignature = PackageSignature.NONE;
+		// Nested packages are packed while the parent package is using the cache
+		this.useCache = false;
+	}
+	
+	/**
+	 * Sets whether the converted files are taken from the packing cache when they have not changed since the last pack.
+	 * It is enabled by default, except for nested packages.
+	 * @param useCache
+	 */
+	public void setUseCache(boolean useCache) {
+		this.useCache = useCache;
 	}
 	
 	public void setNoJavaFX() {
@@ -191,9 +207,8 @@ public class DBPFPackingTask extends Task<Void> {
 		//TODO support DBBF maybe?
 		
 		// Doesn't really make sense to let the user disable converters.
-		List<Converter> converters = new ArrayList<>(FormatManager.get().getConverters());
-		// Reverse them so the most common ones (.prop, .rw4) are first
-		Collections.reverse(converters);
+		// The most common ones (.prop, .rw4) are checked first
+		ConverterTable converters = FormatManager.get().createConverterTable();
 		
 		File[] folders = inputFolder.listFiles(new FileFilter() {
 
@@ -237,9 +252,19 @@ public class DBPFPackingTask extends Task<Void> {
 				file = getNestedFile(file, name, converters);
 				setCurrentFile(file);
 				
-				for (Converter converter : converters) {
-					if (converter.encode(file, packer, currentGroupID)) {
+				DBPFProfiler.Measurement measurement = profiler == null ? null : profiler.start();
+				long startUncompressedBytes = packer.getUncompressedBytes();
+				long startCompressedBytes = packer.getCompressedBytes();
+				int startCacheHits = packingCache == null ? 0 : packingCache.getHitCount();
+				String usedConverter = DBPFProfiler.NO_CONVERTER;
+				
+				for (Converter converter : converters.getEncoderCandidates(name)) {
+					boolean encoded = packingCache != null && converter.isCacheable() ?
+							packingCache.encode(converter, file, packer, currentGroupID) :
+							converter.encode(file, packer, currentGroupID);
+					if (encoded) {
 						bUsesConverter = true;
+						usedConverter = converter.getName();
 						break;
 					}
 				}
@@ -265,6 +290,18 @@ public class DBPFPackingTask extends Task<Void> {
 						debugInfo.addFile(currentFolderName, name, currentGroupID, currentInstanceID, currentTypeID);
 					}
 				}
+				
+				if (measurement != null) {
+					DBPFProfiler.FileRecord record = new DBPFProfiler.FileRecord();
+					record.path = currentFolderName + '/' + name;
+					record.converter = usedConverter;
+					record.isCached = packingCache != null && packingCache.getHitCount() != startCacheHits;
+					record.bytesIn = getInputSize(file);
+					record.uncompressedBytes = packer.getUncompressedBytes() - startUncompressedBytes;
+					record.compressedBytes = packer.getCompressedBytes() - startCompressedBytes;
+					record.bytesOut = record.compressedBytes;
+					measurement.finish(record);
+				}
 			}
 			
 			if (!alreadyHasPackageSignature && currentGroupID == 0x40404000) {
@@ -301,7 +338,13 @@ public class DBPFPackingTask extends Task<Void> {
 			this.packer = packer;
 			packer.setCompressThreshold(compressThreshold);
 			
+			if (useCache) packingCache = new DBPFPackingCache(inputFolder);
+			
+			long startTime = System.nanoTime();
 			pack();
+			if (profiler != null) profiler.setTotalNanos(System.nanoTime() - startTime);
+			
+			if (packingCache != null) packingCache.deleteUnusedEntries();
 		}
 		catch (Exception e) {
 			e.printStackTrace();
@@ -324,13 +367,28 @@ public class DBPFPackingTask extends Task<Void> {
 		updateProgress(progress, 1.0);
 	}
 	
+	/** Returns the size of a file, or of all the files inside it if it's a folder. */
+	private static long getInputSize(File file) {
+		if (file.isDirectory()) {
+			long size = 0;
+			File[] files = file.listFiles();
+			if (files != null) {
+				for (File child : files) size += getInputSize(child);
+			}
+			return size;
+		}
+		return file.length();
+	}
+	
 	//TODO consider changing how nested files work
-	private File getNestedFile(File file, String name, List<Converter> converters) {
+	private File getNestedFile(File file, String name, ConverterTable converters) {
+		// Converters check the file attributes many times, only read them once
+		file = new CachedAttributesFile(file);
 		if (!file.isFile()) {
-			for (Converter converter : converters) {
+			for (Converter converter : converters.getEncoderCandidates(name)) {
 				if (converter.isEncoder(file)) return file;
 			}
-			File newFile = new File(file, name);
+			File newFile = new CachedAttributesFile(file, name);
 			if (!newFile.exists()) {
 				//failedFiles.put(file, new UnsupportedOperationException("Couldn't find file " + name + " inside subfolder " + name));
 				setCurrentFile(file);
@@ -396,5 +454,21 @@ public class DBPFPackingTask extends Task<Void> {
 	public int getCompressThreshold() {
 		return compressThreshold;
 	}
+	
+	/**
+	 * Sets a profiler that measures the time, allocations and sizes of every file that is packed; by default there is none.
+	 * @param profiler
+	 */
+	public void setProfiler(DBPFProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	/**
+	 * Returns the profiler that measures every packed file, or null if the pack is not being profiled.
+	 * @return
+	 */
+	public DBPFProfiler getProfiler() {
+		return profiler;
+	}
 
 }
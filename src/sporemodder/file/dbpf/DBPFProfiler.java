@@ -0,0 +1,329 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file.dbpf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Records how long every file takes to be packed or unpacked, so that slow converters and files can be found.
+ * For every file it records the wall and CPU time, the bytes allocated, and the size of the data before and after converting it.
+ * The results can be summarized by converter, and exported as JSON or CSV.
+ * <p>
+ * The CPU time and allocated bytes are the ones of the thread that converts the file; converters that use other threads
+ * internally (like effects) use more than what is reported. When unpacking, reading and decompressing the data from the
+ * package is not included, as that is done before the file is converted.
+ */
+public class DBPFProfiler {
+
+	/** The converter name used for files that are copied without converting them. */
+	public static final String NO_CONVERTER = "None";
+
+	/** The measurements of a single file. */
+	public static class FileRecord {
+		/** The path of the file relative to the project folder, or its resource key when unpacking. */
+		public String path;
+		public String converter;
+		/** Whether the output was taken from the packing cache instead of converting it. */
+		public boolean isCached;
+		public long wallNanos;
+		/** The CPU time of the converting thread, or -1 if the JVM cannot measure it. */
+		public long cpuNanos = -1;
+		/** The bytes allocated by the converting thread, or -1 if the JVM cannot measure it. */
+		public long allocatedBytes = -1;
+		/** When packing, the size of the source file; when unpacking, the size of the data in the package. */
+		public long bytesIn;
+		/** When packing, the size of the data written in the package; when unpacking, the size of the decompressed data. */
+		public long bytesOut;
+		/** The compressed size of the data in the package. */
+		public long compressedBytes;
+		/** The uncompressed size of the data in the package. */
+		public long uncompressedBytes;
+
+		/** Returns the compressed size divided by the uncompressed size; 1.0 if it is not compressed. */
+		public double getCompressionRatio() {
+			return uncompressedBytes == 0 ? 1.0 : (double) compressedBytes / uncompressedBytes;
+		}
+
+		public JSONObject toJSON() {
+			JSONObject json = new JSONObject();
+			json.put("path", path);
+			json.put("converter", converter);
+			json.put("cached", isCached);
+			json.put("wallNanos", wallNanos);
+			json.put("cpuNanos", cpuNanos);
+			json.put("allocatedBytes", allocatedBytes);
+			json.put("bytesIn", bytesIn);
+			json.put("bytesOut", bytesOut);
+			json.put("compressionRatio", getCompressionRatio());
+			return json;
+		}
+	}
+
+	/** The measurements of all the files of a converter added together. */
+	public static class ConverterRecord {
+		public int files;
+		public int cachedFiles;
+		public long wallNanos;
+		public long cpuNanos;
+		public long allocatedBytes;
+		public long bytesIn;
+		public long bytesOut;
+		public long compressedBytes;
+		public long uncompressedBytes;
+
+		public void add(FileRecord record) {
+			++files;
+			if (record.isCached) ++cachedFiles;
+			wallNanos += record.wallNanos;
+			if (record.cpuNanos != -1) cpuNanos += record.cpuNanos;
+			if (record.allocatedBytes != -1) allocatedBytes += record.allocatedBytes;
+			bytesIn += record.bytesIn;
+			bytesOut += record.bytesOut;
+			compressedBytes += record.compressedBytes;
+			uncompressedBytes += record.uncompressedBytes;
+		}
+
+		public double getCompressionRatio() {
+			return uncompressedBytes == 0 ? 1.0 : (double) compressedBytes / uncompressedBytes;
+		}
+
+		public JSONObject toJSON() {
+			JSONObject json = new JSONObject();
+			json.put("files", files);
+			json.put("cachedFiles", cachedFiles);
+			json.put("wallNanos", wallNanos);
+			json.put("cpuNanos", cpuNanos);
+			json.put("allocatedBytes", allocatedBytes);
+			json.put("bytesIn", bytesIn);
+			json.put("bytesOut", bytesOut);
+			json.put("compressionRatio", getCompressionRatio());
+			return json;
+		}
+	}
+
+	/** A measurement that has started in the current thread. */
+	public class Measurement {
+		private final long threadID = Thread.currentThread().getId();
+		private final long startWall = System.nanoTime();
+		private final long startCpu = isCpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : 0;
+		private final long startAllocated = allocationBean != null ? allocationBean.getThreadAllocatedBytes(threadID) : 0;
+
+		/**
+		 * Finishes the measurement and adds it to the profile. This must be called in the same thread that started it.
+		 * @param record The record with the file information; the times and allocated bytes are set by this method.
+		 */
+		public void finish(FileRecord record) {
+			record.wallNanos = System.nanoTime() - startWall;
+			if (isCpuTimeSupported) record.cpuNanos = threadBean.getCurrentThreadCpuTime() - startCpu;
+			if (allocationBean != null) record.allocatedBytes = allocationBean.getThreadAllocatedBytes(threadID) - startAllocated;
+
+			synchronized (records) {
+				records.add(record);
+			}
+		}
+	}
+
+	/** Whether this profiles a pack or an unpack. */
+	private final String operation;
+	private final List<FileRecord> records = new ArrayList<>();
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private final boolean isCpuTimeSupported;
+	private final com.sun.management.ThreadMXBean allocationBean;
+	/** The duration of the whole operation, in nanoseconds. */
+	private long totalNanos;
+
+	/**
+	 * Creates a profiler.
+	 * @param operation The name of the operation that is profiled, such as "pack" or "unpack".
+	 */
+	public DBPFProfiler(String operation) {
+		this.operation = operation;
+
+		isCpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported();
+		if (isCpuTimeSupported) threadBean.setThreadCpuTimeEnabled(true);
+
+		if (threadBean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+			allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+			allocationBean.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			allocationBean = null;
+		}
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	/**
+	 * Starts measuring a file in the current thread.
+	 * @return
+	 */
+	public Measurement start() {
+		return new Measurement();
+	}
+
+	/**
+	 * Sets how long the whole operation took, in nanoseconds.
+	 * @param totalNanos
+	 */
+	public void setTotalNanos(long totalNanos) {
+		this.totalNanos = totalNanos;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * Returns a copy of the records of all the files, in the order they finished.
+	 * @return
+	 */
+	public List<FileRecord> getRecords() {
+		synchronized (records) {
+			return new ArrayList<>(records);
+		}
+	}
+
+	/**
+	 * Returns the files that took the most wall time, slowest first.
+	 * @param count The maximum number of files returned.
+	 * @return
+	 */
+	public List<FileRecord> getSlowest(int count) {
+		List<FileRecord> list = getRecords();
+		list.sort(Comparator.comparingLong((FileRecord record) -> record.wallNanos).reversed());
+		return list.size() > count ? new ArrayList<>(list.subList(0, count)) : list;
+	}
+
+	/**
+	 * Adds together the records of every converter, sorted by the converter name.
+	 * @return
+	 */
+	public Map<String, ConverterRecord> summarize() {
+		Map<String, ConverterRecord> map = new TreeMap<>();
+		for (FileRecord record : getRecords()) {
+			map.computeIfAbsent(record.converter, name -> new ConverterRecord()).add(record);
+		}
+		return map;
+	}
+
+	/**
+	 * Generates the JSON report, with the totals of every converter, the slowest files and the records of every file.
+	 * @param slowestCount How many files are included in the list of slowest files.
+	 * @return
+	 */
+	public JSONObject toJSON(int slowestCount) {
+		JSONObject json = new JSONObject();
+		json.put("operation", operation);
+		json.put("totalNanos", totalNanos);
+
+		JSONObject convertersJson = new JSONObject();
+		for (Map.Entry<String, ConverterRecord> entry : summarize().entrySet()) {
+			convertersJson.put(entry.getKey(), entry.getValue().toJSON());
+		}
+		json.put("converters", convertersJson);
+
+		JSONArray slowestJson = new JSONArray();
+		for (FileRecord record : getSlowest(slowestCount)) {
+			slowestJson.put(record.path);
+		}
+		json.put("slowest", slowestJson);
+
+		JSONArray filesJson = new JSONArray();
+		for (FileRecord record : getRecords()) {
+			filesJson.put(record.toJSON());
+		}
+		json.put("files", filesJson);
+
+		return json;
+	}
+
+	private static String escapeCSV(String text) {
+		if (text.indexOf(',') == -1 && text.indexOf('"') == -1) return text;
+		return '"' + text.replace("\"", "\"\"") + '"';
+	}
+
+	/**
+	 * Writes the records of every file as CSV, one line per file.
+	 * @param out
+	 */
+	public void writeCSV(PrintWriter out) {
+		out.println("path,converter,cached,wallNanos,cpuNanos,allocatedBytes,bytesIn,bytesOut,compressionRatio");
+		for (FileRecord record : getRecords()) {
+			out.println(escapeCSV(record.path) + ',' + escapeCSV(record.converter) + ',' + record.isCached + ','
+					+ record.wallNanos + ',' + record.cpuNanos + ',' + record.allocatedBytes + ','
+					+ record.bytesIn + ',' + record.bytesOut + ',' + String.format(Locale.ROOT, "%.4f", record.getCompressionRatio()));
+		}
+	}
+
+	/**
+	 * Exports the report to a file; if the file extension is .csv it is written as CSV, otherwise as JSON.
+	 * @param file
+	 * @param slowestCount How many files are included in the list of slowest files of the JSON report.
+	 * @throws IOException
+	 */
+	public void export(File file, int slowestCount) throws IOException {
+		if (file.getName().toLowerCase().endsWith(".csv")) {
+			try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+				writeCSV(out);
+			}
+		}
+		else {
+			Files.write(file.toPath(), toJSON(slowestCount).toString(4).getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Returns a text summary with the totals of every converter and the slowest files, meant to be printed or displayed.
+	 * @param slowestCount How many of the slowest files are listed.
+	 * @return
+	 */
+	public String getSummary(int slowestCount) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "Total time: %.2f s%n", totalNanos / 1e9));
+		sb.append(String.format(Locale.ROOT, "%n%-24s %8s %8s %10s %10s %12s %12s %8s%n",
+				"Converter", "Files", "Cached", "Wall (ms)", "CPU (ms)", "Alloc (MB)", "Out (KB)", "Ratio"));
+		for (Map.Entry<String, ConverterRecord> entry : summarize().entrySet()) {
+			ConverterRecord record = entry.getValue();
+			sb.append(String.format(Locale.ROOT, "%-24s %8d %8d %10.1f %10.1f %12.1f %12.1f %8.3f%n",
+					entry.getKey(), record.files, record.cachedFiles, record.wallNanos / 1e6, record.cpuNanos / 1e6,
+					record.allocatedBytes / (1024.0 * 1024.0), record.bytesOut / 1024.0, record.getCompressionRatio()));
+		}
+		sb.append(String.format(Locale.ROOT, "%nSlowest files:%n"));
+		for (FileRecord record : getSlowest(slowestCount)) {
+			sb.append(String.format(Locale.ROOT, "%10.1f ms  %-24s %s%n", record.wallNanos / 1e6, record.converter, record.path));
+		}
+		return sb.toString();
+	}
+}
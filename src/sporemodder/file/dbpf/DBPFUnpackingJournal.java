@@ -0,0 +1,249 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file.dbpf;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import sporemodder.PathManager;
+import sporemodder.file.Converter;
+import sporemodder.file.ResourceKey;
+
+/**
+ * Keeps a record of the items that have already been unpacked, so that if the program is closed or crashes in the middle of
+ * unpacking, the next time the same packages are unpacked into the same folder it can continue where it stopped.
+ * <p>
+ * The journal is a text file in the program cache folder. The first lines identify the unpacking job (the input packages, their size
+ * and modification date, the converters and the item filter); if they don't match the job is started from scratch. Every following line
+ * is an item that was completely written, with the index of the package it comes from and the names of the files it wrote.
+ * Items are written in batches, so a crash loses at most the last batch, which is unpacked again.
+ */
+public class DBPFUnpackingJournal implements AutoCloseable {
+
+	private static final String CACHE_FOLDER = "unpacking";
+	private static final String HEADER = "SMFX unpacking journal 2";
+	/** How many items are kept in memory before writing them to the journal. */
+	private static final int BATCH_SIZE = 256;
+
+	private final File file;
+	private final String fingerprint;
+
+	/** The items that were finished in a previous run, with the names of the files they wrote, for every package. */
+	private final Map<Integer, Map<ResourceKey, List<String>>> finishedItems = new HashMap<>();
+	/** The names of the files of every output folder, only read when resuming. */
+	private final Map<File, Set<String>> folderNames = new HashMap<>();
+
+	private FileOutputStream output;
+	private final StringBuilder pendingLines = new StringBuilder();
+	private int pendingCount;
+
+	private DBPFUnpackingJournal(File file, String fingerprint) {
+		this.file = file;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Returns the journal used when unpacking the given packages into the given folder. If there is a journal of a previous unpack
+	 * of the same packages that did not finish, its items will be considered as finished.
+	 * @param inputFiles The input packages, in order of priority.
+	 * @param outputFolder The folder where the packages are unpacked.
+	 * @param converters The converters used to unpack the packages.
+	 * @param itemFilterName A name that identifies the filter of the items that are unpacked, or null if all items are unpacked.
+	 * @return
+	 * @throws IOException
+	 */
+	public static DBPFUnpackingJournal open(List<File> inputFiles, File outputFolder, List<Converter> converters, String itemFilterName) throws IOException {
+		File folder = new File(PathManager.get().getCacheFolder(), CACHE_FOLDER);
+		folder.mkdirs();
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(outputFolder.getAbsolutePath());
+		for (File inputFile : inputFiles) {
+			sb.append('|').append(inputFile.getAbsolutePath()).append('|').append(inputFile.length()).append('|').append(inputFile.lastModified());
+		}
+		for (Converter converter : converters) {
+			sb.append('|').append(converter.getClass().getName());
+		}
+		sb.append('|').append(itemFilterName == null ? "" : itemFilterName);
+		String fingerprint = sha256(sb.toString());
+
+		// Only one journal per output folder
+		File file = new File(folder, sha256(outputFolder.getAbsolutePath()).substring(0, 16) + ".txt");
+
+		DBPFUnpackingJournal journal = new DBPFUnpackingJournal(file, fingerprint);
+		journal.load();
+		return journal;
+	}
+
+	private static String sha256(String text) throws IOException {
+		try {
+			byte[] bytes = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(bytes.length * 2);
+			for (byte b : bytes) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void load() throws IOException {
+		boolean isValid = false;
+		if (file.isFile()) {
+			try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				isValid = HEADER.equals(reader.readLine()) && fingerprint.equals(reader.readLine());
+
+				String line;
+				while (isValid && (line = reader.readLine()) != null) {
+					// The item and the names of its files are separated by tabs, as names can contain spaces
+					String[] fields = line.split("\t");
+					String[] splits = fields[0].split(" ");
+					// The last line might be incomplete if the program was closed while writing it
+					if (splits.length != 4 || fields.length < 2 || !fields[fields.length - 1].endsWith("/")) continue;
+					try {
+						int packageIndex = Integer.parseInt(splits[0]);
+						ResourceKey key = new ResourceKey(Integer.parseUnsignedInt(splits[1], 16),
+								Integer.parseUnsignedInt(splits[2], 16), Integer.parseUnsignedInt(splits[3], 16));
+						// The last name is followed by '/', which cannot be part of a file name
+						fields[fields.length - 1] = fields[fields.length - 1].substring(0, fields[fields.length - 1].length() - 1);
+						finishedItems.computeIfAbsent(packageIndex, index -> new HashMap<>())
+							.put(key, Arrays.asList(fields).subList(1, fields.length));
+					}
+					catch (NumberFormatException e) {
+						continue;
+					}
+				}
+			}
+		}
+
+		if (isValid) {
+			output = new FileOutputStream(file, true);
+		}
+		else {
+			finishedItems.clear();
+			output = new FileOutputStream(file);
+			output.write((HEADER + '\n' + fingerprint + '\n').getBytes(StandardCharsets.UTF_8));
+			output.getChannel().force(false);
+		}
+	}
+
+	/**
+	 * Returns true if a previous unpack of the same packages was interrupted, so this one continues it.
+	 * If this is false, the output folder must be cleared before unpacking.
+	 * @return
+	 */
+	public boolean isResuming() {
+		return !finishedItems.isEmpty();
+	}
+
+	/**
+	 * Returns true if the item was unpacked in a previous run and all the files it wrote are still in the folder.
+	 * @param packageIndex
+	 * @param key
+	 * @param folder The folder where the item is unpacked.
+	 * @return
+	 */
+	public boolean isItemFinished(int packageIndex, ResourceKey key, File folder) {
+		Map<ResourceKey, List<String>> items = finishedItems.get(packageIndex);
+		List<String> outputNames = items == null ? null : items.get(key);
+		if (outputNames == null) return false;
+
+		Set<String> names = folderNames.get(folder);
+		if (names == null) {
+			names = new HashSet<>();
+			String[] list = folder.list();
+			if (list != null) {
+				for (String name : list) names.add(name);
+			}
+			folderNames.put(folder, names);
+		}
+
+		return names.containsAll(outputNames);
+	}
+
+	/**
+	 * Records that an item has been completely written. This can be called from multiple threads.
+	 * @param packageIndex
+	 * @param key
+	 * @param outputNames The names of the files (or folders) that the item wrote in its output folder; if there are none, the item will be unpacked again.
+	 * @throws IOException
+	 */
+	public synchronized void itemFinished(int packageIndex, ResourceKey key, List<String> outputNames) throws IOException {
+		pendingLines.append(packageIndex).append(' ')
+			.append(Integer.toHexString(key.getGroupID())).append(' ')
+			.append(Integer.toHexString(key.getInstanceID())).append(' ')
+			.append(Integer.toHexString(key.getTypeID()));
+		for (String name : outputNames) {
+			pendingLines.append('\t').append(name);
+		}
+		pendingLines.append("/\n");
+
+		if (++pendingCount >= BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes all the finished items to disk.
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		if (pendingCount == 0 || output == null) return;
+		output.write(pendingLines.toString().getBytes(StandardCharsets.UTF_8));
+		output.getChannel().force(false);
+		pendingLines.setLength(0);
+		pendingCount = 0;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (output != null) {
+			flush();
+			output.close();
+			output = null;
+		}
+	}
+
+	/**
+	 * Deletes the journal; this must be called when all the packages have been unpacked successfully.
+	 * @throws IOException
+	 */
+	public synchronized void delete() throws IOException {
+		if (output != null) {
+			output.close();
+			output = null;
+		}
+		pendingLines.setLength(0);
+		pendingCount = 0;
+		Files.deleteIfExists(file.toPath());
+	}
+}
@@ -27,10 +27,8 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
@@ -41,7 +39,8 @@ import sporemodder.MessageManager;
 import sporemodder.MessageManager.MessageType;
 import sporemodder.ProjectManager;
 import sporemodder.file.Converter;
-import sporemodder.file.ResourceKey;
+import sporemodder.file.ConverterTable;
+import sporemodder.file.ResourceKeySet;
 import sporemodder.file.filestructures.FileStream;
 import sporemodder.file.filestructures.MemoryStream;
 import sporemodder.file.filestructures.StreamReader;
@@ -81,12 +80,16 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 	
 	/** All the converters used .*/
 	private final List<Converter> converters;
+	/** Used to find the converters of every file without checking all of them. */
+	private ConverterTable converterTable;
 	
 	/** How much time the operation took, in milliseconds. */
 	private long ellapsedTime;
 	
 	/** An optional filter that defines which items should be unpacked (true) and which shouldn't (false). */
 	private DBPFItemFilter itemFilter;
+	/** A name that identifies the item filter, so an unpack is only continued if it uses the same filter. */
+	private String itemFilterName;
 	
 	private Project project;
 	
@@ -98,6 +101,14 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 	private boolean noJavaFX = false;
 	private Consumer<Double> noJavaFXProgressListener;
 	
+	/** Whether a journal of the unpacked items is kept, so an interrupted unpack can be continued later. */
+	private boolean useJournal = true;
+	private DBPFUnpackingJournal journal;
+	/** How many items were not unpacked because a previous, interrupted unpack already did it. */
+	private int resumedItemCount;
+	/** An optional profiler that measures how long every item takes to be unpacked. */
+	private DBPFProfiler profiler;
+	
 	public DBPFUnpackingTask(File inputFile, File outputFolder, Project project, List<Converter> converters) {
 		this.inputFiles.add(inputFile);
 		this.outputFolder = outputFolder;
@@ -186,10 +197,56 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 	 * @param itemFilter
 	 */
 	public void setItemFilter(DBPFItemFilter itemFilter) {
+		// Lambdas don't keep the same class name between executions, so those unpacks are never continued
+		setItemFilter(itemFilter, itemFilter == null ? null : itemFilter.getClass().getName());
+	}
+	
+	/**
+	 * Sets a method that decides which items are unpacked and which are ignored. The name identifies the filter
+	 * and must not change between executions of the program, as it is used to decide if an interrupted unpack can be continued.
+	 * @param itemFilter
+	 * @param itemFilterName
+	 */
+	public void setItemFilter(DBPFItemFilter itemFilter, String itemFilterName) {
 		this.itemFilter = itemFilter;
+		this.itemFilterName = itemFilter == null ? null : itemFilterName;
 	}
 
 	
+	/**
+	 * Sets whether a journal of the unpacked items is kept. If it is, and the program is closed before finishing,
+	 * unpacking the same packages into the same folder again only unpacks the items that were not finished.
+	 * It is enabled by default; it is never used when unpacking a stream.
+	 * @param useJournal
+	 */
+	public void setUseJournal(boolean useJournal) {
+		this.useJournal = useJournal;
+	}
+	
+	/**
+	 * Returns how many items were skipped because they had already been unpacked by a previous, interrupted unpack.
+	 * @return
+	 */
+	public int getResumedItemCount() {
+		return resumedItemCount;
+	}
+	
+	/**
+	 * Sets a profiler that measures the time, allocations and sizes of every item that is unpacked; by default there is none.
+	 * @param profiler
+	 */
+	public void setProfiler(DBPFProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	/**
+	 * Returns the profiler that measures every unpacked item, or null if the unpack is not being profiled.
+	 * @return
+	 */
+	public DBPFProfiler getProfiler() {
+		return profiler;
+	}
+	
 	public boolean isParallel() {
 		return isParallel;
 	}
@@ -213,17 +270,66 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 		}
 	}
 
-	private void unpackStream(StreamReader packageStream, Map<Integer, Set<ResourceKey>> writtenFiles, double progressFraction) throws IOException, InterruptedException {
-		HashManager hasher = HashManager.get();
-			
-		updateMessage("Reading file index...");
-
+	private static DatabasePackedFile readPackageIndex(StreamReader packageStream) throws IOException {
 		DatabasePackedFile header = new DatabasePackedFile();
 		header.readHeader(packageStream);
 		header.readIndex(packageStream);
+		header.index.readItems(packageStream, header.indexCount, header.isDBBF);
+		return header;
+	}
+	
+	/**
+	 * Reads the index of all the input packages and decides which package writes every file: if the same file is in more
+	 * than one package, only the first one (the one with highest priority) writes it. This is done before unpacking anything,
+	 * so the files that will be skipped are never read nor decompressed.
+	 * @param headers The list where the header and index of every input package is added, null if the package does not exist.
+	 * @return For every input package, an array that tells which of its items are skipped.
+	 * @throws IOException
+	 */
+	private List<boolean[]> resolvePackagePriorities(List<DatabasePackedFile> headers) throws IOException {
+		updateMessage("Reading file indices...");
+		
+		List<boolean[]> skippedItems = new ArrayList<>();
+		ResourceKeySet writtenFiles = new ResourceKeySet();
+		
+		for (File inputFile : inputFiles) {
+			if (!inputFile.exists()) {
+				headers.add(null);
+				skippedItems.add(null);
+				continue;
+			}
+			
+			DatabasePackedFile header;
+			try (StreamReader packageStream = new FileStream(inputFile, "r"))  {
+				header = readPackageIndex(packageStream);
+			}
+			
+			List<DBPFItem> items = header.index.items;
+			boolean[] skipped = new boolean[items.size()];
+			for (int i = 0; i < skipped.length; ++i) {
+				DBPFItem item = items.get(i);
+				// Files that are filtered out are not written, so they must not hide files from other packages
+				if (itemFilter == null || itemFilter.filter(item)) {
+					skipped[i] = !writtenFiles.add(item.name);
+				}
+			}
+			
+			headers.add(header);
+			skippedItems.add(skipped);
+		}
+		
+		return skippedItems;
+	}
+
+	private void unpackStream(StreamReader packageStream, int packageIndex, DatabasePackedFile header, boolean[] skippedItems, double progressFraction) throws IOException, InterruptedException {
+		HashManager hasher = HashManager.get();
+		
+		if (header == null) {
+			updateMessage("Reading file index...");
+			header = readPackageIndex(packageStream);
+		}
 		
 		DBPFIndex index = header.index;
-		index.readItems(packageStream, header.indexCount, header.isDBBF);
 		
 		incProgress(INDEX_PROGRESS * progressFraction);
 		// How much each file adds to the progress
@@ -256,16 +362,11 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 			int groupID = item.name.getGroupID();
 			int instanceID = item.name.getInstanceID();
 			
-			// Skip files if they have already been written by higher priority packages
-			if (writtenFiles != null) {
-				Set<ResourceKey> groupSet = writtenFiles.get(groupID);
-				if (groupSet != null) {
-					if (groupSet.contains(item.name)) {
-						latch.countDown();
-						incProgress(inc);
-						continue;
-					}
-				}
+			// Skip files if they are written by higher priority packages
+			if (skippedItems != null && skippedItems[itemIndex]) {
+				latch.countDown();
+				incProgress(inc);
+				continue;
 			}
 			
 			String fileName = hasher.getFileName(instanceID);
@@ -279,9 +380,20 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 			
 			
 			File folder = new File(outputFolder, hasher.getFileName(groupID));
+			
+			// Skip files that were unpacked before the program was closed, as long as they are still there;
+			// editor packages are always processed, as they are used to set the package signature
+			if (journal != null && !(setPackageSignature && groupID == 0x40404000)
+					&& journal.isItemFinished(packageIndex, item.name, folder)) {
+				++resumedItemCount;
+				latch.countDown();
+				incProgress(inc);
+				continue;
+			}
+			
 			folder.mkdir();
 			
-			FileConvertAction action = new FileConvertAction(item, folder, item.processFile(packageStream), inc, latch);
+			FileConvertAction action = new FileConvertAction(item, packageIndex, folder, item.processFile(packageStream), inc, latch);
 			if (isParallel) {
 				if (itemIndex == index.items.size() - 1 || ForkJoinPool.commonPool().getQueuedSubmissionCount() >= maxTasks) {
 					// Execute in same thread if it's the last item or if we have many tasks waiting
@@ -293,15 +405,6 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 			} else {
 				action.compute();
 			}
-				
-			if (writtenFiles != null) {
-				Set<ResourceKey> groupSet = writtenFiles.get(groupID);
-				if (groupSet == null) {
-					groupSet = new HashSet<>();
-					writtenFiles.put(groupID, groupSet);
-				}
-				groupSet.add(item.name);
-			}
 		}
 		
 		// Await for all files to finish writing
@@ -318,22 +421,36 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 		
 		long initialTime = System.currentTimeMillis();
 		
+		converterTable = new ConverterTable(converters);
+		
 		if (inputStream != null) {
-			unpackStream(inputStream, null, 1.0);
+			unpackStream(inputStream, 0, null, null, 1.0);
 		}
 		else {
 			double progressFactor = 1.0;
 			
+			if (useJournal) {
+				try {
+					journal = DBPFUnpackingJournal.open(inputFiles, outputFolder, converters, itemFilterName);
+				}
+				catch (Exception e) {
+					return e;
+				}
+			}
+			boolean isResuming = journal != null && journal.isResuming();
+			
 			if (project != null) {
-				updateMessage("Clearing folder...");
+				updateMessage(isResuming ? "Resuming unpack..." : "Clearing folder...");
 				try {
-					ProjectManager.get().initializeProject(project);
+					// If we are continuing a previous unpack, keep the files that were already unpacked
+					ProjectManager.get().initializeProject(project, !isResuming);
 				}
 				catch (Exception e) {
 					e.printStackTrace();
 					for (File inputFile : inputFiles) {
 						failedDBPFs.add(inputFile);
 					}
+					closeJournal();
 					return e;
 				}
 				incProgress(CLEAR_FOLDER_PROGRESS);
@@ -342,8 +459,18 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 			}
 			
 			
-			final HashMap<Integer, Set<ResourceKey>> writtenFiles = new HashMap<>();
-			boolean checkFiles = inputFiles.size() > 1;  // only check already existing files if we are unpacking more than one package at once
+			// only check already existing files if we are unpacking more than one package at once
+			List<DatabasePackedFile> headers = new ArrayList<>();
+			List<boolean[]> skippedItems = null;
+			if (inputFiles.size() > 1) {
+				try {
+					skippedItems = resolvePackagePriorities(headers);
+				}
+				catch (Exception e) {
+					closeJournal();
+					return e;
+				}
+			}
 			
 			long[] fileSizes = new long[inputFiles.size()];
 			long totalFileSize = 0;
@@ -361,8 +488,8 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 			// FIX: We only reset them once, here. Only SmtConverter was using reset anyways so its fine
 			for (Converter converter : converters) converter.reset();
 			
-			int i = 0;
-			for (File inputFile : inputFiles) {
+			for (int i = 0; i < inputFiles.size(); ++i) {
+				File inputFile = inputFiles.get(i);
 				double projectProgress = progressFactor * (double)fileSizes[i] / totalFileSize;
 				
 				if (!inputFile.exists()) {
@@ -371,16 +498,26 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 				}
 				
 				try (StreamReader packageStream = new FileStream(inputFile, "r"))  {
-					unpackStream(packageStream, checkFiles ? writtenFiles : null, projectProgress);
+					if (skippedItems != null) {
+						unpackStream(packageStream, i, headers.get(i), skippedItems.get(i), projectProgress);
+					} else {
+						unpackStream(packageStream, i, null, null, projectProgress);
+					}
 				}
 				catch (Exception e) {
+					closeJournal();
 					return e;
 				}
-				++i;
+			}
+			
+			// Everything was unpacked, there is nothing to continue
+			if (journal != null) {
+				journal.delete();
 			}
 		}
 		
 		ellapsedTime = System.currentTimeMillis() - initialTime;
+		if (profiler != null) profiler.setTotalNanos(ellapsedTime * 1000000L);
 		
 		// Ensure the taskbar progress is over
 		updateProgress(1.0, 1.0);
@@ -407,6 +544,17 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 		return ellapsedTime;
 	}
 
+	/** Saves the items that have been unpacked, so that the next unpack of the same packages continues from them. */
+	private void closeJournal() {
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	private void incProgress(double increment) {
 		progress += increment;
 		updateProgress(progress, 1.0);
@@ -420,15 +568,51 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 		return failedDBPFs;
 	}
 	
+	/**
+	 * Returns the names of the files (or folders) inside the folder that an item wrote since the given time. Converters can add
+	 * extensions, but all outputs start with the item name; files of other items with the same name are only included if they were
+	 * written at the same time, which just makes the journal check more of them.
+	 * @param folder
+	 * @param fileName
+	 * @param startTime
+	 * @return
+	 */
+	private static List<String> findOutputNames(File folder, String fileName, long startTime) {
+		String prefix = fileName + '.';
+		List<String> names = new ArrayList<>();
+		File[] files = folder.listFiles((dir, name) -> name.startsWith(prefix));
+		if (files != null) {
+			for (File file : files) {
+				if (isModifiedSince(file, startTime)) names.add(file.getName());
+			}
+		}
+		return names;
+	}
+	
+	private static boolean isModifiedSince(File file, long time) {
+		// Some file systems only store the modification time in seconds
+		if (file.lastModified() >= time - 2000) return true;
+		// Writing files inside a folder that already existed does not change its modification time
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				if (isModifiedSince(child, time)) return true;
+			}
+		}
+		return false;
+	}
+	
 	private class FileConvertAction extends RecursiveAction {
 		final DBPFItem item;
+		final int packageIndex;
 		final File folder;
 		final MemoryStream dataStream;
 		final double inc;
 		final CountDownLatch latch;
 		
-		FileConvertAction(DBPFItem item, File folder, MemoryStream dataStream, double inc, CountDownLatch latch) {
+		FileConvertAction(DBPFItem item, int packageIndex, File folder, MemoryStream dataStream, double inc, CountDownLatch latch) {
 			this.item = item;
+			this.packageIndex = packageIndex;
 			this.folder = folder;
 			this.dataStream = dataStream;
 			this.inc = inc;
@@ -436,6 +620,9 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 		}
 		
 		@Override public void compute() {
+			DBPFProfiler.Measurement measurement = profiler == null ? null : profiler.start();
+			String usedConverter = DBPFProfiler.NO_CONVERTER;
+			long startTime = System.currentTimeMillis();
 			try {
 				HashManager hasher = HashManager.get();
 				int groupID = item.name.getGroupID();
@@ -457,11 +644,12 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 				}
 				else {
 					try {
-						for (Converter converter : converters) {
+						for (Converter converter : converterTable.getDecoderCandidates(item.name)) {
 							if (converter.isDecoder(item.name)) {
 								
 								if (converter.decode(dataStream, folder, item.name)) {
 									isConverted = true;
+									usedConverter = converter.getName();
 									break;
 								}
 								else {
@@ -487,11 +675,27 @@ public class DBPFUnpackingTask extends ResumableTask<Exception> {
 					String name = hasher.getFileName(item.name.getInstanceID()) + "." + hasher.getTypeName(item.name.getTypeID());
 					dataStream.writeToFile(new File(folder, name));
 				}
+				
+				if (journal != null) {
+					journal.itemFinished(packageIndex, item.name, findOutputNames(folder, hasher.getFileName(instanceID), startTime));
+				}
 			}
 			catch (Exception e) {
 				exceptions.put(item, e);
 			}
 			finally {
+				if (measurement != null) {
+					HashManager hasher = HashManager.get();
+					DBPFProfiler.FileRecord record = new DBPFProfiler.FileRecord();
+					record.path = hasher.getFileName(item.name.getGroupID()) + '/' + hasher.getFileName(item.name.getInstanceID())
+							+ '.' + hasher.getTypeName(item.name.getTypeID());
+					record.converter = usedConverter;
+					record.bytesIn = item.compressedSize;
+					record.bytesOut = item.memSize;
+					record.compressedBytes = item.compressedSize;
+					record.uncompressedBytes = item.memSize;
+					measurement.finish(record);
+				}
 				dataStream.close();
 				incProgress(inc);
 				latch.countDown();
@@ -24,12 +24,20 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import sporemodder.HashManager;
 import sporemodder.MainApp;
@@ -314,16 +322,76 @@ public class EffectDirectory {
 	}
 	
 	public void process(File folder, DBPFPacker packer) throws IOException {
-		for (File file : folder.listFiles()) {
-			if (file.getName().endsWith(".pfx")) {
+		File[] files = folder.listFiles((dir, name) -> name.endsWith(".pfx"));
+		// Always add the units in the same order, so the output doesn't depend on the file system;
+		// the order ignores the case, like the names do on Windows
+		Arrays.sort(files, Comparator.comparing(File::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(File::getName));
+		
+		if (files.length <= 1) {
+			for (File file : files) {
 				if (packer != null) packer.setCurrentFile(file);
-				
 				processUnit(file, folder);
 			}
+			return;
+		}
+		
+		// Parsing a unit does not depend on the others, so they are parsed in parallel and then added in order
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(files.length, Runtime.getRuntime().availableProcessors()));
+		// The packing cache must know the files included by the units parsed in other threads
+		Consumer<File> includeListener = ArgScriptStream.getIncludeListener();
+		try {
+			List<Future<EffectUnit>> futures = new ArrayList<>();
+			for (File file : files) {
+				futures.add(executor.submit(() -> {
+					ArgScriptStream.setIncludeListener(includeListener);
+					try {
+						return parseUnit(file, folder);
+					}
+					finally {
+						ArgScriptStream.setIncludeListener(null);
+					}
+				}));
+			}
+			
+			// Wait in the same order, so the reported error is always the first one
+			for (int i = 0; i < files.length; ++i) {
+				if (packer != null) packer.setCurrentFile(files[i]);
+				
+				EffectUnit unit;
+				try {
+					unit = futures.get(i).get();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Compiling effects was interrupted.", e);
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) throw (IOException) cause;
+					if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+					throw new IOException(cause);
+				}
+				addEffectUnit(unit);
+			}
+		}
+		finally {
+			executor.shutdownNow();
 		}
 	}
 	
 	public void processUnit(File file, File parentFolder) throws IOException {
+		addEffectUnit(parseUnit(file, parentFolder));
+	}
+	
+	/**
+	 * Parses a .pfx file into a new effect unit, without adding it to this directory. This does not modify the directory,
+	 * so multiple units can be parsed at the same time.
+	 * @param file
+	 * @param parentFolder The folder used to resolve included files.
+	 * @return
+	 * @throws IOException If the file cannot be read or it has errors.
+	 */
+	public EffectUnit parseUnit(File file, File parentFolder) throws IOException {
 		EffectUnit unit = new EffectUnit(this);
 		ArgScriptStream<EffectUnit> stream = unit.generateStream();
 		stream.setFastParsing(true);
@@ -348,7 +416,7 @@ public class EffectDirectory {
 			throw new IOException(sb.toString());
 		}
 		
-		addEffectUnit(unit);
+		return unit;
 	}
 	
 	public void read(StreamReader stream) throws IOException {
@@ -623,6 +691,23 @@ public class EffectDirectory {
 		}
 	}
 	
+	/**
+	 * The contents of a single .pfx file generated by {@link #toArgScript(File)}: the elements it contains, in order,
+	 * and the export commands written after them.
+	 */
+	private static class PfxOutput {
+		private final File file;
+		private final List<EffectFileElement> elements = new ArrayList<>();
+		/** Export commands that go after the main one, separated by an empty line. */
+		private final List<String> extraExports = new ArrayList<>();
+		private String exportName;
+		private String exportAlias;
+		
+		private PfxOutput(File file) {
+			this.file = file;
+		}
+	}
+	
 	public void toArgScript(File outputFolder) throws IOException {
 		if (!outputFolder.exists()) outputFolder.mkdir();
 		
@@ -653,34 +738,34 @@ public class EffectDirectory {
 			if (list != null) writtenResources[i] = new boolean[list.size()];
 		}
 		
+		// First decide what goes into every file; this is what fills the written bitmaps, so it must be done in order.
+		// A file that uses an existing name replaces the previous one, like it would happen when writing them one by one
+		Map<String, PfxOutput> outputs = new LinkedHashMap<>();
 		Set<VisualEffect> writtenExporteds = new HashSet<VisualEffect>();
 		
 		for (Map.Entry<String, VisualEffect> export : exports.entrySet()) {
+			String name = export.getValue().getName();
 			if (writtenExporteds.contains(export.getValue())) {
 				// Just add the renamed export at the end of the file
-				try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(outputFolder, export.getValue().getName() + ".pfx"), true))) {
-					writer.newLine();
-					if (!export.getKey().equals(export.getValue().getName())) {
-						writer.write("export " + export.getValue().getName() + " " + export.getKey());
-					}
-					else {
-						writer.write("export " + export.getKey());
-					}
+				if (!export.getKey().equals(name)) {
+					outputs.get(name).extraExports.add("export " + name + " " + export.getKey());
+				}
+				else {
+					outputs.get(name).extraExports.add("export " + export.getKey());
 				}
 			}
 			else {
-				ArgScriptWriter writer = new ArgScriptWriter();
-				Set<EffectFileElement> writtenElements = new HashSet<EffectFileElement>();
+				PfxOutput output = new PfxOutput(new File(outputFolder, name + ".pfx"));
+				collectEffectsPfxRecursive(export.getValue(), output.elements, new HashSet<EffectFileElement>(), writtenEffects, writtenResources);
 				
-				writeEffectsPfxRecursive(export.getValue(), writer, writtenElements, writtenEffects, writtenResources);
-			
-				writer.command("export").arguments(export.getValue().getName());
-				if (!export.getKey().equals(export.getValue().getName())) {
-					writer.arguments(export.getKey());
+				output.exportName = name;
+				if (!export.getKey().equals(name)) {
+					output.exportAlias = export.getKey();
 				}
 				writtenExporteds.add(export.getValue());
 				
-				writer.write(new File(outputFolder, export.getValue().getName() + ".pfx"));
+				outputs.remove(name);
+				outputs.put(name, output);
 			}
 		}
 		
@@ -691,13 +776,7 @@ public class EffectDirectory {
 			List<EffectComponent> list = components.get(VisualEffect.TYPE_CODE);
 			for (int i = 0; i < writtenEffects[VisualEffect.TYPE_CODE].length; ++i) {
 				if (!writtenEffects[VisualEffect.TYPE_CODE][i]) {
-					
-					ArgScriptWriter writer = new ArgScriptWriter();
-					Set<EffectFileElement> writtenElements = new HashSet<EffectFileElement>();
-					
-					writeEffectsPfxRecursive(list.get(i), writer, writtenElements, writtenEffects, writtenResources);
-					
-					writer.write(new File(outputFolder, list.get(i).getName() + ".pfx"));
+					collectUnusedPfx(list.get(i), outputFolder, outputs, writtenEffects, writtenResources);
 				}
 			}
 		}
@@ -707,13 +786,7 @@ public class EffectDirectory {
 				List<EffectComponent> list = components.get(j);
 				for (int i = 0; i < writtenEffects[j].length; ++i) {
 					if (!writtenEffects[j][i]) {
-						
-						ArgScriptWriter writer = new ArgScriptWriter();
-						Set<EffectFileElement> writtenElements = new HashSet<EffectFileElement>();
-						
-						writeEffectsPfxRecursive(list.get(i), writer, writtenElements, writtenEffects, writtenResources);
-						
-						writer.write(new File(outputFolder, list.get(i).getName() + ".pfx"));
+						collectUnusedPfx(list.get(i), outputFolder, outputs, writtenEffects, writtenResources);
 					}
 				}
 			}
@@ -724,44 +797,119 @@ public class EffectDirectory {
 				List<EffectResource> list = resources.get(j);
 				for (int i = 0; i < writtenResources[j].length; ++i) {
 					if (!writtenResources[j][i]) {
-						
-						ArgScriptWriter writer = new ArgScriptWriter();
-						Set<EffectFileElement> writtenElements = new HashSet<EffectFileElement>();
-						
-						writeEffectsPfxRecursive(list.get(i), writer, writtenElements, writtenEffects, writtenResources);
-						
-						writer.write(new File(outputFolder, list.get(i).getName() + ".pfx"));
+						collectUnusedPfx(list.get(i), outputFolder, outputs, writtenEffects, writtenResources);
 					}
 				}
 			}
 		}
+		
+		// Now every file is independent, so they can be converted to text and written in parallel
+		List<PfxOutput> outputList = new ArrayList<>(outputs.values());
+		if (outputList.size() <= 1) {
+			for (PfxOutput output : outputList) {
+				writePfx(output);
+			}
+			return;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(outputList.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (PfxOutput output : outputList) {
+				futures.add(executor.submit(() -> {
+					writePfx(output);
+					return null;
+				}));
+			}
+			
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Writing effects was interrupted.", e);
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) throw (IOException) cause;
+					if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+					throw new IOException(cause);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
 	}
 	
-	private void writeEffectsPfxRecursive(EffectFileElement element, ArgScriptWriter writer, 
-			Set<EffectFileElement> writtenElements, boolean[][] writtenEffects, boolean[][] writtenResources) throws IOException {
+	private void collectUnusedPfx(EffectFileElement element, File outputFolder, Map<String, PfxOutput> outputs,
+			boolean[][] writtenEffects, boolean[][] writtenResources) {
 		
-		if (element.getFactory() == null) {
-			// imports
+		PfxOutput output = new PfxOutput(new File(outputFolder, element.getName() + ".pfx"));
+		collectEffectsPfxRecursive(element, output.elements, new HashSet<EffectFileElement>(), writtenEffects, writtenResources);
+		
+		outputs.remove(element.getName());
+		outputs.put(element.getName(), output);
+	}
+	
+	/**
+	 * Converts the elements of a file to ArgScript and writes it. This only reads the directory, so it can be called
+	 * for multiple files at the same time.
+	 * @param output
+	 * @throws IOException
+	 */
+	private void writePfx(PfxOutput output) throws IOException {
+		ArgScriptWriter writer = new ArgScriptWriter();
+		for (EffectFileElement element : output.elements) {
+			if (element.getFactory() != null && OUTPUT_FILE_OFFSETS) {
+				writer.tabulatedText("# File offset: 0x" + Long.toHexString(fileOffsets.get(element)), true);
+			}
 			element.toArgScript(writer);
 			writer.blankLine();
+		}
+		
+		if (output.exportName != null) {
+			writer.command("export").arguments(output.exportName);
+			if (output.exportAlias != null) {
+				writer.arguments(output.exportAlias);
+			}
+		}
+		
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(output.file))) {
+			out.write(writer.toString());
+			out.newLine();
+			for (String line : output.extraExports) {
+				out.newLine();
+				out.write(line);
+			}
+		}
+	}
+	
+	/**
+	 * Adds to the list the elements that must be written in the file of the given element, that is, the element itself
+	 * preceded by all the elements it uses that haven't been added yet. Those are marked as written in the given arrays.
+	 */
+	private void collectEffectsPfxRecursive(EffectFileElement element, List<EffectFileElement> output, 
+			Set<EffectFileElement> writtenElements, boolean[][] writtenEffects, boolean[][] writtenResources) {
+		
+		if (element.getFactory() == null) {
+			// imports
+			output.add(element);
 		} else {
 			List<EffectFileElement> effects = element.getUsedElements();
 			
 			if (effects != null) {
 				for (EffectFileElement effect : effects) {
 					if (effect != null && !writtenElements.contains(effect)) {
-						writeEffectsPfxRecursive(effect, writer, writtenElements, writtenEffects, writtenResources);
+						collectEffectsPfxRecursive(effect, output, writtenElements, writtenEffects, writtenResources);
 					}
 				}
 			}
 			
 			if (element.isEffectComponent()) {
 				if (!((EffectComponent) element).getFactory().onlySupportsInline()) {
-					if (OUTPUT_FILE_OFFSETS) {
-						writer.tabulatedText("# File offset: 0x" + Long.toHexString(fileOffsets.get(element)), true);
-					}
-					element.toArgScript(writer);
-					writer.blankLine();
+					output.add(element);
 				}
 				
 				// Mark the effect as written
@@ -775,11 +923,7 @@ public class EffectDirectory {
 					}
 				}
 			} else {
-				if (OUTPUT_FILE_OFFSETS) {
-					writer.tabulatedText("# File offset: 0x" + Long.toHexString(fileOffsets.get(element)), true);
-				}
-				element.toArgScript(writer);
-				writer.blankLine();
+				output.add(element);
 				
 				// Mark the effect as written
 				int typeCode = element.getFactory().getTypeCode();
@@ -119,6 +119,11 @@ public class EffectsConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == TYPE_ID;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {TYPE_ID};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -131,6 +136,12 @@ public class EffectsConverter implements Converter {
 		checkExtensions();
 		return file.isDirectory() && file.getName().endsWith("." + extension + ".unpacked");
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return new String[] {"." + extension + ".unpacked"};
+	}
 
 	@Override
 	public String getName() {
@@ -142,6 +153,16 @@ public class EffectsConverter implements Converter {
 		return true;
 	}
 
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public int getOriginalTypeID(String extension) {
 		return TYPE_ID;
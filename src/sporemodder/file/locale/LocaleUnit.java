@@ -22,6 +22,19 @@ public class LocaleUnit {
 		return entries.get(id);
 	}
 	
+	/**
+	 * Returns an estimation of how many bytes of memory this locale table uses.
+	 * @return
+	 */
+	public long getEstimatedBytes() {
+		long bytes = 64;
+		for (String text : entries.values()) {
+			// The map entry, the integer key and the string
+			bytes += 96 + text.length() * 2;
+		}
+		return bytes;
+	}
+	
 	public void read(String text) throws Exception {
 		String[] lines = text.split("\\r?\\n");
 		for (String line : lines) {
@@ -100,6 +100,11 @@ public class PCTPConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == 0x7C19AA7A;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {0x7C19AA7A};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -112,6 +117,12 @@ public class PCTPConverter implements Converter {
 		checkExtensions();
 		return file.isFile() && file.getName().endsWith("." + extension + ".pctp_t");
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return new String[] {"." + extension + ".pctp_t"};
+	}
 
 	@Override
 	public String getName() {
@@ -123,6 +134,16 @@ public class PCTPConverter implements Converter {
 		return true;
 	}
 
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public int getOriginalTypeID(String extension) {
 		checkExtensions();
@@ -200,6 +200,11 @@ public class PropConverter implements Converter {
 		key.getTypeID() == 0x0497925E || 
 		key.getTypeID() == 0x03F51892;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {0x00B1B104, 0x02B9F662, 0x02C9EFF2, 0x0497925E, 0x03F51892};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -229,6 +234,17 @@ public class PropConverter implements Converter {
 			file.getName().endsWith("." + childrenExtension + ".prop_t")
 		);
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		checkExtensions();
+		List<String> suffixes = new ArrayList<>();
+		for (String ext : new String[] {extension, soundExtension, audioExtension, submixExtension, modeExtension, childrenExtension}) {
+			suffixes.add("." + ext + ".xml");
+			suffixes.add("." + ext + ".prop_t");
+		}
+		return suffixes.toArray(new String[0]);
+	}
 
 	@Override
 	public String getName() {
@@ -245,6 +261,16 @@ public class PropConverter implements Converter {
 		return true;
 	}
 
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public int getOriginalTypeID(String extension) {
 		checkExtensions();
@@ -111,6 +111,11 @@ public class RenderWareConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == 0x2F4E681B;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {0x2F4E681B};
+	}
 
 	@Override
 	public boolean isEncoder(File file) {
@@ -119,6 +124,14 @@ public class RenderWareConverter implements Converter {
 		}
 		return file.isFile() && file.getName().endsWith(extension);
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		if (extension == null) {
+			extension = "." + HashManager.get().getTypeName(0x2F4E681B) + ".dds";
+		}
+		return new String[] {extension};
+	}
 
 	@Override
 	public String getName() {
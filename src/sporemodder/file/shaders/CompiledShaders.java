@@ -23,8 +23,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -308,171 +306,88 @@ public class CompiledShaders {
 		
 		if (precompiledVSHFile != null) {
 			if (packer != null) packer.setCurrentFile(precompiledVSHFile);
-			
-			List<String> lines = Files.readAllLines(precompiledVSHFile.toPath());
-			for (String line : lines) {
-				int indexOf = line.indexOf("#");
-				if (indexOf != -1) line = line.substring(indexOf);
-				line = line.trim();
-				if (line.isEmpty()) continue;
-				
-				String[] splits = line.split("\\s");
-				int[] indices = new int[splits.length];
-				for (int i = 0; i < splits.length; ++i) {
-					indices[i] = vsMap.get(splits[i]);
-				}
-				try {
-					compileShader(fragments, indices, true);
-				}
-				catch (Exception e) {
-					e.printStackTrace();
-					throw new IOException("Error compiling \"" + Arrays.toString(splits) + "\": " + e.getMessage());
-				}
-			}
+			compilePrecompiled(precompiledVSHFile, fragments, vsMap, true);
 		}
 		
 		if (precompiledPSHFile != null) {
 			if (packer != null) packer.setCurrentFile(precompiledPSHFile);
-			
-			List<String> lines = Files.readAllLines(precompiledPSHFile.toPath());
-			for (String line : lines) {
-				int indexOf = line.indexOf("#");
-				if (indexOf != -1) line = line.substring(indexOf);
-				line = line.trim();
-				if (line.isEmpty()) continue;
-				
-				String[] splits = line.split("\\s");
-				int[] indices = new int[splits.length];
-				for (int i = 0; i < splits.length; ++i) {
-					indices[i] = psMap.get(splits[i]);
-				}
-				try {
-					compileShader(fragments, indices, false);
-				}
-				catch (Exception e) {
-					e.printStackTrace();
-					throw new IOException("Error compiling \"" + Arrays.toString(splits) + "\": " + e.getMessage());
-				}
-			}
+			compilePrecompiled(precompiledPSHFile, fragments, psMap, false);
 		}
 	}
 	
-	public void compileShader(ShaderFragments fragments, int[] build, boolean isVertexShader) throws IOException, InterruptedException {
-		File input = File.createTempFile("SporeModderFX-shader-builder", ".hlsl");
-		File output = File.createTempFile("SporeModderFX-shader-builder", ".hlsl.obj");
-		
-		Path outputPath = output.toPath();
-		List<ShaderDataUniform> uniforms;
-		
-		try (BufferedWriter out = new BufferedWriter(new FileWriter(input))) {
+	/**
+	 * Compiles all the shader permutations listed in a precompiled shaders file; every line contains the names of the fragments
+	 * that compose one shader. The permutations are compiled in parallel, and the resulting shaders are added in the same order as the lines.
+	 */
+	private void compilePrecompiled(File file, ShaderFragments fragments, Map<String, Integer> map, boolean isVertexShader) throws IOException, InterruptedException {
+		ShaderCompilationScheduler scheduler = new ShaderCompilationScheduler(fragments, isVertexShader);
+		
+		List<String> lines = Files.readAllLines(file.toPath());
+		for (String line : lines) {
+			int indexOf = line.indexOf("#");
+			if (indexOf != -1) line = line.substring(indexOf);
+			line = line.trim();
+			if (line.isEmpty()) continue;
 			
-			if (isVertexShader) {
-				List<VertexShaderFragment> list = new ArrayList<>();
-				for (int i : build) {
-					list.add(fragments.vertexFragments.get(i));
-				}
-				uniforms = VertexShaderFragment.generateHLSL(out, list);
-			}
-			else {
-				List<PixelShaderFragment> list = new ArrayList<>();
-				for (int i : build) {
-					list.add(fragments.pixelFragments.get(i));
-				}
-				uniforms = PixelShaderFragment.generateHLSL(out, list);
+			String[] splits = line.split("\\s");
+			int[] indices = new int[splits.length];
+			for (int i = 0; i < splits.length; ++i) {
+				indices[i] = map.get(splits[i]);
 			}
+			scheduler.add(indices, Arrays.toString(splits));
 		}
 		
-		FXCompiler.get().compile(isVertexShader ? FXCompiler.VS_PROFILE : FXCompiler.PS_PROFILE, input, null, output);
-		
-		CompiledShader shader = new CompiledShader();
-		System.arraycopy(build, 0, shader.fragmentIndices, 0, build.length);
-		shader.data = Files.readAllBytes(outputPath);
-		
-		int register = 0;
-		for (ShaderDataUniform uniform : uniforms) {
-			shader.dataUniforms.add(uniform);
-			shader.startRegisters.add(register);
-			shader.dataFlags |= uniform.flags;
-			
-			register += uniform.registerSize;
+		List<CompiledShader> compiled = scheduler.compile();
+		if (isVertexShader) {
+			vertexShaders.addAll(compiled);
+		}
+		else {
+			pixelShaders.addAll(compiled);
 		}
+	}
+	
+	public void compileShader(ShaderFragments fragments, int[] build, boolean isVertexShader) throws IOException, InterruptedException {
+		ShaderCompilationScheduler scheduler = new ShaderCompilationScheduler(fragments, isVertexShader);
+		scheduler.add(build, CompiledShader.getSignatureString(build));
 		
 		if (isVertexShader) {
-			vertexShaders.add(shader);
+			vertexShaders.addAll(scheduler.compile());
 		}
 		else {
-			pixelShaders.add(shader);
+			pixelShaders.addAll(scheduler.compile());
 		}
-		
-		input.delete();
-		output.delete();
 	}
 	
-
-	public void compileShaders(ShaderFragments fragments, List<int[]> indices, boolean isVertexShader, Set<int[]> compiledSet) throws IOException, InterruptedException {
-		File input = File.createTempFile("SporeModderFX-shader-builder", ".hlsl");
-		File output = File.createTempFile("SporeModderFX-shader-builder", ".hlsl.obj");
-		Path outputPath = output.toPath();
+	/**
+	 * Compiles multiple shader permutations in parallel. The fragment indices arrays end at the first 0; permutations
+	 * whose signature is already in <code>compiledSet</code> are skipped, and the signatures of the compiled ones are added to it.
+	 * @param fragments
+	 * @param indices
+	 * @param isVertexShader
+	 * @param compiledSet The signatures, as returned by {@link CompiledShader#getSignatureString(int[])}, of the permutations already compiled.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void compileShaders(ShaderFragments fragments, List<int[]> indices, boolean isVertexShader, Set<String> compiledSet) throws IOException, InterruptedException {
+		ShaderCompilationScheduler scheduler = new ShaderCompilationScheduler(fragments, isVertexShader);
 		
 		for (int[] build : indices) {
-			if (compiledSet.contains(build)) continue;
+			int length = 0;
+			while (length < build.length && build[length] != 0) ++length;
+			int[] trimmed = Arrays.copyOf(build, length);
 			
-			List<ShaderDataUniform> uniforms;
-			
-			try (BufferedWriter out = new BufferedWriter(new FileWriter(input))) {
-				
-				if (isVertexShader) {
-					List<VertexShaderFragment> list = new ArrayList<>();
-					for (int i : build) {
-						if (i == 0) break;
-						list.add(fragments.vertexFragments.get(i));
-					}
- 					uniforms = VertexShaderFragment.generateHLSL(out, list);
-				}
-				else {
-					List<PixelShaderFragment> list = new ArrayList<>();
-					for (int i : build) {
-						if (i == 0) break;
-						list.add(fragments.pixelFragments.get(i));
-					}
-					uniforms = PixelShaderFragment.generateHLSL(out, list);
-				}
-			}
-			
-			Files.copy(input.toPath(), new File("C:\\Users\\Eric\\Desktop\\shader.hlsl").toPath(), StandardCopyOption.REPLACE_EXISTING);
-			System.out.println(CompiledShader.getSignatureString(build));
-			
-			try {
-				FXCompiler.get().compile(isVertexShader ? FXCompiler.VS_PROFILE : FXCompiler.PS_PROFILE, input, null, output);
-			} catch (Exception e) {
-				//TODO
-				System.err.println("ERROR COMPILING");
-			}
-			
-			CompiledShader shader = new CompiledShader();
-			System.arraycopy(build, 0, shader.fragmentIndices, 0, shader.fragmentIndices.length);
-			compiledSet.add(shader.fragmentIndices);
-			shader.data = Files.readAllBytes(outputPath);
-			
-			int register = 0;
-			for (ShaderDataUniform uniform : uniforms) {
-				shader.dataUniforms.add(uniform);
-				shader.startRegisters.add(register);
-				shader.dataFlags |= uniform.flags;
-				
-				register += uniform.registerSize;
-			}
-			
-			if (isVertexShader) {
-				vertexShaders.add(shader);
-			}
-			else {
-				pixelShaders.add(shader);
+			String signature = CompiledShader.getSignatureString(trimmed);
+			if (compiledSet.add(signature)) {
+				scheduler.add(trimmed, signature);
 			}
 		}
 		
-		input.delete();
-		output.delete();
+		if (isVertexShader) {
+			vertexShaders.addAll(scheduler.compile());
+		}
+		else {
+			pixelShaders.addAll(scheduler.compile());
+		}
 	}
 	
 	public static void main(String[] args) throws IOException {
@@ -41,9 +41,41 @@ public class FXCompiler extends AbstractManager {
 	public static final String PS_PROFILE = "ps_3_0";
 	
 	private static final String PROPERTY_fxcFile = "fxcFile";
+	
+	/**
+	 * The program that compiles HLSL code into shader bytecode. By default, the fxc.exe file from the Windows SDK is used,
+	 * but it can be replaced with {@link FXCompiler#setCompiler(ShaderCompiler)}; for example, a stub compiler can be used for testing.
+	 * Implementations must be thread-safe, as multiple shaders can be compiled at the same time.
+	 */
+	@FunctionalInterface
+	public static interface ShaderCompiler {
+		/**
+		 * Compiles the given HLSL source file, writing the compiled bytecode into the output file.
+		 * @param targetProfile The shader profile, such as {@link FXCompiler#VS_PROFILE}.
+		 * @param sourceHLSL The file that contains the HLSL code.
+		 * @param includePath The folder used to find included files, might be null.
+		 * @param outputFile The file where the compiled shader must be written.
+		 * @throws IOException If the shader cannot be compiled.
+		 * @throws InterruptedException
+		 */
+		public void compile(String targetProfile, File sourceHLSL, File includePath, File outputFile) throws IOException, InterruptedException;
+		
+		/**
+		 * Returns a text that identifies this compiler and its version, so shaders compiled with it are not mixed up
+		 * in the cache with shaders compiled by other compilers. If it is null, the shaders compiled with it are never cached.
+		 * @return
+		 */
+		public default String getCacheIdentity() {
+			return null;
+		}
+	}
 
 	private File fxcFile;
 	private boolean isAutoPath;
+	/** Detecting the path requires searching the Windows registry and SDK folders, so it's only done when the compiler is first needed. */
+	private boolean mustAutoDetect;
+	/** If not null, the compiler used instead of fxc.exe. */
+	private ShaderCompiler compiler;
 	
 	@Override public void initialize(Properties properties) {
 		
@@ -51,23 +83,28 @@ public class FXCompiler extends AbstractManager {
 		if (!path.isEmpty() && !path.equals("AUTO")) {
 			fxcFile = new File(path);
 		} else {
-			autoDetectPath();
+			mustAutoDetect = true;
 		}
 	}
 
 	@Override public void saveSettings(Properties properties) {
-		properties.put(PROPERTY_fxcFile, (isAutoPath || fxcFile == null) ? "AUTO" : fxcFile.getAbsolutePath());
+		properties.put(PROPERTY_fxcFile, (isAutoPath || mustAutoDetect || fxcFile == null) ? "AUTO" : fxcFile.getAbsolutePath());
 	}
 	
-	public File getFXCFile() {
+	public synchronized File getFXCFile() {
+		if (mustAutoDetect) {
+			autoDetectPath();
+		}
 		return fxcFile;
 	}
 	
-	public void setFXCFile(File fxcFile) {
+	public synchronized void setFXCFile(File fxcFile) {
 		this.fxcFile = fxcFile;
+		mustAutoDetect = false;
 	}
 	
-	public boolean autoDetectPath() {
+	public synchronized boolean autoDetectPath() {
+		mustAutoDetect = false;
 		try {
 			String path = Preferences.systemRoot().get("SOFTWARE\\WOW6432Node\\Microsoft\\Windows Kits\\Installed Roots\\KitsRoot10", null);
 			if (path != null) {
@@ -118,7 +155,7 @@ public class FXCompiler extends AbstractManager {
 	public File decompile(String targetProfile, File inputFile, File outputFile) throws IOException, InterruptedException {
 		
 		String command = String.format("\"%s\" /dumpbin /T %s /Fc \"%s\" \"%s\"", 
-				fxcFile.getAbsolutePath(), targetProfile, outputFile.getAbsolutePath(), inputFile.getAbsolutePath());
+				getFXCFile().getAbsolutePath(), targetProfile, outputFile.getAbsolutePath(), inputFile.getAbsolutePath());
 		
 		String error = fxcCommand(command);
 		if (error != null) {
@@ -128,23 +165,71 @@ public class FXCompiler extends AbstractManager {
 		return outputFile;
 	}
 	
+	/**
+	 * Returns the compiler that is used instead of fxc.exe, or null if fxc.exe is used.
+	 * @return
+	 */
+	public ShaderCompiler getCompiler() {
+		return compiler;
+	}
+	
+	/**
+	 * Sets the compiler that will be used instead of fxc.exe; if it is null, fxc.exe is used.
+	 * @param compiler
+	 */
+	public void setCompiler(ShaderCompiler compiler) {
+		this.compiler = compiler;
+	}
+	
+	/**
+	 * Returns a text that identifies the compiler in use and its version, so compiled shaders can be cached:
+	 * for fxc.exe, it includes the path, size and modification date of the executable and the compiler library next to it.
+	 * If it is null, compiled shaders must not be cached.
+	 * @return
+	 */
+	public String getCacheIdentity() {
+		if (compiler != null) {
+			return compiler.getCacheIdentity();
+		}
+		File file = getFXCFile();
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(file.getAbsolutePath()).append('|').append(file.length()).append('|').append(file.lastModified());
+		
+		// fxc.exe is only a front-end, the actual compiler is in this library
+		File library = new File(file.getParentFile(), "d3dcompiler_47.dll");
+		if (library.isFile()) {
+			sb.append('|').append(library.length()).append('|').append(library.lastModified());
+		}
+		return sb.toString();
+	}
+	
 	public File compile(String targetProfile, File sourceHLSL, File includePath, File outputFile) throws IOException, InterruptedException {
+		if (compiler != null) {
+			compiler.compile(targetProfile, sourceHLSL, includePath, outputFile);
+		} else {
+			compileFXC(targetProfile, sourceHLSL, includePath, outputFile);
+		}
+		return outputFile;
+	}
+	
+	private void compileFXC(String targetProfile, File sourceHLSL, File includePath, File outputFile) throws IOException, InterruptedException {
 		
 		String command;
 		if (includePath != null) {
 			command = String.format("\"%s\" /Zi /T %s /Fo \"%s\" /I \"%s\" \"%s\"", 
-					fxcFile.getAbsolutePath(), targetProfile, outputFile.getAbsolutePath(), includePath.getAbsolutePath(), sourceHLSL.getAbsolutePath());
+					getFXCFile().getAbsolutePath(), targetProfile, outputFile.getAbsolutePath(), includePath.getAbsolutePath(), sourceHLSL.getAbsolutePath());
 		} else {
 			command = String.format("\"%s\" /Zi /T %s /Fo \"%s\" \"%s\"", 
-					fxcFile.getAbsolutePath(), targetProfile, outputFile.getAbsolutePath(), sourceHLSL.getAbsolutePath());
+					getFXCFile().getAbsolutePath(), targetProfile, outputFile.getAbsolutePath(), sourceHLSL.getAbsolutePath());
 		}
 		
 		String error = fxcCommand(command);
 		if (error != null) {
 			throw new IOException("Cannot compile " + sourceHLSL.getName() + ": " + error);
 		}
-		
-		return outputFile;
 	}
 	
 	public File compile(String targetProfile, File sourceHLSL, File includePath) throws IOException, InterruptedException {
@@ -200,6 +285,7 @@ public class FXCompiler extends AbstractManager {
 	}
 
 	public boolean isAvailable() {
-		return fxcFile != null && fxcFile.isFile();
+		File file = getFXCFile();
+		return file != null && file.isFile();
 	}
 }
@@ -0,0 +1,308 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file.shaders;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sporemodder.PathManager;
+
+/**
+ * Compiles shader permutations (lists of shader fragments) generated with {@link VertexShaderFragment} and
+ * {@link PixelShaderFragment}. Permutations are added with {@link #add(int[], String)} and compiled all at once
+ * with {@link #compile()}:
+ * <li>Permutations with the same fragments are only compiled once.</li>
+ * <li>The compiler is executed for multiple permutations at the same time.</li>
+ * <li>The compiled bytecode is stored in the program cache folder, mapped to a hash of the generated HLSL code, the profile
+ * and the compiler identity ({@link FXCompiler#getCacheIdentity()}), so the permutations that have not changed since the last time
+ * are not compiled again. Compilers without an identity are never cached.</li>
+ */
+public class ShaderCompilationScheduler {
+	
+	private static final String CACHE_FOLDER = "shaders";
+	
+	/** A fragment indices array, compared by content. */
+	private static class Permutation {
+		final int[] indices;
+		
+		Permutation(int[] build) {
+			indices = build.clone();
+		}
+		
+		@Override public int hashCode() {
+			return Arrays.hashCode(indices);
+		}
+		
+		@Override public boolean equals(Object obj) {
+			return obj instanceof Permutation && Arrays.equals(indices, ((Permutation) obj).indices);
+		}
+	}
+	
+	private static class Job {
+		final Permutation permutation;
+		final String label;
+		String hlsl;
+		List<ShaderDataUniform> uniforms;
+		byte[] data;
+		
+		Job(Permutation permutation, String label) {
+			this.permutation = permutation;
+			this.label = label;
+		}
+	}
+	
+	private final ShaderFragments fragments;
+	private final boolean isVertexShader;
+	private final String profile;
+	
+	/** All unique permutations, in the order they were added. */
+	private final List<Job> jobs = new ArrayList<>();
+	private final Map<Permutation, Job> jobsMap = new HashMap<>();
+	/** For every call to add(), the job that compiles it. */
+	private final List<Job> requests = new ArrayList<>();
+	
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private boolean useCache = true;
+	private final AtomicInteger cacheHits = new AtomicInteger();
+	
+	public ShaderCompilationScheduler(ShaderFragments fragments, boolean isVertexShader) {
+		this.fragments = fragments;
+		this.isVertexShader = isVertexShader;
+		this.profile = isVertexShader ? FXCompiler.VS_PROFILE : FXCompiler.PS_PROFILE;
+	}
+	
+	/**
+	 * Sets how many shaders can be compiled at the same time. By default, it is the number of available processors.
+	 * @param threadCount
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = Math.max(1, threadCount);
+	}
+	
+	/**
+	 * Sets whether the compiled shaders are read from and stored in the program cache folder. True by default,
+	 * but the cache is only used if the compiler has a {@link FXCompiler#getCacheIdentity() cache identity}.
+	 * @param useCache
+	 */
+	public void setUseCache(boolean useCache) {
+		this.useCache = useCache;
+	}
+	
+	/**
+	 * Returns how many permutations were taken from the cache instead of being compiled in the last call to {@link #compile()}.
+	 * @return
+	 */
+	public int getCacheHits() {
+		return cacheHits.get();
+	}
+	
+	/**
+	 * Returns how many different permutations have been added.
+	 * @return
+	 */
+	public int getUniqueCount() {
+		return jobs.size();
+	}
+	
+	/**
+	 * Adds a permutation to be compiled.
+	 * @param build The indices of the fragments that compose the shader.
+	 * @param label A text used to identify this permutation in error messages.
+	 * @return False if an equal permutation was already added, so it won't be compiled again.
+	 */
+	public boolean add(int[] build, String label) {
+		Permutation permutation = new Permutation(build);
+		Job job = jobsMap.get(permutation);
+		boolean isNew = job == null;
+		if (isNew) {
+			job = new Job(permutation, label);
+			jobs.add(job);
+			jobsMap.put(permutation, job);
+		}
+		requests.add(job);
+		return isNew;
+	}
+	
+	private static File getCacheFolder() {
+		File folder = new File(PathManager.get().getCacheFolder(), CACHE_FOLDER);
+		folder.mkdir();
+		return folder;
+	}
+	
+	private String getCacheName(Job job, String compilerIdentity) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(compilerIdentity.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(profile.getBytes(StandardCharsets.US_ASCII));
+			digest.update((byte) 0);
+			digest.update(job.hlsl.getBytes(StandardCharsets.UTF_8));
+			
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest()) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.append(".obj").toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+	
+	private void generateHLSL(Job job) throws IOException {
+		StringWriter stringWriter = new StringWriter();
+		try (BufferedWriter out = new BufferedWriter(stringWriter)) {
+			if (isVertexShader) {
+				List<VertexShaderFragment> list = new ArrayList<>();
+				for (int i : job.permutation.indices) {
+					list.add(fragments.vertexFragments.get(i));
+				}
+				job.uniforms = VertexShaderFragment.generateHLSL(out, list);
+			}
+			else {
+				List<PixelShaderFragment> list = new ArrayList<>();
+				for (int i : job.permutation.indices) {
+					list.add(fragments.pixelFragments.get(i));
+				}
+				job.uniforms = PixelShaderFragment.generateHLSL(out, list);
+			}
+		}
+		job.hlsl = stringWriter.toString();
+	}
+	
+	private void compile(Job job, File cacheFolder, String compilerIdentity) throws IOException, InterruptedException {
+		File cacheFile = cacheFolder == null ? null : new File(cacheFolder, getCacheName(job, compilerIdentity));
+		if (cacheFile != null && cacheFile.isFile()) {
+			job.data = Files.readAllBytes(cacheFile.toPath());
+			cacheHits.incrementAndGet();
+			return;
+		}
+		
+		File input = File.createTempFile("SporeModderFX-shader-builder", ".hlsl");
+		File output = File.createTempFile("SporeModderFX-shader-builder", ".hlsl.obj");
+		try {
+			Files.write(input.toPath(), job.hlsl.getBytes(StandardCharsets.UTF_8));
+			
+			FXCompiler.get().compile(profile, input, null, output);
+			job.data = Files.readAllBytes(output.toPath());
+			
+			if (cacheFile != null) {
+				// Write to a temporary file first, so other processes never see an incomplete file
+				File tempFile = new File(cacheFolder, cacheFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+				Files.write(tempFile.toPath(), job.data);
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			input.delete();
+			output.delete();
+		}
+	}
+	
+	/**
+	 * Compiles all the permutations that have been added, and returns a compiled shader for every call to
+	 * {@link #add(int[], String)}, in the same order. Permutations that were added more than once are only compiled once.
+	 * @return
+	 * @throws IOException If any of the permutations cannot be compiled.
+	 * @throws InterruptedException
+	 */
+	public List<CompiledShader> compile() throws IOException, InterruptedException {
+		cacheHits.set(0);
+		
+		// Generating the code is fast, it's the external compiler that takes time
+		for (Job job : jobs) {
+			if (job.hlsl == null) {
+				try {
+					generateHLSL(job);
+				} catch (Exception e) {
+					throw new IOException("Error compiling \"" + job.label + "\": " + e.getMessage(), e);
+				}
+			}
+		}
+		
+		// Shaders from an unknown compiler might not be the same next time, so they are not cached
+		final String compilerIdentity = useCache ? FXCompiler.get().getCacheIdentity() : null;
+		final File cacheFolder = compilerIdentity != null ? getCacheFolder() : null;
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, Math.max(1, jobs.size())));
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (Job job : jobs) {
+				if (job.data == null) {
+					futures.add(executor.submit((Callable<Void>) () -> {
+						compile(job, cacheFolder, compilerIdentity);
+						return null;
+					}));
+				} else {
+					futures.add(null);
+				}
+			}
+			
+			// Wait in the same order, so the reported error is always the first one
+			for (int i = 0; i < futures.size(); ++i) {
+				if (futures.get(i) == null) continue;
+				try {
+					futures.get(i).get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					throw new IOException("Error compiling \"" + jobs.get(i).label + "\": " + cause.getMessage(), cause);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		
+		List<CompiledShader> result = new ArrayList<>();
+		for (Job job : requests) {
+			CompiledShader shader = new CompiledShader();
+			System.arraycopy(job.permutation.indices, 0, shader.fragmentIndices, 0, job.permutation.indices.length);
+			shader.data = job.data;
+			
+			int register = 0;
+			for (ShaderDataUniform uniform : job.uniforms) {
+				shader.dataUniforms.add(uniform);
+				shader.startRegisters.add(register);
+				shader.dataFlags |= uniform.flags;
+				
+				register += uniform.registerSize;
+			}
+			result.add(shader);
+		}
+		return result;
+	}
+}
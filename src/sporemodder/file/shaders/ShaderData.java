@@ -27,6 +27,7 @@ import java.util.TreeMap;
 
 import sporemodder.HashManager;
 import sporemodder.PathManager;
+import sporemodder.util.LazyInitializer;
 
 public class ShaderData {
 
@@ -1088,7 +1089,17 @@ public class ShaderData {
 
 	}
 	
+	/** Reads the shader_data.txt file, which assigns names to the shader data indices. */
+	private static final LazyInitializer loader = new LazyInitializer("ShaderData", ShaderData::load);
+	
+	/**
+	 * Starts reading the shader data names in the background. Any method that needs them waits until they have been read.
+	 */
 	public static void initialize() {
+		loader.startInBackground();
+	}
+	
+	private static void load() {
 		try {
 			File file = PathManager.get().getProgramFile("shader_data.txt");
 			if (file.exists()) {
@@ -1112,20 +1123,24 @@ public class ShaderData {
 	}
 	
 	public static boolean hasName(int index) {
+		loader.ensureInitialized();
 		return indexToName.containsKey(index);
 	}
 	
 	public static boolean hasIndex(String name) {
+		loader.ensureInitialized();
 		return nameToIndex.containsKey(name);
 	}
 	
 	public static String getName(int index) {
+		loader.ensureInitialized();
 		String name = indexToName.get(index);
 		if (name == null) name = "0x" + Integer.toHexString(index);
 		return name;
 	}
 	
 	public static Integer getIndex(String name, boolean isArray) {
+		loader.ensureInitialized();
 		Integer result = null;
 		if (isArray) result = nameToIndex.get(name + "[]");
 		if (result == null) result = nameToIndex.get(name);
@@ -1134,6 +1149,7 @@ public class ShaderData {
 	}
 
 	public static int getFlags(int dataIndex) {
+		loader.ensureInitialized();
 		Integer value = flags.get(dataIndex);
 		return value == null ? 0 : value;
 	}
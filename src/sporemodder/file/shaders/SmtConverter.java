@@ -287,6 +287,10 @@ public class SmtConverter implements Converter {
 		else return false;
 	}
 	
+	@Override public int[] getDecoderTypeIDs() {
+		return new int[] {TYPE_ID, RenderWareConverter.TYPE_ID};
+	}
+	
 	@Override public boolean isEncoder(File file) {
 		checkExtensions();
 		boolean valid = file.isDirectory() && file.getName().endsWith("." + EXTENSION + ".unpacked");
@@ -297,6 +301,11 @@ public class SmtConverter implements Converter {
 		return valid;
 	}
 	
+	@Override public String[] getEncoderSuffixes() {
+		checkExtensions();
+		return new String[] {"." + EXTENSION + ".unpacked"};
+	}
+	
 	@Override public String getName() {
 		return "Spore Materials (." + HashManager.get().getTypeName(TYPE_ID) + ")";
 	}
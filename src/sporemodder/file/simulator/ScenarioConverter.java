@@ -61,6 +61,11 @@ public class ScenarioConverter implements Converter {
 	public boolean isDecoder(ResourceKey key) {
 		return key.getTypeID() == TYPE_ID;
 	}
+	
+	@Override
+	public int[] getDecoderTypeIDs() {
+		return new int[] {TYPE_ID};
+	}
 
 	private void checkExtensions() {
 		if (extension == null) {
@@ -72,6 +77,11 @@ public class ScenarioConverter implements Converter {
 	public boolean isEncoder(File file) {
 		return false;
 	}
+	
+	@Override
+	public String[] getEncoderSuffixes() {
+		return new String[0];
+	}
 
 	@Override
 	public String getName() {
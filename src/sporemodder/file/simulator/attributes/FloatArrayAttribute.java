@@ -49,7 +49,7 @@ public class FloatArrayAttribute implements SimulatorAttribute {
 		StringBuilder sb = new StringBuilder();
 		sb.append('[');
 		for (int i = 0; i < value.length; i++) {
-			sb.append(HashManager.get().floatToString(value[i]));
+			HashManager.get().appendFloat(sb, value[i]);
 			
 			if (i + 1 < value.length) {
 				sb.append(", ");
@@ -64,7 +64,7 @@ public class FloatArrayAttribute implements SimulatorAttribute {
 	public String toXmlString(String tabulation) {
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < value.length; i++) {
-			sb.append(HashManager.get().floatToString(value[i]));
+			HashManager.get().appendFloat(sb, value[i]);
 			
 			if (i + 1 < value.length) {
 				sb.append(", ");
@@ -111,6 +111,23 @@ public class SPUIRectangle {
 		return x >= x1 && x <= x2 && y >= y1 && y <= y2;
 	}
 	
+	public boolean intersects(SPUIRectangle other) {
+		return x1 <= other.x2 && other.x1 <= x2 && y1 <= other.y2 && other.y1 <= y2;
+	}
+	
+	/**
+	 * Expands this rectangle so that it also contains the other one.
+	 * @param other
+	 * @return This rectangle.
+	 */
+	public SPUIRectangle union(SPUIRectangle other) {
+		x1 = Math.min(x1, other.x1);
+		y1 = Math.min(y1, other.y1);
+		x2 = Math.max(x2, other.x2);
+		y2 = Math.max(y2, other.y2);
+		return this;
+	}
+	
 	public void read(StreamReader stream) throws IOException {
 		x1 = stream.readLEFloat();
 		y1 = stream.readLEFloat();
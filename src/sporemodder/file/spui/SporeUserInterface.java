@@ -21,17 +21,13 @@ package sporemodder.file.spui;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import sporemodder.file.filestructures.FileStream;
 import sporemodder.file.filestructures.StreamReader;
@@ -45,6 +41,7 @@ import sporemodder.file.spui.components.ISporeImage;
 import sporemodder.file.spui.components.IWindow;
 import sporemodder.file.spui.components.WindowBase;
 import sporemodder.file.spui.uidesigner.DesignerClass;
+import sporemodder.file.spui.uidesigner.DesignerProperty;
 import sporemodder.file.spui.uidesigner.SpuiDesigner;
 import sporemodder.view.editors.SpuiEditor;
 
@@ -89,6 +86,9 @@ public class SporeUserInterface {
 	
 	public static final int ROOT_FLAG = 0x8000;
 	
+	/** The proxy ID of the 'ControlID' property of windows. */
+	public static final int CONTROL_ID_PROXYID = 0xEEC1B001;
+	
 	private static final SpuiDesigner designer = new SpuiDesigner();
 	
 	private int version = LAST_SUPPORTED_VERSION;
@@ -98,11 +98,13 @@ public class SporeUserInterface {
 	private final List<SpuiElement> elements = new ArrayList<SpuiElement>();
 	private final List<IWindow> rootWindows = new ArrayList<IWindow>();
 	
-	private final Map<ResourceKey, Image> loadedImages = new HashMap<>();
 	private final List<DirectImage> directImages = new ArrayList<>();
 	
 	private File projectFolder;
 	
+	/** Executed every time one of the images finishes loading in the background. */
+	private Runnable onImageLoaded;
+	
 	/** List of relative paths of images that could not be loaded. */
 	private final Set<String> unloadedFiles = new HashSet<>();
 	
@@ -259,11 +261,7 @@ public class SporeUserInterface {
 		
 		if (index < count) {
 			ResourceKey res = imageResources.get(index);
-			Image img = loadedImages.get(res);
-			if (img == null) {
-				img = loadImage(res);
-				loadedImages.put(res, img);
-			}
+			Image img = loadImage(res);
 			DirectImage directImage = new DirectImage(img, res);
 			directImages.add(directImage);
 			return directImage;
@@ -273,11 +271,7 @@ public class SporeUserInterface {
 		if (index < count) {
 			// We want to know what resource key it is. AtlasImage will use this DirectImage
 			ResourceKey res = atlasResources.get(index);
-			Image img = loadedImages.get(res);
-			if (img == null) {
-				img = loadImage(res);
-				loadedImages.put(res, img);
-			}
+			Image img = loadImage(res);
 			DirectImage directImage = new DirectImage(img, res);
 			return directImage;
 		}
@@ -297,46 +291,37 @@ public class SporeUserInterface {
 		
 		if (index < count) {
 			ResourceKey res = imageResources.get(index);
-			Image img = loadedImages.get(res);
-			if (img == null) {
-				img = loadImage(res);
-				loadedImages.put(res, img);
-			}
+			Image img = loadImage(res);
 			return img;
 		}
 		index -= count;
 		count = atlasResources.size();
 		if (index < count) {
 			ResourceKey res = atlasResources.get(index);
-			Image img = loadedImages.get(res);
-			if (img == null) {
-				img = loadImage(res);
-				loadedImages.put(res, img);
-			}
+			Image img = loadImage(res);
 			return img;
 		}
 	
 		throw new IllegalArgumentException("Invalid resource index " + index);
 	}
 	
+	/** 
+	 * Returns the image of the given resource. Images are always taken from the {@link SpuiImageCache}, so they are shared with
+	 * other editors and loaded again if the file changes.
+	 */
 	private Image loadImage(ResourceKey key) {
 		HashManager hasher = HashManager.get();
 		String fileName = hasher.getFileName(key.getInstanceID()) + '.' + hasher.getTypeName(key.getTypeID());
 		
 		String path = hasher.getFileName(key.getGroupID()) + File.separatorChar + fileName;
 		
-		String uri = null;
+		File file = null;
 		if (projectFolder != null) {
-			File file = new File(projectFolder, path);
-			//uri = file.toURI().toString();
+			file = new File(projectFolder, path);
 			if (file.isDirectory()) {
-				uri = new File(file, fileName).toURI().toString();
-			}
-			else {
-				uri = file.toURI().toString();
+				file = new File(file, fileName);
 			}
 		} else {
-			File file = null;
 			if (ProjectManager.get().getActive() != null) {
 				file = ProjectManager.get().getFile(path);
 			}
@@ -349,18 +334,32 @@ public class SporeUserInterface {
 				unloadedFiles.add(path);
 				return null;
 			}
-			
-			uri = file.toURI().toString();
 		}
 		
 		try {
-			return new Image(uri);
+			Image image = SpuiImageCache.get().getImage(file, () -> {
+				if (onImageLoaded != null) onImageLoaded.run();
+			});
+			if (image.isError()) {
+				unloadedFiles.add(path);
+				return null;
+			}
+			return image;
 		}
 		catch (Exception e) {
 			unloadedFiles.add(path);
 			return null;
 		}
 	}
+	
+	/**
+	 * Sets an action that is executed (in the JavaFX thread) every time one of the images used by this user interface
+	 * finishes loading. Images are loaded in the background, so this can be used to repaint the user interface.
+	 * @param onImageLoaded
+	 */
+	public void setOnImageLoaded(Runnable onImageLoaded) {
+		this.onImageLoaded = onImageLoaded;
+	}
 
 	public List<IWindow> getRootWindows() {
 		return rootWindows;
@@ -422,31 +421,119 @@ public class SporeUserInterface {
 		return element;
 	}
 
-	public static List<Path> findSpuisWithControlId(File folder, int controlId, boolean print) throws IOException {
-		try (Stream<Path> pathStream = Files.walk(folder.toPath())) {
-			return pathStream.filter(path -> path.getFileName().toString().endsWith(".spui"))
-				.filter(path -> {
-					try (FileStream stream = new FileStream(path.toFile(), "r")) {
-						SporeUserInterface spui = new SporeUserInterface();
-						spui.read(stream);
-						boolean anyMatch = spui.getElements().stream().anyMatch(element -> {
-							if (element instanceof WindowBase) {
-								String controlIdStr = ((WindowBase)element).getControlID();
-								return controlIdStr != null && HashManager.get().getFileHash(controlIdStr) == controlId;
-							} else {
-								return false;
-							}
-						});
-						if (print && anyMatch) {
-							System.out.println(path);
-						}
-						return anyMatch;
-					} catch (IOException e) {
-						return false;
+	/**
+	 * Reads the control IDs of all the windows in a SPUI file. Unlike {@link #read(StreamReader)}, this does not 
+	 * create any element: all the other properties are skipped, so it is much faster when only the IDs are needed.
+	 * Windows that do not have a control ID are ignored.
+	 * @param stream
+	 * @return
+	 * @throws IOException
+	 */
+	public static int[] readControlIDs(StreamReader stream) throws IOException {
+		ensureDesigner();
+		
+		if (stream.readLEInt() != MAGIC) {
+			throw new IOException("Unsupported header magic, is the file a .SPUI?");
+		}
+		int version = stream.readLEShort();
+		if (version > LAST_SUPPORTED_VERSION) {
+			throw new IOException("Version " + version + " is not supported, maximum supported version is " + LAST_SUPPORTED_VERSION + '.');
+		}
+		
+		int[] counts = new int[4];
+		stream.readLEUShorts(counts);
+		
+		// Image and atlas resource keys
+		stream.skip((counts[0] + counts[1]) * 12);
+		
+		for (int i = 0; i < counts[2]; ++i) {
+			if (version >= 3 && stream.readBoolean()) {
+				stream.skip(8);
+				stream.skip(stream.readLEInt() * 2);
+			} else {
+				stream.skip(12);
+			}
+		}
+		
+		int[] proxyIDs = new int[counts[3]];
+		stream.readLEInts(proxyIDs);
+		
+		DesignerClass[] classes = new DesignerClass[proxyIDs.length];
+		for (int i = 0; i < classes.length; ++i) {
+			classes[i] = designer.getClass(proxyIDs[i]);
+			if (classes[i] == null) {
+				throw new IOException("Undefined designer class with proxyID=" + HashManager.get().hexToString(proxyIDs[i]));
+			}
+		}
+		
+		int otherResourcesCount = counts[0] + counts[1] + counts[2];
+		
+		int[] controlIDs = new int[proxyIDs.length];
+		int controlIDsCount = 0;
+		
+		int magic = stream.readLEUShort();
+		int proxyIndex = -1;
+		while ((proxyIndex = stream.readLEShort()) != -1) {
+			if (magic != 0x5FF5) {
+				throw new IOException("Unsupported class magic, file might be corrupted or contain unsupported information.");
+			}
+			
+			proxyIndex -= otherResourcesCount;
+			
+			DesignerClass clazz = classes[proxyIndex];
+			boolean isWindow = WindowBase.class.isAssignableFrom(clazz.getJavaClass());
+			int propertiesCount = stream.readLEUShort() & ~ROOT_FLAG;
+			
+			for (int i = 0; i < propertiesCount; ++i) {
+				int id = stream.readLEInt();
+				
+				if (isWindow && id == CONTROL_ID_PROXYID) {
+					int typeCode = stream.readLEShort();
+					int count = stream.readLEUShort();
+					if (typeCode != SpuiPropertyType.TYPE_UINT || count != 1) {
+						throw new IOException("Unexpected type code " + typeCode + " for ControlID property.");
+					}
+					int controlID = stream.readLEInt();
+					if (controlID != 0) {
+						controlIDs[controlIDsCount++] = controlID;
 					}
-				})
-				.collect(Collectors.toList());
+				}
+				else {
+					DesignerProperty property = clazz.getProperty(id);
+					if (property == null) {
+						throw new IOException("Unsupported property " + HashManager.get().hexToString(id) + " for class " + clazz.getName() + '.');
+					}
+					property.skip(stream);
+				}
+			}
+			
+			magic = stream.readLEUShort();
+		}
+		
+		return Arrays.copyOf(controlIDs, controlIDsCount);
+	}
+
+	/**
+	 * Finds all the .spui files in the given folder (and subfolders) that contain a window with the given control ID.
+	 * The files are scanned in parallel, and the results are stored in a {@link SpuiControlIdIndex} so that repeated
+	 * queries only need to read the files that have been modified since.
+	 * @param folder
+	 * @param controlId
+	 * @param print If true, the path of every matching file is printed to the standard output.
+	 * @return The matching files, sorted by path.
+	 * @throws IOException
+	 */
+	public static List<Path> findSpuisWithControlId(File folder, int controlId, boolean print) throws IOException {
+		SpuiControlIdIndex index = new SpuiControlIdIndex(folder);
+		index.load();
+		index.update();
+		index.save();
+		
+		List<Path> result = index.getFiles(controlId);
+		if (print) {
+			result.forEach(System.out::println);
 		}
+		return result;
 	}
 	
 	public static void main(String[] args) throws IOException
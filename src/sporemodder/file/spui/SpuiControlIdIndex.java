@@ -0,0 +1,234 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file.spui;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import sporemodder.HashManager;
+import sporemodder.PathManager;
+import sporemodder.file.filestructures.MemoryStream;
+import sporemodder.file.filestructures.Stream.StringEncoding;
+import sporemodder.file.filestructures.StreamReader;
+
+/**
+ * An index that maps the control IDs used by the windows of all .spui files in a folder (and its subfolders) to the
+ * files that use them. The index is stored in the program cache folder; when it is updated, only the files that
+ * have been added or modified since the last update are read, so repeated queries over the same folder are almost instant.
+ * <p>
+ * Files are read with {@link SporeUserInterface#readControlIDs(StreamReader)}, which does not create the SPUI elements.
+ */
+public class SpuiControlIdIndex {
+	
+	private static final int MAGIC = 0x58444943;  // CIDX
+	private static final int VERSION = 1;
+	
+	private static class Entry {
+		long lastModified;
+		long size;
+		int[] controlIDs;
+	}
+	
+	/** The folder that is indexed. */
+	private final File folder;
+	/** The file where the index is stored. */
+	private final File cacheFile;
+	/** All indexed .spui files, mapped to their path relative to the indexed folder (always using '/'). */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	/** Every control ID mapped to the sorted list of relative paths of the files that use it. */
+	private final Map<Integer, List<String>> controlIdMap = new HashMap<>();
+	
+	private boolean isDirty;
+	/** How many files had to be read in the last update. */
+	private int readFilesCount;
+	
+	public SpuiControlIdIndex(File folder) {
+		this.folder = folder.getAbsoluteFile();
+		this.cacheFile = new File(PathManager.get().getCacheFolder(),
+				"spui_controlids_" + HashManager.get().hexToString(HashManager.get().fnvHash(this.folder.getPath())).substring(2) + ".bin");
+	}
+	
+	/**
+	 * Returns the folder that is indexed.
+	 * @return
+	 */
+	public File getFolder() {
+		return folder;
+	}
+	
+	/**
+	 * Returns how many files had to be read (because they were new or modified) in the last call to {@link #update()}.
+	 * @return
+	 */
+	public int getReadFilesCount() {
+		return readFilesCount;
+	}
+	
+	/**
+	 * Returns how many .spui files are in the index.
+	 * @return
+	 */
+	public int getFilesCount() {
+		return entries.size();
+	}
+	
+	/**
+	 * Loads the stored index, if it exists. If it cannot be read, it is ignored and all files will be read again.
+	 */
+	public void load() {
+		entries.clear();
+		if (!cacheFile.isFile()) return;
+		
+		try (StreamReader stream = new MemoryStream(Files.readAllBytes(cacheFile.toPath()))) {
+			if (stream.readInt() != MAGIC || stream.readInt() != VERSION) return;
+			
+			int count = stream.readInt();
+			for (int i = 0; i < count; ++i) {
+				String path = stream.readString(StringEncoding.UTF16LE, stream.readInt());
+				Entry entry = new Entry();
+				entry.lastModified = stream.readLong();
+				entry.size = stream.readLong();
+				entry.controlIDs = new int[stream.readInt()];
+				stream.readInts(entry.controlIDs);
+				entries.put(path, entry);
+			}
+		}
+		catch (Exception e) {
+			entries.clear();
+		}
+		isDirty = false;
+		rebuildControlIdMap();
+	}
+	
+	/**
+	 * Writes the index into the program cache folder, if it has changed since it was loaded.
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		if (!isDirty) return;
+		
+		try (MemoryStream stream = new MemoryStream()) {
+			stream.writeInt(MAGIC);
+			stream.writeInt(VERSION);
+			stream.writeInt(entries.size());
+			for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+				Entry entry = mapEntry.getValue();
+				stream.writeInt(mapEntry.getKey().length());
+				stream.writeString(mapEntry.getKey(), StringEncoding.UTF16LE);
+				stream.writeLong(entry.lastModified);
+				stream.writeLong(entry.size);
+				stream.writeInt(entry.controlIDs.length);
+				stream.writeInts(entry.controlIDs);
+			}
+			stream.writeToFile(cacheFile, 0, (int) stream.length());
+		}
+		isDirty = false;
+	}
+	
+	/**
+	 * Walks the indexed folder and reads, in parallel, all the .spui files that are not in the index or
+	 * that have been modified. Files that no longer exist are removed from the index.
+	 * @throws IOException
+	 */
+	public void update() throws IOException {
+		List<Path> paths;
+		try (Stream<Path> pathStream = Files.walk(folder.toPath())) {
+			paths = pathStream.filter(path -> path.getFileName().toString().endsWith(".spui")).collect(Collectors.toList());
+		}
+		
+		// Load the designer before reading files in parallel
+		SporeUserInterface.getDesigner();
+		
+		Map<String, Entry> oldEntries = new HashMap<>(entries);
+		entries.clear();
+		
+		readFilesCount = (int) paths.parallelStream().filter(path -> {
+			String relativePath = folder.toPath().relativize(path).toString().replace(File.separatorChar, '/');
+			Entry entry = oldEntries.get(relativePath);
+			try {
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				long lastModified = attributes.lastModifiedTime().toMillis();
+				
+				if (entry != null && entry.lastModified == lastModified && entry.size == attributes.size()) {
+					entries.put(relativePath, entry);
+					return false;
+				}
+				
+				entry = new Entry();
+				entry.lastModified = lastModified;
+				entry.size = attributes.size();
+				try (StreamReader stream = new MemoryStream(Files.readAllBytes(path))) {
+					entry.controlIDs = SporeUserInterface.readControlIDs(stream);
+				} catch (Exception e) {
+					// Files that cannot be read don't have any control ID; they will be read again once modified
+					entry.controlIDs = new int[0];
+				}
+				entries.put(relativePath, entry);
+				return true;
+				
+			} catch (IOException e) {
+				return false;
+			}
+		}).count();
+		
+		if (readFilesCount != 0 || oldEntries.size() != entries.size()) {
+			isDirty = true;
+		}
+		rebuildControlIdMap();
+	}
+	
+	private void rebuildControlIdMap() {
+		controlIdMap.clear();
+		for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+			for (int controlID : mapEntry.getValue().controlIDs) {
+				List<String> list = controlIdMap.computeIfAbsent(controlID, k -> new ArrayList<>());
+				// A file might use the same control ID more than once
+				if (list.isEmpty() || !list.get(list.size() - 1).equals(mapEntry.getKey())) {
+					list.add(mapEntry.getKey());
+				}
+			}
+		}
+		for (List<String> list : controlIdMap.values()) {
+			Collections.sort(list);
+		}
+	}
+	
+	/**
+	 * Returns all the files in the index that contain a window with the given control ID, sorted by path.
+	 * @param controlID
+	 * @return
+	 */
+	public List<Path> getFiles(int controlID) {
+		List<String> list = controlIdMap.get(controlID);
+		if (list == null) return new ArrayList<>();
+		
+		return list.stream().map(path -> folder.toPath().resolve(path)).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,124 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.file.spui;
+
+import java.io.File;
+import java.io.IOException;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.scene.image.Image;
+import sporemodder.util.ResourceCache;
+
+/**
+ * Loads the images and atlases used by SPUI files through the {@link ResourceCache}, so that user interfaces (and other editors)
+ * that share the same textures don't load them again. Images are loaded in the background: the returned image is empty until
+ * it finishes loading, and the given listener is called (in the JavaFX thread) when that happens.
+ * <p>
+ * The file and its modification time are checked every time an image is requested; if the file has changed on disk, the image
+ * is loaded again. Images are weighed by the memory used by their pixels once they finish loading.
+ */
+public class SpuiImageCache {
+	
+	/** The kind of resource used for SPUI images in the {@link ResourceCache}. */
+	private static final String RESOURCE_KIND = "spuiImage";
+	
+	private static final SpuiImageCache instance = new SpuiImageCache();
+	
+	/**
+	 * Returns the cache shared by all SPUI files.
+	 * @return
+	 */
+	public static SpuiImageCache get() {
+		return instance;
+	}
+	
+	private static long weigh(Image image) {
+		return isLoaded(image) && !image.isError() ? (long) image.getWidth() * (long) image.getHeight() * 4 : 0;
+	}
+	
+	private static Image loadImage(File file) throws IOException {
+		return ResourceCache.get().get(file, RESOURCE_KIND, imageFile -> {
+			Image image = new Image(imageFile.toURI().toString(), true);
+			// Images are empty until they are loaded, so they must be weighed again then
+			whenLoaded(image, () -> ResourceCache.get().reweigh(imageFile, RESOURCE_KIND));
+			return image;
+		}, SpuiImageCache::weigh);
+	}
+	
+	/**
+	 * Returns the image stored in the given file. If the image is not in the cache,
+	 * or the file has been modified since it was loaded, the image starts loading in the background.
+	 * The returned image is empty (it has 0 width and height) until it finishes loading; once it does, the
+	 * <code>onLoaded</code> action is executed in the JavaFX thread. If the image is already loaded, the action is not executed.
+	 * @param file The file that contains the image.
+	 * @param onLoaded An action executed when the image finishes loading, might be null.
+	 * @return
+	 * @throws IOException 
+	 */
+	public Image getImage(File file, Runnable onLoaded) throws IOException {
+		Image image = loadImage(file);
+		if (image.isError()) {
+			// Try again, it might have been fixed
+			ResourceCache.get().invalidate(file, RESOURCE_KIND);
+			image = loadImage(file);
+		}
+		
+		if (onLoaded != null && !isLoaded(image)) {
+			whenLoaded(image, onLoaded);
+		}
+		
+		return image;
+	}
+	
+	/**
+	 * Returns whether the given image has finished loading (successfully or not).
+	 * @param image
+	 * @return
+	 */
+	public static boolean isLoaded(Image image) {
+		return image.getProgress() >= 1.0 || image.isError();
+	}
+	
+	private static void whenLoaded(Image image, Runnable action) {
+		if (isLoaded(image)) {
+			action.run();
+			return;
+		}
+		InvalidationListener listener = new InvalidationListener() {
+			@Override public void invalidated(Observable observable) {
+				if (isLoaded(image)) {
+					image.progressProperty().removeListener(this);
+					image.errorProperty().removeListener(this);
+					action.run();
+				}
+			}
+		};
+		image.progressProperty().addListener(listener);
+		image.errorProperty().addListener(listener);
+	}
+	
+	/**
+	 * Removes the image stored in the given file from the cache, so it will be loaded again the next time it is requested.
+	 * @param file
+	 */
+	public void invalidate(File file) {
+		ResourceCache.get().invalidate(file, RESOURCE_KIND);
+	}
+}
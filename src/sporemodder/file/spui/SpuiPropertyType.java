@@ -20,7 +20,6 @@ package sporemodder.file.spui;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -32,6 +31,7 @@ import javafx.scene.paint.Color;
 import sporemodder.HashManager;
 import sporemodder.file.LocalizedText;
 import sporemodder.file.spui.uidesigner.DesignerClass;
+import sporemodder.file.spui.uidesigner.DesignerProperty.FieldAccessor;
 import sporemodder.file.spui.uidesigner.SpuiDesigner;
 import sporemodder.util.Vector2;
 
@@ -227,6 +227,50 @@ public class SpuiPropertyType {
 		WRITERS[type].write(stream, data);
 	}
 	
+	/** The size in bytes of a single value of each fixed-size type, or 0 if the type has variable size. */
+	private static final int[] VALUE_SIZES = new int[21];
+	
+	static {
+		VALUE_SIZES[TYPE_BOOLEAN] = 1;
+		VALUE_SIZES[TYPE_BYTE] = 1;
+		VALUE_SIZES[TYPE_SHORT] = 2;
+		VALUE_SIZES[TYPE_INT] = 4;
+		VALUE_SIZES[TYPE_LONG] = 8;
+		VALUE_SIZES[TYPE_UBYTE] = 1;
+		VALUE_SIZES[TYPE_USHORT] = 2;
+		VALUE_SIZES[TYPE_UINT] = 4;
+		VALUE_SIZES[TYPE_ULONG] = 8;
+		VALUE_SIZES[TYPE_FLOAT] = 4;
+		VALUE_SIZES[TYPE_DOUBLE] = 8;
+		VALUE_SIZES[TYPE_DIMENSION] = 8;
+		VALUE_SIZES[TYPE_VECTOR4] = 16;
+		VALUE_SIZES[TYPE_VECTOR2] = 8;
+		VALUE_SIZES[TYPE_REFERENCE] = 2;
+	}
+	
+	/**
+	 * Skips the data of <code>count</code> values of the given type, without creating any object. 
+	 * This cannot be used with {@link #TYPE_STRUCT}, as structures need the designer information.
+	 * @param stream
+	 * @param type
+	 * @param count
+	 * @throws IOException
+	 */
+	public static void skip(StreamReader stream, int type, int count) throws IOException {
+		if (type == TYPE_TEXT) {
+			for (int i = 0; i < count; ++i) {
+				int len = stream.readLEShort();
+				stream.skip(len == -1 ? 8 : len * 2);
+			}
+		}
+		else if (type >= 0 && type < VALUE_SIZES.length && VALUE_SIZES[type] != 0) {
+			stream.skip(VALUE_SIZES[type] * count);
+		}
+		else {
+			throw new IOException("Cannot skip values of type code " + type + '.');
+		}
+	}
+	
 	private int type;
 	private String text;
 	private String typeName;
@@ -511,7 +555,7 @@ public class SpuiPropertyType {
 	}
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public void set(Field field, SpuiElement element, Object data) throws IllegalArgumentException, IllegalAccessException {
+	public void set(FieldAccessor field, SpuiElement element, Object data) {
 		if (isArray) {
 			if (arrayCount == 0) {
 				((List) field.get(element)).addAll((Collection) data);
@@ -28,6 +28,7 @@ import javafx.beans.property.SimpleDoubleProperty;
 import javafx.event.Event;
 import javafx.event.EventType;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.effect.Effect;
 import javafx.scene.input.MouseEvent;
 import sporemodder.file.spui.components.IWindow;
@@ -41,16 +42,43 @@ public class SpuiViewer extends Canvas {
 	
 	public static class PaintEvent extends Event {
 		private final SpuiViewer viewer;
+		private final SPUIRectangle dirtyArea;
 		
 		public PaintEvent(EventType<? extends Event> eventType, SpuiViewer viewer) {
+			this(eventType, viewer, null);
+		}
+		
+		public PaintEvent(EventType<? extends Event> eventType, SpuiViewer viewer, SPUIRectangle dirtyArea) {
 			super(eventType);
 			this.viewer = viewer;
+			this.dirtyArea = dirtyArea;
 		}
 		
 		public final SpuiViewer getViewer() {
 			return viewer;
 		}
+		
+		/**
+		 * Returns the area of the canvas that is being repainted, or null if the whole canvas is repainted.
+		 * @return
+		 */
+		public final SPUIRectangle getDirtyArea() {
+			return dirtyArea;
+		}
+		
+		/**
+		 * Tells whether the given window must paint itself in this event, that is, if its bounds touch the repainted area.
+		 * Its children might still need to be painted even if this returns false.
+		 * @param window
+		 * @return
+		 */
+		public final boolean mustPaint(IWindow window) {
+			return dirtyArea == null || dirtyArea.intersects(window.getRealArea());
+		}
 	}
+	
+	/** Extra pixels repainted around a dirty window, for outlines and antialiasing that go beyond its bounds. */
+	private static final float DIRTY_AREA_MARGIN = 2.0f;
 
 	public static final EventType<Event> LAYOUT_EVENT = new EventType<Event>("LAYOUT_EVENT");
 	public static final EventType<PaintEvent> PAINT_EVENT = new EventType<PaintEvent>("PAINT_EVENT");
@@ -63,6 +91,8 @@ public class SpuiViewer extends Canvas {
 	// Don't repaint if it's still handling an event
 	private boolean isHandlingEvent;
 	private boolean repaintRequested;
+	// If only some windows changed (like when hovering them) we only repaint the area they cover, without laying out again
+	private SPUIRectangle dirtyArea;
 	
 	private final SpuiLayoutWindow layoutWindow;
 	// In preview we have to resize the root node, we should restore it when closing
@@ -211,6 +241,11 @@ public class SpuiViewer extends Canvas {
 	}
 	
 	private void repaint_internal() {
+		if (!repaintRequested && dirtyArea != null) {
+			repaintDirtyArea();
+			return;
+		}
+		
 		// Stupid? Yes. Necessary? Yes, unless you want a hall of mirrors.
 		Effect eff = null;
 		eff = getGraphicsContext2D().getEffect(eff);
@@ -225,8 +260,35 @@ public class SpuiViewer extends Canvas {
 		handleEvent(paintEvent, false);
 		
 		repaintRequested = false;
+		dirtyArea = null;
 	}
 	
+	private void repaintDirtyArea() {
+		SPUIRectangle area = dirtyArea;
+		dirtyArea = null;
+		
+		GraphicsContext g = getGraphicsContext2D();
+		g.save();
+		
+		Effect eff = null;
+		eff = g.getEffect(eff);
+		g.setEffect(null);
+		g.beginPath();
+		g.rect(area.x1, area.y1, area.getWidth(), area.getHeight());
+		g.clip();
+		g.clearRect(area.x1, area.y1, area.getWidth(), area.getHeight());
+		g.setEffect(eff);
+		
+		// The layout doesn't change, so we just paint the windows that touch the area
+		PaintEvent paintEvent = new PaintEvent(PAINT_EVENT, this, area);
+		handleEvent(paintEvent, false);
+		
+		g.restore();
+	}
+	
+	/**
+	 * Lays out and repaints all the windows.
+	 */
 	public void repaint() {
 		if (isHandlingEvent) {
 			repaintRequested = true;
@@ -235,6 +297,29 @@ public class SpuiViewer extends Canvas {
 		}
 	}
 	
+	/**
+	 * Repaints only the area covered by the given window, for changes that only affect how it looks, not its layout
+	 * (like changing its state when it's hovered). All the windows that touch that area are painted again.
+	 * @param window
+	 */
+	public void repaint(IWindow window) {
+		SPUIRectangle area = new SPUIRectangle(window.getRealArea());
+		area.x1 -= DIRTY_AREA_MARGIN;
+		area.y1 -= DIRTY_AREA_MARGIN;
+		area.x2 += DIRTY_AREA_MARGIN;
+		area.y2 += DIRTY_AREA_MARGIN;
+		
+		if (dirtyArea == null) {
+			dirtyArea = area;
+		} else {
+			dirtyArea.union(area);
+		}
+		
+		if (!isHandlingEvent) {
+			repaint_internal();
+		}
+	}
+	
 	public void handleEvent(Event event) {
 		handleEvent(event, true);
 	}
@@ -246,7 +331,7 @@ public class SpuiViewer extends Canvas {
 		
 		isHandlingEvent = false;
 		
-		if (acceptRepaint && repaintRequested) {
+		if (acceptRepaint && (repaintRequested || dirtyArea != null)) {
 			repaint_internal();
 		}
 	}
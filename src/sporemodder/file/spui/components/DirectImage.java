@@ -85,14 +85,22 @@ public class DirectImage extends InspectableObject implements ISporeImage {
 		this.image = image;
 	}
 
+	/**
+	 * Returns true if there is no image or if it is still being loaded in the background.
+	 * @return
+	 */
+	private boolean isImageMissing() {
+		return image == null || image.getWidth() == 0 || image.getHeight() == 0;
+	}
+
 	@Override
 	public float getWidth() {
-		return image == null ? 1 : (float) image.getWidth();
+		return isImageMissing() ? 1 : (float) image.getWidth();
 	}
 
 	@Override
 	public float getHeight() {
-		return image == null ? 1 : (float) image.getHeight();
+		return isImageMissing() ? 1 : (float) image.getHeight();
 	}
 
 	@Override
@@ -104,6 +112,10 @@ public class DirectImage extends InspectableObject implements ISporeImage {
 		if (image == null) {
 			graphics.setFill(shadeColor);
 			graphics.fillRect(dx, dy, dw, dh);
+		} else if (isImageMissing()) {
+			// The image is still loading, draw a translucent placeholder; the viewer is repainted once it's loaded
+			graphics.setFill(Color.color(shadeColor.getRed(), shadeColor.getGreen(), shadeColor.getBlue(), shadeColor.getOpacity() * 0.25));
+			graphics.fillRect(dx, dy, dw, dh);
 		} else if ((shadeColor.getRed() >= 1)
 				&& (shadeColor.getGreen() >= 1)
 				&& (shadeColor.getBlue() >= 1)
@@ -188,16 +188,19 @@ public class WindowBase extends SpuiElement implements IWindow {
 	public boolean handleEvent(SpuiViewer viewer, Event event) {
 		int oldState = stateFlags;
 		stateFlags = SpuiViewer.getStateFromEvent(this, event);
-		// Request a repaint if the state changed
+		// Request a repaint if the state changed; it only changes how this window looks, not the layout
 		if (stateFlags != oldState) {
-			viewer.repaint();
+			viewer.repaint(this);
 		}
 		
 		if (event.getEventType() == SpuiViewer.PAINT_EVENT) {
 			// We won't show the children neither, so don't propagate the event to them
 			if (!viewer.mustShowWindow(this)) return false;
 			
-			paintComponent((PaintEvent) event);
+			// Children can be outside the parent bounds, so they still receive the event
+			if (((PaintEvent) event).mustPaint(this)) {
+				paintComponent((PaintEvent) event);
+			}
 		}
 		else if (event.getEventType() == SpuiViewer.LAYOUT_EVENT) {
 			// We won't show the children neither, so don't propagate the event to them
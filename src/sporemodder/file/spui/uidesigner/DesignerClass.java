@@ -19,7 +19,9 @@
 package sporemodder.file.spui.uidesigner;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -80,6 +82,11 @@ public class DesignerClass implements DesignerNode {
 	
 	/** A map that assigns a property to its proxy ID. */
 	private final Map<Integer, DesignerProperty> properties = new LinkedHashMap<>();
+	/** The properties of this class declaration indexed by name, built the first time it's needed. */
+	private volatile Map<String, DesignerProperty> propertiesByName;
+	
+	/** The constructor of the Java class, bound only once. */
+	private volatile MethodHandle javaConstructor;
 	
 	
 	/** For parsing, the current enumeration that is being processed. */
@@ -207,8 +214,8 @@ public class DesignerClass implements DesignerNode {
 				DesignerProperty property = new DesignerProperty(this, SpuiElement.EDITOR_TAG_PROXYID, "EditorTag", "string_resource");
 				property.mustUpdateTree = true;
 				property.format = "textonly";
-				properties.put(SpuiElement.EDITOR_TAG_PROXYID, property);
-				properties.put(0x1722b221, property);
+				addProperty(SpuiElement.EDITOR_TAG_PROXYID, property);
+				addProperty(0x1722b221, property);
 				elements.add(property);
 			}
 		}
@@ -239,13 +246,13 @@ public class DesignerClass implements DesignerNode {
 		if (currentElement instanceof DesignerCategory && qName.equalsIgnoreCase(DesignerCategory.KEYWORD)) {
 			DesignerCategory category = (DesignerCategory) currentElement;
 			for (DesignerProperty property : category.getProperties()) {
-				properties.put(property.getProxyID(), property);
+				addProperty(property.getProxyID(), property);
 			}
 			currentElement = null;
 		}
 		else if (currentElement instanceof DesignerProperty && qName.equalsIgnoreCase(DesignerProperty.KEYWORD)) {
 			DesignerProperty property = (DesignerProperty) currentElement;
-			properties.put(property.getProxyID(), property);
+			addProperty(property.getProxyID(), property);
 			currentElement = null;
 		}
 		else if (qName.equalsIgnoreCase(DesignerEnum.KEYWORD)) {
@@ -269,20 +276,38 @@ public class DesignerClass implements DesignerNode {
 		else return result;
 	}
 	
+	private void addProperty(int proxyID, DesignerProperty property) {
+		properties.put(proxyID, property);
+		propertiesByName = null;
+	}
+	
 	public SpuiElement createInstance() {
 		if (javaClass == null) {
 			throw new UnsupportedOperationException("Java class for " + name + " not found.");
 		}
+		MethodHandle constructor = javaConstructor;
+		if (constructor == null) {
+			try {
+				constructor = MethodHandles.lookup().findConstructor(javaClass, MethodType.methodType(void.class))
+						.asType(MethodType.methodType(SpuiElement.class));
+			} 
+			catch (NoSuchMethodException | IllegalAccessException e) {
+				throw new IllegalStateException("Cannot find the constructor of " + javaClass.getName() + " for " + name + ".", e);
+			}
+			javaConstructor = constructor;
+		}
+		SpuiElement element;
 		try {
-			SpuiElement element = javaClass.getConstructor().newInstance();
-			element.setDesignerClass(this);
-			return element;
-		} 
-		catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| NoSuchMethodException | SecurityException e) {
-			e.printStackTrace();
-			return null;
+			element = (SpuiElement) constructor.invokeExact();
+		}
+		catch (Error e) {
+			throw e;
 		}
+		catch (Throwable e) {
+			throw new IllegalStateException("Cannot create an instance of " + javaClass.getName() + " for " + name + ".", e);
+		}
+		element.setDesignerClass(this);
+		return element;
 	}
 	
 	/**
@@ -299,10 +324,18 @@ public class DesignerClass implements DesignerNode {
 	}
 	
 	public DesignerProperty getProperty(String name) {
-		for (DesignerProperty property : properties.values()) {
-			if (name.equals(property.getName())) return property;
+		Map<String, DesignerProperty> map = propertiesByName;
+		if (map == null) {
+			map = new HashMap<>();
+			for (DesignerProperty property : properties.values()) {
+				if (property.getName() != null) map.putIfAbsent(property.getName(), property);
+			}
+			propertiesByName = map;
 		}
-		if (baseClass != null) return baseClass.getProperty(name);
+		
+		DesignerProperty property = map.get(name);
+		if (property != null) return property;
+		else if (baseClass != null) return baseClass.getProperty(name);
 		else return null;
 	}
 
@@ -319,6 +352,25 @@ public class DesignerClass implements DesignerNode {
 		}
 	}
 	
+	/**
+	 * Reads the given number of properties of an element of this class, but discards their values.
+	 * @param stream
+	 * @param propertiesCount
+	 * @throws IOException
+	 */
+	public void skip(StreamReader stream, int propertiesCount) throws IOException {
+		for (int i = 0; i < propertiesCount; ++i) {
+			int id = stream.readLEInt();
+			
+			DesignerProperty property = getProperty(id);
+			if (property != null) {
+				property.skip(stream);
+			} else {
+				throw new IOException("Unsupported property " + HashManager.get().hexToString(id) + " for class " + name + '.');
+			}
+		}
+	}
+	
 	private void writeProperties(SpuiWriter writer, StreamWriter stream, SpuiElement element, Set<Integer> writtenProperties) throws IOException {
 		if (baseClass != null) {
 			baseClass.writeProperties(writer, stream, element, writtenProperties);
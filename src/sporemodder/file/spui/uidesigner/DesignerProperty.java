@@ -19,6 +19,9 @@
 package sporemodder.file.spui.uidesigner;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -85,8 +88,71 @@ public class DesignerProperty extends DesignerElement {
 	/** The keyword used in the XML to describe a property. */
 	public static final String KEYWORD = "Property";
 	
-	/** The java field that corresponds to this property, might be null. */
-	Field javaField;
+	/**
+	 * Reads and writes the Java field of a property. The field is bound to method handles only once, when the designer is parsed,
+	 * as those are much faster than using reflection every time a property is read.
+	 */
+	public static class FieldAccessor {
+		private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, SpuiElement.class);
+		private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, SpuiElement.class, Object.class);
+		
+		private final Field field;
+		private final MethodHandle getter;
+		/** Null if the field cannot be written through a method handle; reflection is used then. */
+		private final MethodHandle setter;
+		
+		private FieldAccessor(Field field) throws IllegalAccessException {
+			this.field = field;
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+			
+			MethodHandle setterHandle;
+			try {
+				setterHandle = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+			} catch (IllegalAccessException e) {
+				setterHandle = null;
+			}
+			setter = setterHandle;
+		}
+		
+		public Object get(SpuiElement element) {
+			try {
+				return (Object) getter.invokeExact(element);
+			}
+			catch (RuntimeException | Error e) {
+				throw e;
+			}
+			catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+		
+		public void set(SpuiElement element, Object value) {
+			if (setter != null) {
+				try {
+					setter.invokeExact(element, value);
+					return;
+				}
+				catch (ClassCastException e) {
+					// Method handles don't do widening conversions of primitives (like int to float), reflection does
+				}
+				catch (RuntimeException | Error e) {
+					throw e;
+				}
+				catch (Throwable e) {
+					throw new RuntimeException(e);
+				}
+			}
+			try {
+				field.set(element, value);
+			} catch (IllegalArgumentException | IllegalAccessException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/** The accessor to the java field that corresponds to this property, might be null. */
+	FieldAccessor fieldAccessor;
 	
 	/** The name used to define this property. */
 	String name;
@@ -141,7 +207,7 @@ public class DesignerProperty extends DesignerElement {
 		this.name = name;
 		this.type = SpuiPropertyType.parse(parentClass.getDesigner(), type);
 		findJavaField(null);
-		if (javaField == null) {
+		if (fieldAccessor == null) {
 			findJavaField(null, SpuiElement.class);
 		}
 	}
@@ -224,9 +290,9 @@ public class DesignerProperty extends DesignerElement {
 				findJavaField(attributes.getValue("fieldname"));
 				
 				// Some subclasses use different names for the same proxyID, and therefore same field
-				if (javaField == null) {
+				if (fieldAccessor == null) {
 					DesignerProperty p = parentClass.getProperty(proxyID);
-					if (p != null) javaField  = p.javaField;
+					if (p != null) fieldAccessor = p.fieldAccessor;
 				}
 			}
 		}
@@ -242,10 +308,11 @@ public class DesignerProperty extends DesignerElement {
 	private void findJavaField(String fieldName, Class<?> clazz) {
 		try {
 			if (fieldName == null) fieldName = getFieldName(name);
-			javaField = clazz.getDeclaredField(fieldName);
-			javaField.setAccessible(true);
+			Field field = clazz.getDeclaredField(fieldName);
+			field.setAccessible(true);
+			fieldAccessor = new FieldAccessor(field);
 		} 
-		catch (NoSuchFieldException | SecurityException e) {
+		catch (NoSuchFieldException | SecurityException | IllegalAccessException e) {
 		}
 	}
 	
@@ -293,18 +360,44 @@ public class DesignerProperty extends DesignerElement {
 			// Some types need to be converted
 			object = type.processValue(spui, element, object, format);
 			
-			if (javaField == null) {
+			if (fieldAccessor == null) {
 				element.setProperty(proxyID, object);
 			} else {
-				try {
-					type.set(javaField, element, object);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					e.printStackTrace();
-				}
+				type.set(fieldAccessor, element, object);
 			}
 		}
 	}
 	
+	/**
+	 * Reads the value of this property from the stream but discards it, without creating any object.
+	 * This is used when only a few properties of a SPUI are needed, as it avoids instantiating the elements.
+	 * @param stream
+	 * @throws IOException
+	 */
+	public void skip(StreamReader stream) throws IOException {
+		int typeCode = stream.readLEShort();
+		int count = stream.readLEUShort();
+		
+		if (typeCode != type.getType()) {
+			throw new IOException("Error on property " + HashManager.get().hexToString(proxyID) + ": expected " + type.toString() + " but got type code " + typeCode + '.');
+		}
+		
+		if (typeCode == SpuiPropertyType.TYPE_STRUCT) {
+			DesignerClass structureClass = parentClass.getDesigner().getClass(type.getTypeName());
+			
+			stream.readLEInt();  // unknown
+			
+			// Same amount of structures that readStruct() would read
+			int structCount = isList() ? count : (isArray() ? type.getArrayCount() : 1);
+			for (int i = 0; i < structCount; ++i) {
+				structureClass.skip(stream, stream.readLEShort());
+			}
+		}
+		else {
+			SpuiPropertyType.skip(stream, typeCode, count);
+		}
+	}
+	
 	public void write(SpuiWriter writer, StreamWriter stream, SpuiElement element) throws IOException {
 		Object data = getValue(element);
 		int count = isArray() ? type.getArrayCount() : 1;
@@ -378,14 +471,9 @@ public class DesignerProperty extends DesignerElement {
 		}
 		else {
 			SpuiElement structElement;
-			if (javaField != null) {
+			if (fieldAccessor != null) {
 				// Structures must be declared as final, so they already exist
-				try {
-					structElement = (SpuiElement) javaField.get(parentElement);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					e.printStackTrace();
-					structElement = new SpuiElement();
-				}
+				structElement = (SpuiElement) fieldAccessor.get(parentElement);
 			}
 			else {
 				structElement = structureClass.createInstance();
@@ -495,13 +583,8 @@ public class DesignerProperty extends DesignerElement {
 	}
 	
 	public Object getValue(SpuiElement element) {
-		if (javaField != null) {
-			try {
-				return javaField.get(element);
-			} catch (IllegalArgumentException | IllegalAccessException e) {
-				e.printStackTrace();
-				return null;
-			}
+		if (fieldAccessor != null) {
+			return fieldAccessor.get(element);
 		} else {
 			return element.getProperty(proxyID);
 		}
@@ -526,12 +609,8 @@ public class DesignerProperty extends DesignerElement {
 				Object existingValue = getValue(element);
 				Array.set(existingValue, arrayIndex, value);
 			}
-		} else if (javaField != null) {
-			try {
-				type.set(javaField, element, value);
-			} catch (IllegalArgumentException | IllegalAccessException e) {
-				e.printStackTrace();
-			}
+		} else if (fieldAccessor != null) {
+			type.set(fieldAccessor, element, value);
 		} else {
 			element.setProperty(proxyID, value);
 		}
@@ -1366,7 +1445,7 @@ public class DesignerProperty extends DesignerElement {
 		
 		if (isArray()) {
 			// If the Java field exists for an array/list, it's final and therefore already set
-			if (javaField == null) {
+			if (fieldAccessor == null) {
 				element.setProperty(proxyID, creteEmptyArray());
 			}
 			
@@ -0,0 +1,182 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.util;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Converts float and double values to text the same way as a <code>DecimalFormat("#.#######")</code> that uses '.' as decimal separator:
+ * values are rounded (half-even) to 7 decimals, trailing zeros are removed, and there is never an exponent nor grouping separators.
+ * <p>
+ * Unlike <code>DecimalFormat</code>, this class is thread-safe, and it appends the digits directly into a <code>StringBuilder</code> 
+ * without creating any object. The value is rounded exactly using its binary representation; only non-integer values above 2^28
+ * and values above 922337203685 use a <code>DecimalFormat</code>, one per thread. That includes every float in practice.
+ */
+public final class FloatFormatter {
+	
+	/** The maximum number of decimals written. */
+	public static final int MAX_DECIMALS = 7;
+	
+	private static final long DECIMALS_SCALE = 10000000L;
+	/** Values below this, multiplied by {@link #DECIMALS_SCALE}, fit in a long. */
+	private static final double EXACT_LIMIT = Long.MAX_VALUE / DECIMALS_SCALE;
+	/** 
+	 * DecimalFormat rounds the shortest decimal that represents the double, not its exact value. Both are rounded the same way 
+	 * as long as the distance between consecutive doubles is smaller than the last decimal, which is true below 2^28.
+	 * Integer values are always the same.
+	 */
+	private static final double EXACT_FRACTION_LIMIT = 0x1p28;
+	
+	private static final ThreadLocal<DecimalFormat> fallbackFormat = ThreadLocal.withInitial(() -> {
+		DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.getDefault());
+		symbols.setDecimalSeparator('.');
+		DecimalFormat format = new DecimalFormat("#.#######", symbols);
+		format.setNegativePrefix("-");
+		return format;
+	});
+	
+	private FloatFormatter() {}
+	
+	/**
+	 * Returns the text that represents the given float, with at most 7 decimals.
+	 * @param value
+	 * @return
+	 */
+	public static String toString(float value) {
+		return append(new StringBuilder(16), value).toString();
+	}
+	
+	/**
+	 * Returns the text that represents the given double, with at most 7 decimals.
+	 * @param value
+	 * @return
+	 */
+	public static String toString(double value) {
+		return append(new StringBuilder(16), value).toString();
+	}
+	
+	/**
+	 * Appends the text that represents the given float, with at most 7 decimals, into the string builder.
+	 * @param sb
+	 * @param value
+	 * @return The same string builder.
+	 */
+	public static StringBuilder append(StringBuilder sb, float value) {
+		// Floats are always converted to double, as DecimalFormat does
+		return append(sb, (double) value);
+	}
+	
+	/**
+	 * Appends the text that represents the given double, with at most 7 decimals, into the string builder.
+	 * @param sb
+	 * @param value
+	 * @return The same string builder.
+	 */
+	public static StringBuilder append(StringBuilder sb, double value) {
+		if (Double.isNaN(value)) {
+			return sb.append("NaN");
+		}
+		
+		long bits = Double.doubleToRawLongBits(value);
+		double abs = Math.abs(value);
+		if (!(abs < EXACT_FRACTION_LIMIT || (abs < EXACT_LIMIT && abs == Math.rint(abs)))) {
+			return sb.append(fallbackFormat.get().format(value));
+		}
+		
+		long scaled = roundScaled(bits & Long.MAX_VALUE);
+		// Negative values keep their sign even if they are rounded to 0, like DecimalFormat does
+		if (bits < 0) {
+			sb.append('-');
+		}
+		sb.append(scaled / DECIMALS_SCALE);
+		
+		long fraction = scaled % DECIMALS_SCALE;
+		if (fraction != 0) {
+			int digits = MAX_DECIMALS;
+			while (fraction % 10 == 0) {
+				fraction /= 10;
+				--digits;
+			}
+			sb.append('.');
+			// Leading zeros
+			int length = 1;
+			for (long power = 10; power <= fraction; power *= 10) {
+				++length;
+			}
+			for (int i = length; i < digits; ++i) {
+				sb.append('0');
+			}
+			sb.append(fraction);
+		}
+		return sb;
+	}
+	
+	/**
+	 * Returns the positive double with the given bits multiplied by 10^7 and rounded half-even to an integer.
+	 * The double is <code>mantissa * 2^exponent</code>, so this is <code>mantissa * 10^7 / 2^-exponent</code>, 
+	 * calculated exactly with 128-bit integers.
+	 */
+	private static long roundScaled(long bits) {
+		int biasedExponent = (int) (bits >>> 52);
+		long mantissa = bits & 0xFFFFFFFFFFFFFL;
+		int exponent;
+		if (biasedExponent == 0) {
+			exponent = -1074;
+		} else {
+			mantissa |= 1L << 52;
+			exponent = biasedExponent - 1075;
+		}
+		
+		if (exponent >= 0) {
+			return (mantissa << exponent) * DECIMALS_SCALE;
+		}
+		
+		int shift = -exponent;
+		// The product is less than 2^77, so if the half is bigger the result is always 0
+		if (shift > 77) {
+			return 0;
+		}
+		long productHigh = Math.multiplyHigh(mantissa, DECIMALS_SCALE);
+		long productLow = mantissa * DECIMALS_SCALE;
+		
+		long result;
+		long remainderHigh;
+		long remainderLow;
+		if (shift < 64) {
+			result = (productLow >>> shift) | (productHigh << (64 - shift));
+			remainderHigh = 0;
+			remainderLow = productLow & ((1L << shift) - 1);
+		} else {
+			result = productHigh >>> (shift - 64);
+			remainderHigh = productHigh & ((1L << (shift - 64)) - 1);
+			remainderLow = productLow;
+		}
+		
+		long halfHigh = shift > 64 ? 1L << (shift - 65) : 0;
+		long halfLow = shift > 64 ? 0 : 1L << (shift - 1);
+		
+		int comparison = remainderHigh != halfHigh ? Long.compareUnsigned(remainderHigh, halfHigh) : Long.compareUnsigned(remainderLow, halfLow);
+		if (comparison > 0 || (comparison == 0 && (result & 1) != 0)) {
+			++result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,175 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javafx.application.Platform;
+import sporemodder.MainApp;
+import sporemodder.UIManager;
+
+/**
+ * An initialization action that is executed only once, either in the background (with {@link #startInBackground()}) or
+ * the first time its result is needed (with {@link #ensureInitialized()}). This is used to load data that is expensive to read
+ * but not needed immediately when the program starts, like the name registries.
+ * <p>
+ * If the action is running in the background when {@link #ensureInitialized()} is called, the caller waits until it finishes;
+ * calling it from the action itself returns immediately. Actions created with an error text can fail: as they might be executed
+ * in any thread, the error is printed when it happens, and shown to the user in the JavaFX thread the next time {@link #ensureInitialized()}
+ * is called once the user interface exists.
+ * <p>
+ * The time spent executing the action is recorded in the startup times of {@link MainApp#getStartupTimes()}.
+ */
+public class LazyInitializer {
+	
+	/** An initialization action that can fail. */
+	@FunctionalInterface
+	public interface Action {
+		public void run() throws Exception;
+	}
+	
+	private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "Background initialization");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private final String name;
+	private final String errorText;
+	private final FutureTask<Void> task;
+	private final AtomicBoolean isStarted = new AtomicBoolean();
+	private volatile boolean isInitialized;
+	/** The thread that is executing the action, so that it does not wait for itself. */
+	private volatile Thread runningThread;
+	/** The exception thrown by the action, if it has an error text. */
+	private volatile Exception error;
+	private final AtomicBoolean isErrorShown = new AtomicBoolean();
+	
+	/**
+	 * Creates an initializer for the given action. The action is not executed until {@link #startInBackground()} or 
+	 * {@link #ensureInitialized()} are called.
+	 * @param name The name used to identify this action in the startup times.
+	 * @param action
+	 */
+	public LazyInitializer(String name, Runnable action) {
+		this(name, action::run, null);
+	}
+	
+	/**
+	 * Creates an initializer for the given action. The action is not executed until {@link #startInBackground()} or 
+	 * {@link #ensureInitialized()} are called. If the action throws an exception, it is shown to the user with an error dialog.
+	 * @param name The name used to identify this action in the startup times.
+	 * @param action
+	 * @param errorText The text shown to the user if the action fails; if it's null, the exception is thrown by {@link #ensureInitialized()}.
+	 */
+	public LazyInitializer(String name, Action action, String errorText) {
+		this.name = name;
+		this.errorText = errorText;
+		this.task = new FutureTask<>(() -> {
+			runningThread = Thread.currentThread();
+			long time = System.nanoTime();
+			try {
+				if (errorText == null) {
+					action.run();
+				}
+				else {
+					try {
+						action.run();
+					}
+					catch (Exception e) {
+						e.printStackTrace();
+						System.err.println(errorText);
+						error = e;
+					}
+				}
+			}
+			finally {
+				MainApp.recordStartupTime(this.name, System.nanoTime() - time);
+				runningThread = null;
+				isInitialized = true;
+			}
+			return null;
+		});
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Returns whether the action has already finished executing.
+	 * @return
+	 */
+	public boolean isInitialized() {
+		return isInitialized;
+	}
+	
+	/**
+	 * Starts executing the action in a background thread, unless it has already been started.
+	 */
+	public void startInBackground() {
+		if (isStarted.compareAndSet(false, true)) {
+			executor.execute(task);
+		}
+	}
+	
+	/**
+	 * Ensures the action has finished executing. If it has not been started yet, it is executed in the current thread;
+	 * if it is being executed in another thread, this method waits until it finishes.
+	 */
+	public void ensureInitialized() {
+		if (error != null) showError();
+		if (isInitialized || runningThread == Thread.currentThread()) return;
+		
+		if (isStarted.compareAndSet(false, true)) {
+			task.run();
+		}
+		
+		try {
+			task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+		
+		if (error != null) showError();
+	}
+	
+	/** Shows the error of the action to the user, only once; this does nothing until the user interface exists. */
+	private void showError() {
+		if (MainApp.get() == null) return;
+		UIManager uiManager = UIManager.get();
+		if (uiManager == null || uiManager.getUserInterface() == null) return;
+		
+		if (isErrorShown.compareAndSet(false, true)) {
+			// The caller might be in the middle of a layout, where dialogs cannot be shown
+			Platform.runLater(() -> uiManager.showErrorDialog(error, errorText, true));
+		}
+	}
+}
@@ -41,6 +41,8 @@ public class NameRegistry {
 	protected HashManager hashManager;
 	protected final String fileName;
 	protected final String name;
+	/** If not null, the contents of the registry are loaded by this initializer, which must finish before the registry is used. */
+	private LazyInitializer initializer;
 	
 	public NameRegistry(HashManager hashManager, String name, String fileName) {
 		this.hashManager = hashManager;
@@ -56,7 +58,24 @@ public class NameRegistry {
 		return fileName;
 	}
 	
+	/**
+	 * Sets the initializer that loads the contents of this registry. Until it finishes, any method that uses the contents of the
+	 * registry waits for it (or executes it, if it has not been started).
+	 * @param initializer
+	 */
+	public void setInitializer(LazyInitializer initializer) {
+		this.initializer = initializer;
+	}
+	
+	/**
+	 * Ensures the contents of this registry have been loaded, if it uses a {@link LazyInitializer}.
+	 */
+	protected void ensureInitialized() {
+		if (initializer != null) initializer.ensureInitialized();
+	}
+	
 	public void clear() {
+		ensureInitialized();
 		hashes.clear();
 		names.clear();
 	}
@@ -67,6 +86,7 @@ public class NameRegistry {
 	 * @return The equivalent name, or null.
 	 */
 	public String getName(int hash) {
+		ensureInitialized();
 		return names.get(hash);
 	}
 	
@@ -77,6 +97,7 @@ public class NameRegistry {
 	 * @return The equivalent hash, or null.
 	 */
 	public Integer getHash(String name) {
+		ensureInitialized();
 		return hashes.get(name);
 	}
 	
@@ -86,6 +107,7 @@ public class NameRegistry {
 	 * @param hash
 	 */
 	public void add(String name, int hash) {
+		ensureInitialized();
 		hashes.put(name.toLowerCase(), hash);
 		names.put(hash, name);
 	}
@@ -96,16 +118,17 @@ public class NameRegistry {
 	 */
 	protected void parseEntry(String str) {
 		// There are 1 or 2 strings: the name and, optionally, the hash.
-		String[] strings = str.split("\t");
-		String name = strings[0].trim();
+		int tabIndex = str.indexOf('\t');
+		String name = (tabIndex == -1 ? str : str.substring(0, tabIndex)).trim();
 		
-		if (strings.length < 2) {
+		if (tabIndex == -1) {
 			int hash = hashManager.fnvHash(name);
 			names.put(hash, name);
 		} 
 		else {
-			// Remove any trailing whitespaces
-			String hashStr = strings[1].trim();
+			// Remove any trailing whitespaces; anything after a second tab is ignored
+			int endIndex = str.indexOf('\t', tabIndex + 1);
+			String hashStr = (endIndex == -1 ? str.substring(tabIndex + 1) : str.substring(tabIndex + 1, endIndex)).trim();
 			int hash = hashManager.int32(hashStr);
 			
 			if (name.endsWith("~")) {
@@ -126,11 +149,14 @@ public class NameRegistry {
 	}
 	
 	public void read(BufferedReader in) throws IOException {
+		ensureInitialized();
 		String line;
 
 		while ((line = in.readLine()) != null) {
 			
-			String str = line.split("//")[0].trim();
+			// Avoid String.split(), as it's slow for registries with thousands of lines
+			int commentIndex = line.indexOf("//");
+			String str = (commentIndex == -1 ? line : line.substring(0, commentIndex)).trim();
 			
 			if (str.length() == 0) continue;
 			
@@ -145,6 +171,7 @@ public class NameRegistry {
 	}
 	
 	public void write(StreamWriter stream) throws IOException {
+		ensureInitialized();
 		String eol = System.getProperty("line.separator");
 		
 		for (Map.Entry<Integer, String> entry : names.entrySet()) {
@@ -158,10 +185,12 @@ public class NameRegistry {
 	}
 
 	public boolean isEmpty() {
+		ensureInitialized();
 		return names.isEmpty() && hashes.isEmpty();
 	}
 
 	public Collection<String> getNames() {
+		ensureInitialized();
 		return names.values();
 	}
 }
@@ -31,7 +31,7 @@ public class OmitProjectItemFactory implements ProjectItemFactory {
 	@Override
 	public boolean isSupported(File file, Project project, TreeItem<ProjectItem> parent) {
 		String name = file.getName();
-		return name.equals("config.properties");
+		return name.equals("config.properties") || name.equals(PackageSource.STATE_FILE_NAME) || name.endsWith(PackageSource.DECODING_EXTENSION);
 	}
 
 	@Override
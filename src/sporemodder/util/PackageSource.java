@@ -0,0 +1,619 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.util;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import javafx.application.Platform;
+import javafx.concurrent.Worker.State;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import sporemodder.EditorManager;
+import sporemodder.FileManager;
+import sporemodder.FormatManager;
+import sporemodder.HashManager;
+import sporemodder.ProjectManager;
+import sporemodder.UIManager;
+import sporemodder.file.Converter;
+import sporemodder.file.ConverterTable;
+import sporemodder.file.ResourceKeySet;
+import sporemodder.file.dbpf.DBPFItem;
+import sporemodder.file.dbpf.DatabasePackedFile;
+import sporemodder.file.filestructures.FileStream;
+import sporemodder.file.filestructures.MemoryStream;
+import sporemodder.file.filestructures.StreamReader;
+import sporemodder.view.dialogs.ProgressDialogUI;
+
+/**
+ * The files of a read-only project that are read directly from the .package files of a {@link ProjectPreset}, instead of
+ * unpacking all of them beforehand. The project folder only contains one folder for every group in the packages; the files
+ * of a group are decoded (using the converters of the source) the first time that folder is loaded or one of its files is requested,
+ * which is done with {@link #loadFolder(String)}. When that is done in the JavaFX thread, a progress dialog is shown while decoding.
+ * <p>
+ * If the same file is in more than one package, only the one in the package with highest priority is used, as when unpacking presets.
+ * To limit disk usage, only a certain amount of bytes of decoded files are kept: when that is exceeded, the files of the groups that
+ * were used least recently are deleted, and they will be decoded again if they are needed; groups that have files open in an
+ * editor are never deleted. When the packages or the converters change, all decoded files are discarded.
+ * <p>
+ * The names of the sporemaster/names files of the packages are only added to the project registry while the indices are read
+ * or files are decoded, as that registry belongs to the active mod.
+ */
+public class PackageSource {
+	
+	/** The default maximum amount of bytes of decoded files kept in the project folder, 2 GB. */
+	public static final long DEFAULT_MAX_DECODED_BYTES = 2L * 1024 * 1024 * 1024;
+	
+	/** The file in the project folder that stores which packages the decoded files were taken from. */
+	public static final String STATE_FILE_NAME = "packageSource.properties";
+	/** Groups are decoded into a folder with this extension, which is renamed once all files are decoded. */
+	public static final String DECODING_EXTENSION = ".decoding";
+	
+	private static final String PROPERTY_packagesStamp = "packagesStamp";
+	
+	private static class Item {
+		final File packageFile;
+		final DBPFItem item;
+		
+		Item(File packageFile, DBPFItem item) {
+			this.packageFile = packageFile;
+			this.item = item;
+		}
+	}
+	
+	/** Decodes the files of a group in the background, used to show the progress to the user. */
+	private class DecodeGroupTask extends ResumableTask<Void> {
+		private final List<Item> items;
+		private final File tempFolder;
+		
+		DecodeGroupTask(List<Item> items, File tempFolder) {
+			this.items = items;
+			this.tempFolder = tempFolder;
+		}
+		
+		@Override
+		protected Void call() throws Exception {
+			updateMessage("Decoding files...");
+			decodeFiles(items, tempFolder, this);
+			return null;
+		}
+		
+		void itemDecoded(int count) throws InterruptedException {
+			updateProgress(count, items.size());
+			ensureRunning();
+		}
+	}
+	
+	/** Waits until another thread finishes decoding a group, so the JavaFX thread can wait for it without blocking. */
+	private class WaitGroupTask extends ResumableTask<Void> {
+		private final String groupName;
+		
+		WaitGroupTask(String groupName) {
+			this.groupName = groupName;
+		}
+		
+		@Override
+		protected Void call() throws Exception {
+			updateMessage("Waiting for the files to be decoded...");
+			updateProgress(-1, 1);
+			synchronized (PackageSource.this) {
+				while (decodingGroups.containsKey(groupName)) {
+					PackageSource.this.wait();
+				}
+			}
+			return null;
+		}
+	}
+	
+	/** How many threads are using the names of the packages, added with {@link #addPackageNames(List)}; guarded by the project registry. */
+	private static int packageNamesUsers;
+	/** The contents of the project registry before the names of the packages were added to it; guarded by the project registry. */
+	private static NameRegistry savedProjectNames;
+	
+	private final Project project;
+	private final String presetName;
+	/** The class names of the converters used to decode files; if it's empty, the converters enabled by default are used. */
+	private final List<String> converterNames = new ArrayList<>();
+	
+	private long maxDecodedBytes = DEFAULT_MAX_DECODED_BYTES;
+	
+	/** The packages, in order of priority. */
+	private final List<File> packageFiles = new ArrayList<>();
+	/** The items of every group, mapped to the group folder name. Null until the indices are read. */
+	private Map<String, List<Item>> groups;
+	/** The groups that have been decoded mapped to how many bytes their files use, in access order (least recently used first). */
+	private final Map<String, Long> decodedGroups = new LinkedHashMap<>(16, 0.75f, true);
+	/** The groups that are being decoded right now, mapped to the thread that decodes them. */
+	private final Map<String, Thread> decodingGroups = new HashMap<>();
+	private long decodedBytes;
+	/** The contents of the sporemaster/names files of the packages, from lowest to highest priority. */
+	private volatile List<byte[]> packageNames = new ArrayList<>();
+	
+	public PackageSource(Project project, String presetName) {
+		this.project = project;
+		this.presetName = presetName;
+	}
+	
+	/**
+	 * Returns the name of the {@link ProjectPreset} that defines the packages of this source.
+	 * @return
+	 */
+	public String getPresetName() {
+		return presetName;
+	}
+	
+	/**
+	 * Returns the class names of the converters used to decode the files. If it's empty, the converters that are enabled
+	 * by default are used.
+	 * @return
+	 */
+	public List<String> getConverterNames() {
+		return converterNames;
+	}
+	
+	public synchronized long getMaxDecodedBytes() {
+		return maxDecodedBytes;
+	}
+	
+	/**
+	 * Sets the maximum amount of bytes used by decoded files. If it's exceeded, the files of the groups that were
+	 * used least recently are deleted.
+	 * @param maxDecodedBytes
+	 */
+	public synchronized void setMaxDecodedBytes(long maxDecodedBytes) {
+		this.maxDecodedBytes = maxDecodedBytes;
+		evict(null);
+	}
+	
+	/**
+	 * Returns the amount of bytes used by the files that are currently decoded.
+	 * @return
+	 */
+	public synchronized long getDecodedBytes() {
+		return decodedBytes;
+	}
+	
+	private ProjectPreset getPreset() throws IOException {
+		for (ProjectPreset preset : ProjectManager.get().getPresets()) {
+			if (preset.getName().equals(presetName)) return preset;
+		}
+		throw new IOException("Preset \"" + presetName + "\" does not exist.");
+	}
+	
+	private List<Converter> getConverters() {
+		List<Converter> converters = new ArrayList<>();
+		for (Converter converter : FormatManager.get().getConverters()) {
+			if (converterNames.isEmpty() ? converter.isEnabledByDefault() : converterNames.contains(converter.getClass().getName())) {
+				converters.add(converter);
+			}
+		}
+		return converters;
+	}
+	
+	/** Returns a text that changes if any of the packages is modified, or if different converters are used. */
+	private String getPackagesStamp() {
+		StringBuilder sb = new StringBuilder();
+		for (File file : packageFiles) {
+			sb.append(file.getAbsolutePath()).append('|').append(file.length()).append('|').append(file.lastModified()).append(';');
+		}
+		for (Converter converter : getConverters()) {
+			sb.append(converter.getClass().getName()).append(';');
+		}
+		return sb.toString();
+	}
+	
+	/** 
+	 * Adds the names of the sporemaster/names files of the packages to the project registry, as it's done when unpacking.
+	 * The project registry belongs to the active mod (it is saved and packed with it), so this must always be followed
+	 * by {@link #removePackageNames()}, even if it throws an exception.
+	 */
+	private static void addPackageNames(List<byte[]> names) throws IOException {
+		NameRegistry registry = HashManager.get().getProjectRegistry();
+		synchronized (registry) {
+			// If other threads are using names of packages, the registry already has extra names
+			if (packageNamesUsers++ == 0) {
+				savedProjectNames = new NameRegistry(HashManager.get(), "", "");
+				savedProjectNames.names.putAll(registry.names);
+				savedProjectNames.hashes.putAll(registry.hashes);
+			}
+			for (byte[] data : names) {
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data)))) {
+					registry.read(reader);
+				}
+			}
+		}
+	}
+	
+	/** Restores the contents the project registry had before the names of the packages were added, once no thread uses them. */
+	private static void removePackageNames() {
+		NameRegistry registry = HashManager.get().getProjectRegistry();
+		synchronized (registry) {
+			if (--packageNamesUsers == 0) {
+				registry.clear();
+				registry.names.putAll(savedProjectNames.names);
+				registry.hashes.putAll(savedProjectNames.hashes);
+				savedProjectNames = null;
+			}
+		}
+	}
+	
+	private static long getFolderSize(File folder) throws IOException {
+		try (Stream<Path> paths = Files.walk(folder.toPath())) {
+			return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+		}
+	}
+	
+	/**
+	 * Reads the index of all the packages and creates the folders of all the groups, if it hasn't been done yet.
+	 * Files that were decoded in a previous session are kept, unless the packages have changed since then.
+	 * @throws IOException
+	 */
+	private void readIndices() throws IOException {
+		if (groups != null) return;
+		
+		HashManager hasher = HashManager.get();
+		ProjectPreset preset = getPreset();
+		
+		Map<String, File> files = new LinkedHashMap<>();
+		preset.getFiles(files);
+		packageFiles.clear();
+		for (File file : files.values()) {
+			if (file.isFile()) packageFiles.add(file);
+		}
+		
+		int namesGroup = hasher.getFileHash("sporemaster");
+		int namesInstance = hasher.getFileHash("names");
+		
+		List<DatabasePackedFile> headers = new ArrayList<>();
+		List<byte[]> newNames = new ArrayList<>();
+		for (File file : packageFiles) {
+			DatabasePackedFile header = new DatabasePackedFile();
+			try (StreamReader stream = new FileStream(file, "r")) {
+				header.readHeader(stream);
+				header.readIndex(stream);
+				header.index.readItems(stream, header.indexCount, header.isDBBF);
+				
+				for (DBPFItem item : header.index.items) {
+					if (item.name.getGroupID() == namesGroup && item.name.getInstanceID() == namesInstance) {
+						// Added at the beginning so the names of packages with higher priority are read last
+						try (MemoryStream data = item.processFile(stream)) {
+							newNames.add(0, data.toByteArray());
+						}
+					}
+				}
+			}
+			headers.add(header);
+		}
+		
+		packageNames = newNames;
+		
+		Map<String, List<Item>> newGroups = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		ResourceKeySet keys = new ResourceKeySet();
+		
+		// The names are needed to name the group folders
+		try {
+			addPackageNames(newNames);
+			
+			for (int i = 0; i < headers.size(); ++i) {
+				for (DBPFItem item : headers.get(i).index.items) {
+					if (preset.getItemFilter() != null && !preset.getItemFilter().filter(item)) continue;
+					// Files in packages with higher priority hide the others
+					if (!keys.add(item.name)) continue;
+					
+					String groupName = hasher.getFileName(item.name.getGroupID());
+					newGroups.computeIfAbsent(groupName, k -> new ArrayList<>()).add(new Item(packageFiles.get(i), item));
+				}
+			}
+		}
+		finally {
+			removePackageNames();
+		}
+		
+		File folder = project.getFolder();
+		Properties state = new Properties();
+		File stateFile = new File(folder, STATE_FILE_NAME);
+		if (stateFile.isFile()) {
+			try (InputStream stream = new FileInputStream(stateFile)) {
+				state.load(stream);
+			}
+		}
+		
+		String stamp = getPackagesStamp();
+		boolean keepDecoded = stamp.equals(state.getProperty(PROPERTY_packagesStamp));
+		
+		decodedGroups.clear();
+		decodedBytes = 0;
+		
+		String[] existingNames = folder.list();
+		if (existingNames != null) {
+			for (String name : existingNames) {
+				File file = new File(folder, name);
+				if (!file.isDirectory()) continue;
+				
+				String[] contents = file.list();
+				boolean isDecoded = contents != null && contents.length != 0;
+				
+				if (name.endsWith(DECODING_EXTENSION) || !newGroups.containsKey(name) || (isDecoded && !keepDecoded)) {
+					// Incomplete, removed or outdated
+					FileManager.get().deleteDirectory(file);
+				}
+				else if (isDecoded) {
+					long size = getFolderSize(file);
+					decodedGroups.put(name, size);
+					decodedBytes += size;
+				}
+			}
+		}
+		
+		for (String groupName : newGroups.keySet()) {
+			new File(folder, groupName).mkdir();
+		}
+		
+		if (!keepDecoded) {
+			state.setProperty(PROPERTY_packagesStamp, stamp);
+			try (OutputStream stream = new FileOutputStream(stateFile)) {
+				state.store(stream, null);
+			}
+		}
+		
+		groups = newGroups;
+		evict(null);
+	}
+	
+	/**
+	 * Ensures the files in the given path, relative to the project folder, are available on disk. The root folder
+	 * contains all the groups; if the path is inside a group folder, all the files of that group are decoded, unless they
+	 * already were. If another thread is decoding the same group, this waits until it finishes. If this is called from the JavaFX thread,
+	 * a progress dialog is shown while the files are decoded (or while waiting), and if the user cancels it the group stays empty.
+	 * @param relativePath
+	 * @throws IOException
+	 */
+	public void loadFolder(String relativePath) throws IOException {
+		String groupName;
+		List<Item> items;
+		
+		synchronized (this) {
+			readIndices();
+			
+			String path = relativePath.replace('/', File.separatorChar).replace('\\', File.separatorChar);
+			while (path.startsWith(File.separator)) path = path.substring(1);
+			if (path.isEmpty()) return;
+			
+			int index = path.indexOf(File.separatorChar);
+			groupName = index == -1 ? path : path.substring(0, index);
+			
+			items = groups.get(groupName);
+			if (items == null) return;
+		}
+		
+		while (true) {
+			synchronized (this) {
+				Thread owner = decodingGroups.get(groupName);
+				// The JavaFX thread can't block, so it waits with a progress dialog, outside the lock
+				while (owner != null && !Platform.isFxApplicationThread()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+					owner = decodingGroups.get(groupName);
+				}
+				
+				if (owner == null) {
+					if (decodedGroups.get(groupName) != null) return;
+					
+					decodingGroups.put(groupName, Thread.currentThread());
+					break;
+				}
+				// The JavaFX thread is already decoding it, and this was called while its progress dialog is showing
+				if (owner == Thread.currentThread()) return;
+			}
+			
+			if (!waitWithProgress(groupName)) return;
+		}
+		
+		// The lock is not held while decoding, so the source can be used while the progress dialog is showing
+		try {
+			// An incomplete folder from a cancelled or failed decoding is deleted here
+			File tempFolder = new File(project.getFolder(), groupName + DECODING_EXTENSION);
+			if (tempFolder.exists()) FileManager.get().deleteDirectory(tempFolder);
+			tempFolder.mkdir();
+			
+			if (Platform.isFxApplicationThread()) {
+				if (!decodeWithProgress(groupName, items, tempFolder)) return;
+			}
+			else {
+				try {
+					decodeFiles(items, tempFolder, null);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+			
+			moveDecodedGroup(groupName, tempFolder);
+		}
+		finally {
+			synchronized (this) {
+				decodingGroups.remove(groupName);
+				notifyAll();
+			}
+		}
+	}
+	
+	/** Waits until another thread decodes a group while showing a progress dialog; returns false if the user cancelled it. */
+	private boolean waitWithProgress(String groupName) {
+		WaitGroupTask task = new WaitGroupTask(groupName);
+		
+		ProgressDialogUI progressUI = UIManager.get().loadUI("dialogs/ProgressDialogUI");
+		Dialog<ButtonType> progressDialog = progressUI.createDialog(task);
+		progressDialog.setTitle("Decoding " + groupName + " from preset \"" + presetName + "\"");
+		
+		progressUI.getProgressBar().progressProperty().bind(task.progressProperty());
+		progressUI.getLabel().textProperty().bind(task.messageProperty());
+		
+		UIManager.get().showDialog(progressDialog);
+		
+		return task.getState() == State.SUCCEEDED;
+	}
+	
+	/** Decodes the files of a group while showing a progress dialog; returns false if the user cancelled it. */
+	private boolean decodeWithProgress(String groupName, List<Item> items, File tempFolder) throws IOException {
+		DecodeGroupTask task = new DecodeGroupTask(items, tempFolder);
+		
+		ProgressDialogUI progressUI = UIManager.get().loadUI("dialogs/ProgressDialogUI");
+		Dialog<ButtonType> progressDialog = progressUI.createDialog(task);
+		progressDialog.setTitle("Decoding " + groupName + " from preset \"" + presetName + "\"");
+		
+		progressUI.getProgressBar().progressProperty().bind(task.progressProperty());
+		progressUI.getLabel().textProperty().bind(task.messageProperty());
+		
+		UIManager.get().showDialog(progressDialog);
+		
+		if (task.getState() == State.FAILED) {
+			Throwable e = task.getException();
+			throw e instanceof IOException ? (IOException) e : new IOException(e);
+		}
+		return task.getState() == State.SUCCEEDED;
+	}
+	
+	/** 
+	 * Decodes the given items into a folder. If a task is given, it is used to report the progress, and decoding
+	 * stops if it is cancelled.
+	 */
+	private void decodeFiles(List<Item> items, File tempFolder, DecodeGroupTask task) throws IOException, InterruptedException {
+		// The names are removed when it finishes, so they don't end up in the active mod
+		try {
+			addPackageNames(packageNames);
+			decodeItems(items, tempFolder, task);
+		}
+		finally {
+			removePackageNames();
+		}
+	}
+	
+	private void decodeItems(List<Item> items, File tempFolder, DecodeGroupTask task) throws IOException, InterruptedException {
+		HashManager hasher = HashManager.get();
+		List<Converter> converters = getConverters();
+		for (Converter converter : converters) converter.reset();
+		ConverterTable converterTable = new ConverterTable(converters);
+		
+		// Items are grouped by package, as they were added in order
+		int itemIndex = 0;
+		while (itemIndex < items.size()) {
+			File packageFile = items.get(itemIndex).packageFile;
+			try (StreamReader stream = new FileStream(packageFile, "r")) {
+				for (; itemIndex < items.size() && items.get(itemIndex).packageFile == packageFile; ++itemIndex) {
+					if (task != null && task.isCancelled()) return;
+					
+					DBPFItem item = items.get(itemIndex).item;
+					try (MemoryStream data = item.processFile(stream)) {
+						boolean isConverted = false;
+						try {
+							for (Converter converter : converterTable.getDecoderCandidates(item.name)) {
+								if (converter.isDecoder(item.name)) {
+									data.seek(0);
+									if (converter.decode(data, tempFolder, item.name)) {
+										isConverted = true;
+										break;
+									}
+								}
+							}
+						} catch (Exception e) {
+							// As when unpacking, files that cannot be converted are written unconverted
+							e.printStackTrace();
+						}
+						
+						if (!isConverted) {
+							String name = hasher.getFileName(item.name.getInstanceID()) + "." + hasher.getTypeName(item.name.getTypeID());
+							data.writeToFile(new File(tempFolder, name));
+						}
+					}
+					
+					if (task != null) task.itemDecoded(itemIndex + 1);
+				}
+			}
+		}
+	}
+	
+	/** Replaces the folder of a group with the decoded files and adds it to the decoded groups. */
+	private synchronized void moveDecodedGroup(String groupName, File tempFolder) throws IOException {
+		File folder = new File(project.getFolder(), groupName);
+		FileManager.get().deleteDirectory(folder);
+		if (!tempFolder.renameTo(folder)) {
+			throw new IOException("Could not move decoded files into " + folder.getAbsolutePath());
+		}
+		
+		long size = getFolderSize(folder);
+		decodedGroups.put(groupName, size);
+		decodedBytes += size;
+		evict(groupName);
+	}
+	
+	/** 
+	 * Deletes the files of the least recently used groups until the decoded files fit the budget; the given group is never deleted,
+	 * and neither are the groups that have files open in an editor.
+	 */
+	private void evict(String keep) {
+		EditorManager editorManager = EditorManager.get();
+		Iterator<Map.Entry<String, Long>> it = decodedGroups.entrySet().iterator();
+		while (decodedBytes > maxDecodedBytes && it.hasNext()) {
+			Map.Entry<String, Long> entry = it.next();
+			if (entry.getKey().equals(keep)) continue;
+			
+			File folder = new File(project.getFolder(), entry.getKey());
+			if (editorManager != null && editorManager.isEditingFolder(folder)) continue;
+			try {
+				FileManager.get().deleteDirectory(folder);
+				folder.mkdir();
+			} catch (IOException e) {
+				e.printStackTrace();
+				continue;
+			}
+			decodedBytes -= entry.getValue();
+			it.remove();
+		}
+	}
+	
+	/**
+	 * Forgets the indices of the packages, so they are read again the next time a folder is loaded. This must be called if the
+	 * game folder changes.
+	 */
+	public synchronized void invalidate() {
+		groups = null;
+	}
+}
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import javafx.application.Platform;
 import sporemodder.MessageManager;
 import sporemodder.MessageManager.MessageType;
 import sporemodder.PathManager;
@@ -89,6 +90,8 @@ public class Project {
 	private static final String PROPERTY_packageSignature = "embeddedEditorPackages";  // for compatibility
 	private static final String PROPERTY_isReadOnly = "isReadOnly";
 	private static final String PROPERTY_showOnlyModded = "showOnlyModded";
+	private static final String PROPERTY_packagePreset = "packagePreset";
+	private static final String PROPERTY_packageConverters = "packageConverters";
 
 	/** The name of the project, which is taken from the folder name. */
 	private String name;
@@ -115,6 +118,11 @@ public class Project {
 	/** Read only projects cannot be packed and its files cannot be directly edited. */
 	private boolean isReadOnly;
 	
+	/** If not null, the files of this project are decoded on demand from the packages of a preset. */
+	private PackageSource packageSource;
+	/** Whether the user has been told that the package source failed, so it's not shown for every file. */
+	private boolean isPackageErrorShown;
+	
 	private final Properties settings = new Properties();
 	
 	/** Extra properties that can be used by plugins. */
@@ -194,6 +202,14 @@ public class Project {
 				
 				isReadOnly = Boolean.parseBoolean(settings.getProperty(PROPERTY_isReadOnly, "false"));
 				
+				String packagePreset = settings.getProperty(PROPERTY_packagePreset);
+				if (packagePreset != null) {
+					packageSource = new PackageSource(this, packagePreset);
+					for (String str : stringListSplit(PROPERTY_packageConverters)) {
+						packageSource.getConverterNames().add(str);
+					}
+				}
+				
 				MessageManager.get().postMessage(MessageType.OnProjectSettingsLoad, this);
 			} 
 			catch (IOException e) {
@@ -246,6 +262,21 @@ public class Project {
 			
 			settings.put(PROPERTY_isReadOnly, Boolean.toString(isReadOnly));
 			
+			if (packageSource != null) {
+				settings.put(PROPERTY_packagePreset, packageSource.getPresetName());
+				
+				StringBuilder sb = new StringBuilder();
+				List<String> converterNames = packageSource.getConverterNames();
+				for (int i = 0; i < converterNames.size(); i++) {
+					sb.append("\"" + converterNames.get(i) + "\"");
+					if (i != converterNames.size()-1) sb.append("|");
+				}
+				settings.setProperty(PROPERTY_packageConverters, sb.toString());
+			} else {
+				settings.remove(PROPERTY_packagePreset);
+				settings.remove(PROPERTY_packageConverters);
+			}
+			
 			MessageManager.get().postMessage(MessageType.OnProjectSettingsSave, this);
 			
 			settings.store(stream, null);
@@ -282,6 +313,48 @@ public class Project {
 		this.isReadOnly = isReadOnly;
 	}
 	
+	/**
+	 * Returns the source that decodes the files of this project on demand from the packages of a preset, 
+	 * or null if the files of this project are stored in its folder.
+	 * @return
+	 */
+	public PackageSource getPackageSource() {
+		return packageSource;
+	}
+	
+	/**
+	 * Sets the source that decodes the files of this project on demand from the packages of a preset. Projects with a
+	 * package source should be read-only.
+	 * @param packageSource
+	 */
+	public void setPackageSource(PackageSource packageSource) {
+		this.packageSource = packageSource;
+	}
+	
+	/**
+	 * If this project has a package source, ensures the files in the given path (relative to the project folder)
+	 * have been decoded; otherwise, this method does nothing. If the files cannot be decoded, an error dialog is shown
+	 * to the user, only once until the source works again.
+	 * @param relativePath
+	 */
+	public void loadPackageFolder(String relativePath) {
+		if (packageSource != null) {
+			try {
+				packageSource.loadFolder(relativePath);
+				isPackageErrorShown = false;
+			} catch (IOException e) {
+				e.printStackTrace();
+				
+				// There's no user interface when running from the command line
+				if (!isPackageErrorShown && UIManager.get().getPrimaryStage() != null) {
+					isPackageErrorShown = true;
+					String errorText = "Could not read the files of project \"" + name + "\" from the packages of preset \"" + packageSource.getPresetName() + "\".";
+					Platform.runLater(() -> UIManager.get().showErrorDialog(e, errorText, true));
+				}
+			}
+		}
+	}
+	
 	/** 
 	 * Returns a list of relative paths of all those files that are fixed tabs. 
 	 * @return
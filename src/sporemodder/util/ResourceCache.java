@@ -0,0 +1,361 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A process-wide cache of resources decoded from files (images, locale tables, textures...), shared by all editors so that
+ * a file that is open in several tabs, or opened again, is not decoded again.
+ * <p>
+ * Resources are mapped to the file they were read from and a "kind", since the same file can be decoded into different objects.
+ * The modification time and size of the file are checked every time a resource is requested; if the file has changed on disk,
+ * the resource is loaded again. Every resource is weighed by an estimation of the bytes it uses: when the total exceeds
+ * {@link #getMaxBytes()}, the least recently used resources are only kept through soft references, so the garbage collector
+ * can discard them if memory is needed; until then, they can still be reused.
+ * <p>
+ * Cached resources are shared, so they must not be modified.
+ */
+public class ResourceCache {
+	
+	/** By default, resources can use up to a quarter of the maximum heap size. */
+	public static final long DEFAULT_MAX_BYTES = Runtime.getRuntime().maxMemory() / 4;
+	
+	private static final ResourceCache instance = new ResourceCache();
+	
+	@FunctionalInterface
+	public static interface Loader<T> {
+		/** Reads the resource from the given file; it can return null if the file does not contain a valid resource, which is not cached. */
+		public T load(File file) throws Exception;
+	}
+	
+	@FunctionalInterface
+	public static interface Weigher<T> {
+		/** Returns an estimation of how many bytes the given resource uses. */
+		public long weigh(T resource);
+	}
+	
+	/** Identifies a resource: the file it was read from, and what it was decoded into. */
+	private static class Key {
+		final File file;
+		final String kind;
+		
+		Key(File file, String kind) {
+			this.file = file.getAbsoluteFile();
+			this.kind = kind;
+		}
+		
+		@Override public int hashCode() {
+			return Objects.hash(file, kind);
+		}
+		
+		@Override public boolean equals(Object obj) {
+			return obj instanceof Key && ((Key) obj).file.equals(file) && ((Key) obj).kind.equals(kind);
+		}
+	}
+	
+	private static class Entry {
+		final Key key;
+		long lastModified;
+		long size;
+		Weigher<Object> weigher;
+		/** The resource, while it is within the budget; null once it is only softly referenced. */
+		Object resource;
+		SoftEntryReference reference;
+		long bytes;
+		
+		Entry(Key key) {
+			this.key = key;
+		}
+	}
+	
+	/** A soft reference that remembers its entry, so it can be removed once the resource is collected. */
+	private static class SoftEntryReference extends SoftReference<Object> {
+		final Entry entry;
+		
+		SoftEntryReference(Object resource, Entry entry, ReferenceQueue<Object> queue) {
+			super(resource, queue);
+			this.entry = entry;
+		}
+	}
+	
+	/** Resources within the budget, in access order (least recently used first). */
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	/** Resources that exceeded the budget, which might have been discarded by the garbage collector. */
+	private final Map<Key, Entry> softEntries = new HashMap<>();
+	private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+	
+	/** The total amount of bytes used by the resources in {@link #entries}. */
+	private long totalBytes;
+	private long maxBytes = DEFAULT_MAX_BYTES;
+	
+	private long hitCount;
+	private long softHitCount;
+	private long missCount;
+	private long evictionCount;
+	private long collectedCount;
+	
+	/**
+	 * Returns the cache shared by all editors.
+	 * @return
+	 */
+	public static ResourceCache get() {
+		return instance;
+	}
+	
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+	
+	/**
+	 * Sets the maximum amount of bytes that cached resources can use before they are only softly referenced.
+	 * If the cache is already using more than that, the least recently used resources are evicted.
+	 * @param maxBytes
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evict(null);
+	}
+	
+	/**
+	 * Returns the resource of the given kind read from the given file. If it is not in the cache, or the file has changed
+	 * since it was read, the resource is loaded with the given loader; the loader is not called while holding the cache lock,
+	 * so it can take time.
+	 * @param file The file that contains the resource.
+	 * @param kind What the file is decoded into, so the same file can be cached as different resources.
+	 * @param loader The method used to read the resource if it is not cached.
+	 * @param weigher The method used to estimate how many bytes the resource uses.
+	 * @return The resource, or null if the loader returned null.
+	 * @throws IOException If the loader fails; other exceptions are wrapped.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(File file, String kind, Loader<T> loader, Weigher<? super T> weigher) throws IOException {
+		Key key = new Key(file, kind);
+		long lastModified = 0;
+		long size = -1;
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(key.file.toPath(), BasicFileAttributes.class);
+			lastModified = attributes.lastModifiedTime().toMillis();
+			size = attributes.size();
+		}
+		catch (IOException e) {
+			// The loader will decide what to do with files that don't exist
+		}
+		
+		synchronized (this) {
+			purgeCollected();
+			
+			Entry entry = entries.get(key);
+			if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+				++hitCount;
+				return (T) entry.resource;
+			}
+			
+			Entry softEntry = softEntries.remove(key);
+			if (softEntry != null && softEntry.lastModified == lastModified && softEntry.size == size) {
+				Object resource = softEntry.reference.get();
+				if (resource != null) {
+					++softHitCount;
+					softEntry.reference = null;
+					softEntry.resource = resource;
+					entries.put(key, softEntry);
+					totalBytes += softEntry.bytes;
+					evict(key);
+					return (T) resource;
+				}
+			}
+			
+			++missCount;
+			remove(key);
+		}
+		
+		T resource;
+		try {
+			resource = loader.load(key.file);
+		}
+		catch (IOException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new IOException(e);
+		}
+		if (resource == null) return null;
+		
+		Entry entry = new Entry(key);
+		entry.lastModified = lastModified;
+		entry.size = size;
+		entry.weigher = (Weigher<Object>) weigher;
+		entry.resource = resource;
+		entry.bytes = weigher.weigh(resource);
+		
+		synchronized (this) {
+			// Another thread might have loaded it at the same time
+			remove(key);
+			entries.put(key, entry);
+			totalBytes += entry.bytes;
+			evict(key);
+		}
+		return resource;
+	}
+	
+	/**
+	 * Estimates again the bytes used by a cached resource, for resources whose size changes after being loaded
+	 * (for example, images loaded in the background).
+	 * @param file
+	 * @param kind
+	 */
+	public synchronized void reweigh(File file, String kind) {
+		Key key = new Key(file, kind);
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			totalBytes -= entry.bytes;
+			entry.bytes = entry.weigher.weigh(entry.resource);
+			totalBytes += entry.bytes;
+			evict(key);
+		}
+		else if ((entry = softEntries.get(key)) != null) {
+			Object resource = entry.reference.get();
+			if (resource != null) entry.bytes = entry.weigher.weigh(resource);
+		}
+	}
+	
+	/** Moves least recently used resources to the soft references until the cache fits the budget; the given key is never evicted. */
+	private void evict(Key keep) {
+		Iterator<Entry> it = entries.values().iterator();
+		while (totalBytes > maxBytes && it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.key.equals(keep)) continue;
+			
+			it.remove();
+			totalBytes -= entry.bytes;
+			entry.reference = new SoftEntryReference(entry.resource, entry, referenceQueue);
+			entry.resource = null;
+			softEntries.put(entry.key, entry);
+			++evictionCount;
+		}
+	}
+	
+	/** Removes the entries whose resource has been discarded by the garbage collector. */
+	private void purgeCollected() {
+		SoftEntryReference reference;
+		while ((reference = (SoftEntryReference) referenceQueue.poll()) != null) {
+			if (softEntries.get(reference.entry.key) == reference.entry) {
+				softEntries.remove(reference.entry.key);
+				++collectedCount;
+			}
+		}
+	}
+	
+	private void remove(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			totalBytes -= entry.bytes;
+		}
+		softEntries.remove(key);
+	}
+	
+	/**
+	 * Removes the resource of the given kind read from the given file, so it will be loaded again the next time it is requested.
+	 * @param file
+	 * @param kind
+	 */
+	public synchronized void invalidate(File file, String kind) {
+		remove(new Key(file, kind));
+	}
+	
+	/**
+	 * Removes all the resources read from the given file.
+	 * @param file
+	 */
+	public synchronized void invalidate(File file) {
+		File absoluteFile = file.getAbsoluteFile();
+		entries.values().removeIf(entry -> {
+			if (entry.key.file.equals(absoluteFile)) {
+				totalBytes -= entry.bytes;
+				return true;
+			}
+			return false;
+		});
+		softEntries.keySet().removeIf(key -> key.file.equals(absoluteFile));
+	}
+	
+	/**
+	 * Removes all resources from the cache. The statistics are not reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		softEntries.clear();
+		totalBytes = 0;
+	}
+	
+	/**
+	 * Returns the amount of bytes used by the resources that are within the budget; this does not include
+	 * the softly referenced ones.
+	 * @return
+	 */
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+	
+	/** How many requests returned a resource that was within the budget. */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+	
+	/** How many requests returned a resource that had been evicted, but had not been discarded by the garbage collector. */
+	public synchronized long getSoftHitCount() {
+		return softHitCount;
+	}
+	
+	/** How many requests had to load the resource. */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+	
+	/** How many resources have been evicted because the cache exceeded the budget. */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+	
+	/** How many evicted resources have been discarded by the garbage collector. */
+	public synchronized long getCollectedCount() {
+		return collectedCount;
+	}
+	
+	/**
+	 * Returns a summary of the state of the cache, for diagnostics.
+	 * @return
+	 */
+	public synchronized String getStatistics() {
+		purgeCollected();
+		return String.format("%d resources (%.1f of %.1f MB), %d evicted still in memory; %d hits, %d soft hits, %d misses, %d evictions, %d collected",
+				entries.size(), totalBytes / (1024.0 * 1024.0), maxBytes / (1024.0 * 1024.0), softEntries.size(),
+				hitCount, softHitCount, missCount, evictionCount, collectedCount);
+	}
+}
@@ -115,9 +115,9 @@ public class Vector2 {
 		StringBuilder sb = new StringBuilder();
 		
 		sb.append('(');
-		sb.append(hasher.floatToString(x));
+		hasher.appendFloat(sb, x);
 		sb.append(", ");
-		sb.append(hasher.floatToString(y));
+		hasher.appendFloat(sb, y);
 		sb.append(')');
 		
 		return sb.toString();
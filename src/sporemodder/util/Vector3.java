@@ -140,11 +140,11 @@ public class Vector3 {
 		StringBuilder sb = new StringBuilder();
 		
 		sb.append('(');
-		sb.append(hasher.floatToString(x));
+		hasher.appendFloat(sb, x);
 		sb.append(", ");
-		sb.append(hasher.floatToString(y));
+		hasher.appendFloat(sb, y);
 		sb.append(", ");
-		sb.append(hasher.floatToString(z));
+		hasher.appendFloat(sb, z);
 		sb.append(')');
 		
 		return sb.toString();
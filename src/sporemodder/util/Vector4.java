@@ -149,13 +149,13 @@ public class Vector4 {
 		StringBuilder sb = new StringBuilder();
 		
 		sb.append('(');
-		sb.append(hasher.floatToString(x));
+		hasher.appendFloat(sb, x);
 		sb.append(", ");
-		sb.append(hasher.floatToString(y));
+		hasher.appendFloat(sb, y);
 		sb.append(", ");
-		sb.append(hasher.floatToString(z));
+		hasher.appendFloat(sb, z);
 		sb.append(", ");
-		sb.append(hasher.floatToString(w));
+		hasher.appendFloat(sb, w);
 		sb.append(')');
 		
 		return sb.toString();
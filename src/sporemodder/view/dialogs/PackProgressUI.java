@@ -29,18 +29,30 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.DialogPane;
+import javafx.scene.control.ButtonBar.ButtonData;
 import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextArea;
+import javafx.stage.FileChooser;
+import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Modality;
 import sporemodder.EditorManager;
 import sporemodder.ProjectManager;
 import sporemodder.UIManager;
 import sporemodder.file.dbpf.DBPFPackingTask;
+import sporemodder.file.dbpf.DBPFProfiler;
 import sporemodder.util.Project;
 import sporemodder.util.ProjectItem;
 import sporemodder.view.Controller;
 
 public class PackProgressUI implements Controller {
 	
+	/** How many of the slowest files are shown in the pack report. */
+	private static final int REPORT_SLOWEST_COUNT = 30;
+	
+	/** The profile of the last successful pack, shown in the pack report. */
+	private static DBPFProfiler lastProfile;
+	private static String lastProfileName;
+	
 	@FXML
 	private DialogPane mainNode;
 	
@@ -167,27 +179,76 @@ public class PackProgressUI implements Controller {
 		UIManager.get().showDialog(alert, true);
 	}
 	
+	private static boolean finishPack(String projectName, DBPFPackingTask task) {
+		boolean isSuccessful = task.getFailException() == null && !task.isCancelled();
+		if (isSuccessful) {
+			lastProfile = task.getProfiler();
+			lastProfileName = projectName;
+		}
+		
+		// Update the UI
+		UIManager.get().notifyUIUpdate(false);
+		
+		return isSuccessful;
+	}
+	
 	public static boolean show(Project project, boolean storeDebugInformation) {
 		PackProgressUI controller = UIManager.get().loadUI("dialogs/PackProgressUI");
 		DBPFPackingTask task = new DBPFPackingTask(project, storeDebugInformation);
+		task.setProfiler(new DBPFProfiler("pack"));
 		
 		controller.showInternal(project.getFolder(), project.getName(), task);
 		
-		// Update the UI
-		UIManager.get().notifyUIUpdate(false);
-		
-		return task.getFailException() == null && !task.isCancelled();
+		return finishPack(project.getName(), task);
 	}
 	
 	public static boolean show(File folder, File outputFile, String projectName, boolean storeDebugInformation) {
 		PackProgressUI controller = UIManager.get().loadUI("dialogs/PackProgressUI");
 		DBPFPackingTask task = new DBPFPackingTask(folder, outputFile);
+		task.setProfiler(new DBPFProfiler("pack"));
 		
 		controller.showInternal(folder, projectName, task);
 		
-		// Update the UI
-		UIManager.get().notifyUIUpdate(false);
-		
-		return task.getFailException() == null && !task.isCancelled();
+		return finishPack(projectName, task);
+	}
+	
+	/**
+	 * Returns the profile of the last project that was packed successfully, or null if nothing has been packed yet.
+	 * @return
+	 */
+	public static DBPFProfiler getLastProfile() {
+		return lastProfile;
+	}
+	
+	/**
+	 * Shows a dialog with the time every converter took in the last pack and the slowest files, which can be exported as JSON or CSV.
+	 */
+	public static void showLastProfile() {
+		if (lastProfile == null) return;
+		DBPFProfiler profile = lastProfile;
+		
+		TextArea textArea = new TextArea(profile.getSummary(REPORT_SLOWEST_COUNT));
+		textArea.setEditable(false);
+		textArea.setStyle("-fx-font-family: monospace;");
+		textArea.setPrefColumnCount(100);
+		textArea.setPrefRowCount(30);
+		
+		ButtonType exportButton = new ButtonType("Export...", ButtonData.LEFT);
+		
+		Dialog<ButtonType> dialog = new Dialog<>();
+		dialog.setTitle("Pack report of '" + lastProfileName + "'");
+		dialog.setResizable(true);
+		dialog.getDialogPane().setContent(textArea);
+		dialog.getDialogPane().getButtonTypes().addAll(exportButton, ButtonType.CLOSE);
+		
+		if (UIManager.get().showDialog(dialog).orElse(ButtonType.CLOSE) == exportButton) {
+			FileChooser chooser = new FileChooser();
+			chooser.getExtensionFilters().addAll(new ExtensionFilter("JSON File", "*.json"), new ExtensionFilter("CSV File", "*.csv"));
+			chooser.setInitialFileName(lastProfileName + "-pack-report.json");
+			File output = chooser.showSaveDialog(UIManager.get().getScene().getWindow());
+			if (output != null) {
+				UIManager.get().tryAction(() -> profile.export(output, REPORT_SLOWEST_COUNT), "Cannot export the pack report.");
+			}
+		}
 	}
 }
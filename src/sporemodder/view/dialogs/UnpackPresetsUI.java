@@ -45,6 +45,7 @@ private Dialog<ButtonType> dialog;
 	@FXML private Pane presetsPane;
 	@FXML private Label label;
 	@FXML private VBox settingsPane;
+	@FXML private CheckBox decodeOnDemandBox;
 	
 	private final List<CheckBox> presetBoxes = new ArrayList<CheckBox>();
 	private boolean requiresPresets = true;
@@ -77,7 +78,11 @@ private Dialog<ButtonType> dialog;
 						}
 					}
 					
-					ProjectManager.get().unpackPresets(selectedPresets, selectedConverters);
+					if (decodeOnDemandBox.isSelected()) {
+						ProjectManager.get().linkPresets(selectedPresets, selectedConverters);
+					} else {
+						ProjectManager.get().unpackPresets(selectedPresets, selectedConverters);
+					}
 				}
 			}
 		});
@@ -19,6 +19,7 @@
 package sporemodder.view.editors;
 
 import sporemodder.file.anim.SPAnimation;
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.view.UserInterface;
 
 public class AnimTextEditor extends ArgScriptEditor<SPAnimation> {
@@ -26,8 +27,11 @@ public class AnimTextEditor extends ArgScriptEditor<SPAnimation> {
 	public AnimTextEditor() {
 		super();
 		
-		SPAnimation unit = new SPAnimation();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<SPAnimation> createStream() {
+		return new SPAnimation().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
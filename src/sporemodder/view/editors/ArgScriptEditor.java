@@ -20,14 +20,15 @@ package sporemodder.view.editors;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
 import javafx.scene.control.ContextMenu;
@@ -36,6 +37,7 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
+import javafx.util.Duration;
 import sporemodder.EditorManager;
 import sporemodder.HashManager;
 import sporemodder.ProjectManager;
@@ -46,10 +48,12 @@ import sporemodder.file.TextUtils;
 import sporemodder.file.argscript.ArgScriptLine;
 import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.argscript.ArgScriptStream.HyperlinkData;
+import sporemodder.file.argscript.ArgScriptStream.TokenizedText;
 import sporemodder.file.locale.LocaleUnit;
 import sporemodder.util.ColorRGB;
 import sporemodder.util.ColorRGBA;
 import sporemodder.util.ProjectItem;
+import sporemodder.util.ResourceCache;
 import sporemodder.view.colorpicker.ColorSwatchUI;
 import sporemodder.view.syntax.SyntaxHighlighter;
 
@@ -59,8 +63,19 @@ import sporemodder.view.syntax.SyntaxHighlighter;
  */
 public abstract class ArgScriptEditor<T> extends TextEditorWithErrors {
 	
-	private final Map<List<String>, LocaleUnit> localeCache = new HashMap<>();
-	private final Map<List<String>, Long> localeCacheTimes = new HashMap<>();
+	/** How much time must pass without the user editing the text before the stream is parsed again. */
+	private static final Duration PARSE_DELAY = Duration.millis(200);
+	
+	/** 
+	 * The thread where the text is parsed while the user edits it; it is shared by all ArgScript editors.
+	 * Only editors that can create a new stream (see {@link #createStream()}) are parsed here; for the rest, the text
+	 * is only split into lines, and the stream is processed in the JavaFX thread, as their parsers modify the editor.
+	 */
+	private static final ExecutorService PARSE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "ArgScript parser");
+		thread.setDaemon(true);
+		return thread;
+	});
 	
 	protected HyperlinkData currentHyperlink;
 	
@@ -73,12 +88,27 @@ public abstract class ArgScriptEditor<T> extends TextEditorWithErrors {
 	private ColorSwatchUI colorPicker;
 	private HyperlinkData colorHyperlink;
 	
+	/** Waits until the user stops typing to start parsing the stream. */
+	private final PauseTransition parseDelay = new PauseTransition(PARSE_DELAY);
+	/** The background tokenization that is being executed, if any. */
+	private Future<?> parseTask;
+	/** Increased every time a parse is started or cancelled, so the results of older parses are discarded. */
+	private int parseGeneration;
+	/** True if the text has been edited after the stream was parsed, so the stream positions, hyperlinks, etc are not valid. */
+	private boolean isStreamOutdated;
+	/** If not null, the syntax highlighting processes this text, tokenized in the background, instead of the current text. */
+	private TokenizedText parsedTokens;
+	/** If not null, the syntax highlighting uses this stream, parsed in the background, instead of parsing the current text. */
+	private ArgScriptStream<T> parsedStream;
+	
 	public ArgScriptEditor() {
 		super();
 		
+		parseDelay.setOnFinished(event -> startBackgroundParse());
+		
 		// Generate tooltips for colors
 		getTooltipFactories().add((text, event) -> {
-			if (stream == null) return null;
+			if (stream == null || isStreamOutdated) return null;
 			
 			int index = event.getCharacterIndex();
 			
@@ -109,11 +139,17 @@ public abstract class ArgScriptEditor<T> extends TextEditorWithErrors {
 		
 		setSyntaxHighlighting((text, syntax) -> {
 			if (stream != null) {
-				onStreamParse();
+				if (parsedStream != null) {
+					stream = parsedStream;
+				} else if (parsedTokens != null) {
+					parseStream(parsedTokens);
+				} else {
+					cancelBackgroundParse();
+					parseStream(ArgScriptStream.tokenize(text));
+				}
+				isStreamOutdated = false;
 				
-				stream.process(getText());
 				SyntaxHighlighter streamSyntax = stream.getSyntaxHighlighter();
-				stream.addErrorsSyntax();
 				syntax.addExtras(streamSyntax, false);
 				
 				setErrorInfo(streamSyntax);
@@ -149,6 +185,93 @@ public abstract class ArgScriptEditor<T> extends TextEditorWithErrors {
         UIManager.get().getScene().addEventFilter(MouseEvent.MOUSE_PRESSED, this::handleColorPickerClick);
 	}
 
+	private void parseStream(TokenizedText tokens) {
+		onStreamParse();
+		
+		stream.process(tokens);
+		stream.addErrorsSyntax();
+	}
+	
+	/**
+	 * Creates a new stream for this editor, with its own data. Editors whose parsers only modify the data of the stream
+	 * (and not the editor) override this, so that the text is parsed in a background thread while the user edits it:
+	 * the stream parsed there replaces the editor stream when it finishes. {@link #onStreamParse()} is not called for those streams,
+	 * as they are new. By default this returns null, which means the stream is always processed in the JavaFX thread.
+	 * @return
+	 */
+	protected ArgScriptStream<T> createStream() {
+		return null;
+	}
+	
+	/**
+	 * Parsing the whole stream on every keystroke makes typing slow on big files, so when the user edits the text
+	 * the stream is parsed once the user stops typing for a moment, in a background thread if the editor supports it.
+	 * The whole text is parsed every time, as parsers keep their state in the data and the variables of the stream,
+	 * so parsing cannot start at the line that changed. Explicit calls to {@link #updateSyntaxHighlighting()} still parse the stream immediately.
+	 */
+	@Override protected void scheduleSyntaxHighlighting() {
+		if (stream == null) {
+			super.scheduleSyntaxHighlighting();
+			return;
+		}
+		cancelBackgroundParse();
+		isStreamOutdated = true;
+		parseDelay.playFromStart();
+	}
+	
+	private void startBackgroundParse() {
+		if (stream == null) return;
+		
+		final String text = getText();
+		final int generation = ++parseGeneration;
+		final ArgScriptStream<T> newStream = createStream();
+		
+		parseTask = PARSE_EXECUTOR.submit(() -> {
+			TokenizedText tokens = ArgScriptStream.tokenize(text);
+			
+			ArgScriptStream<T> processedStream = null;
+			if (newStream != null) {
+				try {
+					newStream.process(tokens);
+					newStream.addErrorsSyntax();
+					processedStream = newStream;
+				} catch (Exception e) {
+					// It will be parsed again in the JavaFX thread
+					e.printStackTrace();
+				}
+			}
+			
+			final ArgScriptStream<T> result = processedStream;
+			Platform.runLater(() -> {
+				// Discard it if it was cancelled or the text changed in the meantime
+				if (generation != parseGeneration) return;
+				parseTask = null;
+				
+				parsedTokens = tokens;
+				parsedStream = result;
+				try {
+					updateSyntaxHighlighting();
+				} finally {
+					parsedTokens = null;
+					parsedStream = null;
+				}
+			});
+		});
+	}
+	
+	/**
+	 * Discards the pending or running background parse, if any; its results will not be applied.
+	 * Subclasses that process the stream on their own must call this method first.
+	 */
+	protected void cancelBackgroundParse() {
+		parseDelay.stop();
+		if (parseTask != null) {
+			++parseGeneration;
+			parseTask.cancel(false);
+			parseTask = null;
+		}
+	}
+	
 	@Override public void loadFile(ProjectItem item) throws IOException {
 		if (item == null) {
 			UIManager.get().getScene().removeEventFilter(MouseEvent.MOUSE_PRESSED, this::handleColorPickerClick);
@@ -167,22 +290,13 @@ public abstract class ArgScriptEditor<T> extends TextEditorWithErrors {
 			String extension = '.' + HashManager.get().getTypeName(0x02FAC0B6);
 			File file = ProjectManager.get().getFile(folderName + File.separatorChar + splits[0] + extension);
 			if (file != null) {
-				List<String> key = Arrays.asList(splits);
-				LocaleUnit locale = localeCache.get(key);
-				long time = 0;
-				if (locale != null) {
-					try {
-						time = Files.getLastModifiedTime(file.toPath()).toMillis();
-					} catch (IOException e) {
-						e.printStackTrace();
-						time = Long.MAX_VALUE;
-					}
-					if (time > localeCacheTimes.get(key)) locale = null;
-				}
-				if (locale == null) {
-					locale = LocaleUnit.fromFile(file);
-					localeCache.put(key, locale);
-					localeCacheTimes.put(key, time);
+				LocaleUnit locale;
+				try {
+					// Locale files are shared by all editors, and only read again when they are modified
+					locale = ResourceCache.get().get(file, "locale", LocaleUnit::fromFile, LocaleUnit::getEstimatedBytes);
+				} catch (IOException e) {
+					e.printStackTrace();
+					locale = null;
 				}
 				if (locale != null) {
 					return locale.getText(HashManager.get().getFileHash(splits[1]));
@@ -359,6 +473,9 @@ public abstract class ArgScriptEditor<T> extends TextEditorWithErrors {
 		HyperlinkData oldHyperlink = currentHyperlink;
 		currentHyperlink = null;
 		
+		// The positions are not valid until the stream is parsed again, which will restyle the text anyway
+		if (stream == null || isStreamOutdated) return;
+		
 		if (mustFindHyperlink) {
 			findHyperlink();
 		}
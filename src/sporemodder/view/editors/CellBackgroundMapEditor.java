@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellBackgroundMapFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellBackgroundMapEditor extends ArgScriptEditor<CellBackgroundMapFi
 	public CellBackgroundMapEditor() {
 		super();
 		
-		CellBackgroundMapFile unit = new CellBackgroundMapFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellBackgroundMapFile> createStream() {
+		return new CellBackgroundMapFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellEffectMapFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellEffectMapEditor extends ArgScriptEditor<CellEffectMapFile> {
 	public CellEffectMapEditor() {
 		super();
 		
-		CellEffectMapFile unit = new CellEffectMapFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellEffectMapFile> createStream() {
+		return new CellEffectMapFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellFileEditor extends ArgScriptEditor<CellFile> {
 	public CellFileEditor() {
 		super();
 		
-		CellFile unit = new CellFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellFile> createStream() {
+		return new CellFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellGlobalsFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellGlobalsEditor extends ArgScriptEditor<CellGlobalsFile> {
 	public CellGlobalsEditor() {
 		super();
 		
-		CellGlobalsFile unit = new CellGlobalsFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellGlobalsFile> createStream() {
+		return new CellGlobalsFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellLookAlgorithmFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellLookAlgorithmEditor extends ArgScriptEditor<CellLookAlgorithmFi
 	public CellLookAlgorithmEditor() {
 		super();
 		
-		CellLookAlgorithmFile unit = new CellLookAlgorithmFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellLookAlgorithmFile> createStream() {
+		return new CellLookAlgorithmFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellLookTableFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellLookTableEditor extends ArgScriptEditor<CellLookTableFile> {
 	public CellLookTableEditor() {
 		super();
 		
-		CellLookTableFile unit = new CellLookTableFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellLookTableFile> createStream() {
+		return new CellLookTableFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellLootTableFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellLootTableEditor extends ArgScriptEditor<CellLootTableFile> {
 	public CellLootTableEditor() {
 		super();
 		
-		CellLootTableFile unit = new CellLootTableFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellLootTableFile> createStream() {
+		return new CellLootTableFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
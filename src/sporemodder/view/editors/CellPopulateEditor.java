@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellPopulateFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellPopulateEditor extends ArgScriptEditor<CellPopulateFile> {
 	public CellPopulateEditor() {
 		super();
 		
-		CellPopulateFile unit = new CellPopulateFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellPopulateFile> createStream() {
+		return new CellPopulateFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
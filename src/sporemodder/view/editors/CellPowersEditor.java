@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellPowersFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellPowersEditor extends ArgScriptEditor<CellPowersFile> {
 	public CellPowersEditor() {
 		super();
 		
-		CellPowersFile unit = new CellPowersFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellPowersFile> createStream() {
+		return new CellPowersFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellRandomCreatureFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellRandomCreatureEditor extends ArgScriptEditor<CellRandomCreature
 	public CellRandomCreatureEditor() {
 		super();
 		
-		CellRandomCreatureFile unit = new CellRandomCreatureFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellRandomCreatureFile> createStream() {
+		return new CellRandomCreatureFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
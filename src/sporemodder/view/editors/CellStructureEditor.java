@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellStructureFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellStructureEditor extends ArgScriptEditor<CellStructureFile> {
 	public CellStructureEditor() {
 		super();
 		
-		CellStructureFile unit = new CellStructureFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellStructureFile> createStream() {
+		return new CellStructureFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
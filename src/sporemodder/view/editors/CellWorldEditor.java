@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cell.CellWorldFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CellWorldEditor extends ArgScriptEditor<CellWorldFile> {
 	public CellWorldEditor() {
 		super();
 		
-		CellWorldFile unit = new CellWorldFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CellWorldFile> createStream() {
+		return new CellWorldFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
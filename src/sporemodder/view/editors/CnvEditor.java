@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.cnv.CnvUnit;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class CnvEditor extends ArgScriptEditor<CnvUnit> {
 	public CnvEditor() {
 		super();
 		
-		CnvUnit unit = new CnvUnit();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<CnvUnit> createStream() {
+		return new CnvUnit().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
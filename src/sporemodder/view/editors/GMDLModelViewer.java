@@ -1121,6 +1121,7 @@ public class GMDLModelViewer extends AbstractEditableEditor implements ItemEdito
 		}
 		
 		public void processStream() {
+			cancelBackgroundParse();
 			parsedTextureID = false;
 			parsedSamplerIndex = false;
 			parsedExtraData = false;
@@ -1209,6 +1210,7 @@ public class GMDLModelViewer extends AbstractEditableEditor implements ItemEdito
 		}
 		
 		public void processStream() {
+			cancelBackgroundParse();
 			parsedMaterialID = false;
 			materialInfo.shaderData.clear();
 			stream.process(getText());
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.gait.GaitFile;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class GaitEditor extends ArgScriptEditor<GaitFile> {
 	public GaitEditor() {
 		super();
 		
-		GaitFile unit = new GaitFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<GaitFile> createStream() {
+		return new GaitFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
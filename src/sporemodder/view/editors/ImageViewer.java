@@ -70,6 +70,7 @@ import sporemodder.file.raster.RasterTexture;
 import sporemodder.file.rw4.RWHeader.RenderWareType;
 import sporemodder.file.rw4.RenderWare;
 import sporemodder.util.ProjectItem;
+import sporemodder.util.ResourceCache;
 import sporemodder.view.UserInterface;
 
 /**
@@ -335,37 +336,68 @@ public class ImageViewer implements ItemEditor {
 		
 	}
 	
-	private Image loadImage(ProjectItem item) throws IOException {
-		imageType = item.getSpecificExtension().toLowerCase();
-		file = item.getFile();
-		bufferedImage = null;
+	/** A decoded image, as it is stored in the {@link ResourceCache}. */
+	private static class DecodedImage {
+		final Image image;
+		final BufferedImage bufferedImage;
+		
+		DecodedImage(Image image, BufferedImage bufferedImage) {
+			this.image = image;
+			this.bufferedImage = bufferedImage;
+		}
 		
+		long getBytes() {
+			long bytes = (long) image.getWidth() * (long) image.getHeight() * 4;
+			if (bufferedImage != null) {
+				bytes += (long) bufferedImage.getWidth() * bufferedImage.getHeight() * 4;
+			}
+			return bytes;
+		}
+	}
+	
+	private static DecodedImage decodeImage(File file, String imageType) throws Exception {
+		BufferedImage bufferedImage;
 		switch (imageType) {
 		case "png":
 		case "jpg":
 		case "jpeg":
 			try (FileInputStream is = new FileInputStream(file)) {
-				return new Image(is);
+				return new DecodedImage(new Image(is), null);
 			}
 		case "dds":
 			bufferedImage = DDSTexture.toBufferedImage(file);
-			return SwingFXUtils.toFXImage(bufferedImage, null);
+			return new DecodedImage(SwingFXUtils.toFXImage(bufferedImage, null), bufferedImage);
 		case "rw4":
 			bufferedImage = RenderWare.fromFile(file).toTexture().toBufferedImage();
-			return SwingFXUtils.toFXImage(bufferedImage, null);
+			return new DecodedImage(SwingFXUtils.toFXImage(bufferedImage, null), bufferedImage);
 		case "rast":
 		case "raster":
 			bufferedImage = RasterTexture.textureFromFile(file).toBufferedImage();
-			return SwingFXUtils.toFXImage(bufferedImage, null);
+			return new DecodedImage(SwingFXUtils.toFXImage(bufferedImage, null), bufferedImage);
 		case "bitimage":
 		case "8bitimage":
 		case "32bitimage":
 		case "48bitimage":
-			return BitmapImage.readImage(file).getImage();
+			return new DecodedImage(BitmapImage.readImage(file).getImage(), null);
 		default:
 			return null;
 		}
 	}
+	
+	private Image loadImage(ProjectItem item) throws IOException {
+		String type = item.getSpecificExtension().toLowerCase();
+		imageType = type;
+		file = item.getFile();
+		
+		// Images are shared with other tabs that show the same file
+		DecodedImage decoded = ResourceCache.get().get(file, "image", imageFile -> decodeImage(imageFile, type), DecodedImage::getBytes);
+		if (decoded == null) {
+			bufferedImage = null;
+			return null;
+		}
+		bufferedImage = decoded.bufferedImage;
+		return decoded.image;
+	}
 
 	@Override
 	public void loadFile(ProjectItem item) throws IOException {
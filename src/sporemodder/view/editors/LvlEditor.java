@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.lvl.LevelDefinition;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class LvlEditor extends ArgScriptEditor<LevelDefinition> {
 	public LvlEditor() {
 		super();
 		
-		LevelDefinition unit = new LevelDefinition();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<LevelDefinition> createStream() {
+		return new LevelDefinition().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.pctp.PCTPUnit;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class PctpEditor extends ArgScriptEditor<PCTPUnit> {
 	public PctpEditor() {
 		super();
 		
-		PCTPUnit unit = new PCTPUnit();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<PCTPUnit> createStream() {
+		return new PCTPUnit().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
@@ -19,6 +19,7 @@
 package sporemodder.view.editors;
 
 import javafx.scene.Node;
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.otdb.PollenMetadata;
 import sporemodder.util.ProjectItem;
 import sporemodder.view.UserInterface;
@@ -28,8 +29,11 @@ public class PollenMetadataEditor extends ArgScriptEditor<PollenMetadata> {
 	public PollenMetadataEditor() {
 		super();
 		
-		PollenMetadata unit = new PollenMetadata();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<PollenMetadata> createStream() {
+		return new PollenMetadata().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
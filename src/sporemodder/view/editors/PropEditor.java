@@ -32,6 +32,7 @@ import org.fxmisc.richtext.NavigationActions;
 import sporemodder.DocumentationManager;
 import sporemodder.HashManager;
 import sporemodder.file.TextUtils;
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.argscript.ArgScriptStream.HyperlinkData;
 import sporemodder.file.prop.PropertyList;
 import sporemodder.view.UserInterface;
@@ -53,23 +54,7 @@ public class PropEditor extends ArgScriptEditor<PropertyList> {
 	public PropEditor() {
 		super();
 		
-		PropertyList list = new PropertyList();
-		stream = list.generateStream();
-		
-		stream.setLineHighlighter((syntax, line, lineNumber, isBlock) -> {
-			line.addSyntaxForKeyword(syntax, lineNumber, isBlock);
-			// Avoid doing it for the 'end' command
-			if (line.hasKeyword() && line.getArgumentCount() >= 1) {
-				line.addSyntaxForWord(syntax, lineNumber, 1, "propeditor-property");
-			}
-			line.addOptionsSyntax(syntax, lineNumber);
-		});
-		
-		stream.setStructureNameFactory((fragment, text, line) -> {
-			if (line == null || line.getSplits().size() < 2) return text;
-			
-			return line.getSplits().get(1);
-		});
+		stream = createStream();
 		
 		getTooltipFactories().add((text, event) -> {
 			int charIndex = event.getCharacterIndex();
@@ -201,6 +186,27 @@ public class PropEditor extends ArgScriptEditor<PropertyList> {
 		});
 	}
 	
+	@Override protected ArgScriptStream<PropertyList> createStream() {
+		ArgScriptStream<PropertyList> newStream = new PropertyList().generateStream();
+		
+		newStream.setLineHighlighter((syntax, line, lineNumber, isBlock) -> {
+			line.addSyntaxForKeyword(syntax, lineNumber, isBlock);
+			// Avoid doing it for the 'end' command
+			if (line.hasKeyword() && line.getArgumentCount() >= 1) {
+				line.addSyntaxForWord(syntax, lineNumber, 1, "propeditor-property");
+			}
+			line.addOptionsSyntax(syntax, lineNumber);
+		});
+		
+		newStream.setStructureNameFactory((fragment, text, line) -> {
+			if (line == null || line.getSplits().size() < 2) return text;
+			
+			return line.getSplits().get(1);
+		});
+		
+		return newStream;
+	}
+	
 	@Override protected void showInspector(boolean show) {
 		if (show) {
 			UserInterface.get().getInspectorPane().configureDefault("Property List (.prop)", "prop", null);
@@ -71,6 +71,7 @@ import sporemodder.file.rw4.Direct3DEnums.RWDECLUSAGE;
 import sporemodder.file.rw4.RWHeader.RenderWareType;
 import sporemodder.file.shaders.MaterialStateLink;
 import sporemodder.util.ProjectItem;
+import sporemodder.util.ResourceCache;
 import sporemodder.util.Vector3;
 import sporemodder.view.UserInterface;
 import sporemodder.view.inspector.InspectorFloatSpinner;
@@ -530,13 +531,47 @@ public class RWModelViewer extends AbstractEditableEditor implements ItemEditor,
 		return blendAlphaChannel(original, Color.rgb(206, 212, 175));
 	}
 	
+	/** The images decoded from a raster, as they are stored in the {@link ResourceCache}. */
+	private static class RasterImages {
+		final BufferedImage buffered;
+		final Image original;
+		final Image blended;
+		
+		RasterImages(BufferedImage buffered, Image original, Image blended) {
+			this.buffered = buffered;
+			this.original = original;
+			this.blended = blended;
+		}
+	}
+	
+	private static long weighRasterImages(List<RasterImages> list) {
+		long bytes = 0;
+		for (RasterImages images : list) {
+			// Three images of the same size, 4 bytes per pixel
+			bytes += (long) images.buffered.getWidth() * images.buffered.getHeight() * 4 * 3;
+		}
+		return bytes;
+	}
+	
 	private void loadImages() throws IOException {
 		List<RWRaster> rasters = renderWare.getObjects(RWRaster.class);
-		for (RWRaster raster : rasters) {
-			BufferedImage buffered = raster.toDDSTexture().toBufferedImage();
-			rasterOriginalImages.put(raster, removeAlphaChannel(buffered));
-			rasterImages.put(raster, blendAlphaChannel(buffered));
-			bufferedImages.put(raster, buffered);
+		
+		// Decoding the textures is slow, share them with other tabs that show the same model;
+		// they are not modified, importing a texture replaces them
+		List<RasterImages> images = ResourceCache.get().get(file, "rw4RasterImages", modelFile -> {
+			List<RasterImages> list = new ArrayList<>();
+			for (RWRaster raster : rasters) {
+				BufferedImage buffered = raster.toDDSTexture().toBufferedImage();
+				list.add(new RasterImages(buffered, removeAlphaChannel(buffered), blendAlphaChannel(buffered)));
+			}
+			return list;
+		}, RWModelViewer::weighRasterImages);
+		
+		for (int i = 0; i < rasters.size(); ++i) {
+			RWRaster raster = rasters.get(i);
+			rasterOriginalImages.put(raster, images.get(i).original);
+			rasterImages.put(raster, images.get(i).blended);
+			bufferedImages.put(raster, images.get(i).buffered);
 		}
 		
 		List<RWTextureOverride> overrides = renderWare.getObjects(RWTextureOverride.class);
@@ -1237,6 +1272,7 @@ public class RWModelViewer extends AbstractEditableEditor implements ItemEditor,
 		}
 		
 		public void processStream() {
+			cancelBackgroundParse();
 			stream.getData().reset();
 			stream.process(getText());
 		}
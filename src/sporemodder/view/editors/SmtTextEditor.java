@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.shaders.MaterialStateLink;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class SmtTextEditor extends ArgScriptEditor<MaterialStateLink> {
 	public SmtTextEditor() {
 		super();
 		
-		MaterialStateLink unit = new MaterialStateLink();
-		stream = unit.generateStream(false);
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<MaterialStateLink> createStream() {
+		return new MaterialStateLink().generateStream(false);
 	}
 	
 	@Override protected void onStreamParse() {
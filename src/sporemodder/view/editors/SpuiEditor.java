@@ -744,6 +744,8 @@ public class SpuiEditor extends AbstractEditableEditor implements EditHistoryEdi
 		rootImagesItem.getChildren().clear();
 		rootDrawablesItem.getChildren().clear();
 		spui = new SporeUserInterface();
+		// Images are loaded in the background
+		spui.setOnImageLoaded(this::repaint);
 
 		try (FileStream stream = new FileStream(file, "r")) {
 			if (stream.length() != 0) {
@@ -19,6 +19,7 @@
 package sporemodder.view.editors;
 
 import javafx.scene.Node;
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.otdb.SummaryFile;
 import sporemodder.util.ProjectItem;
 import sporemodder.view.UserInterface;
@@ -28,8 +29,11 @@ public class SummaryEditor extends ArgScriptEditor<SummaryFile> {
 	public SummaryEditor() {
 		super();
 		
-		SummaryFile unit = new SummaryFile();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<SummaryFile> createStream() {
+		return new SummaryFile().generateStream();
 	}
 	
 	@Override protected void onStreamParse() {
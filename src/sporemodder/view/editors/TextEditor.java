@@ -29,12 +29,18 @@ import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.TreeSet;
 
 import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.LineNumberFactory;
 import org.fxmisc.richtext.event.MouseOverTextEvent;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
 import org.fxmisc.wellbehaved.event.EventPattern;
 import org.fxmisc.wellbehaved.event.InputMap;
 import org.fxmisc.wellbehaved.event.Nodes;
@@ -59,6 +65,8 @@ import sporemodder.file.TextUtils;
 import sporemodder.util.ProjectItem;
 import sporemodder.view.UserInterface;
 import sporemodder.view.ribbons.EditRibbonTab;
+import sporemodder.view.syntax.IncrementalSyntaxHighlighter;
+import sporemodder.view.syntax.LineSyntaxFormat;
 import sporemodder.view.syntax.SyntaxFormat;
 import sporemodder.view.syntax.SyntaxHighlighter;
 
@@ -79,6 +87,8 @@ public class TextEditor extends AbstractEditableEditor implements ItemEditor, Se
 	
 	/** The current syntax highlighting format, or null if there is none. */
 	private SyntaxFormat syntaxHighlighting;
+	/** If the syntax highlighting format works line by line, this keeps the highlighting of every line so only edited lines are updated. */
+	private IncrementalSyntaxHighlighter incrementalSyntax;
 	
 	/** The structure of the document, optional. */
 	private DocumentStructure structure;
@@ -210,12 +220,24 @@ public class TextEditor extends AbstractEditableEditor implements ItemEditor, Se
 			if (!textEventsDisabled) {
 				doSearch();
 				
-				updateSyntaxHighlighting();
+				// Line formats are updated with the text change instead
+				if (incrementalSyntax == null) scheduleSyntaxHighlighting();
 			}
 			
 			UIManager.get().notifyUIUpdate(false);
 		});
 		
+		codeArea.plainTextChanges().subscribe(change -> {
+			if (incrementalSyntax != null) {
+				if (textEventsDisabled) {
+					// The highlighting will be generated again for the whole text
+					incrementalSyntax.invalidate();
+				} else {
+					updateSyntaxHighlighting(change);
+				}
+			}
+		});
+		
 		codeArea.caretPositionProperty().addListener((obs, oldText, newText) -> {
 			UIManager.get().notifyUIUpdate(false);
 		});
@@ -306,6 +328,7 @@ public class TextEditor extends AbstractEditableEditor implements ItemEditor, Se
 		if (syntaxHighlighting != null) {
 			// Only replace the existing one if there is a supported format
 			this.syntaxHighlighting = syntaxHighlighting;
+			updateIncrementalSyntax();
 		}
 		
 		try (InputStream input = new FileInputStream(file)) {
@@ -388,35 +411,114 @@ public class TextEditor extends AbstractEditableEditor implements ItemEditor, Se
 	 */
 	public void setSyntaxHighlighting(SyntaxFormat syntaxHighlighting) {
 		this.syntaxHighlighting = syntaxHighlighting;
+		updateIncrementalSyntax();
 		updateSyntaxHighlighting();
 	}
+	
+	private void updateIncrementalSyntax() {
+		if (syntaxHighlighting instanceof LineSyntaxFormat) {
+			incrementalSyntax = new IncrementalSyntaxHighlighter((LineSyntaxFormat) syntaxHighlighting);
+		} else {
+			incrementalSyntax = null;
+		}
+	}
 
 	/**
 	 * Updates the syntax highlighting applying it to the current text.
 	 */
 	public void updateSyntaxHighlighting() {
-		SyntaxHighlighter syntax = new SyntaxHighlighter();
-		syntax.setText(codeArea.getText(), null);
+		StyleSpans<Collection<String>> spans;
 		
-		if (syntaxHighlighting != null) {
-			syntaxHighlighting.generateStyle(codeArea.getText(), syntax);
+		if (incrementalSyntax != null) {
+			spans = incrementalSyntax.highlightAll(codeArea.getParagraphs().size(), index -> codeArea.getParagraphs().get(index).getText());
+			
+			if (!searchPositions.isEmpty()) {
+				spans = spans.overlay(generateSearchSpans(spans.length()), (styles, searchStyles) -> {
+					if (searchStyles.isEmpty()) return styles;
+					List<String> result = new ArrayList<>(styles);
+					result.addAll(searchStyles);
+					return result;
+				});
+			}
 		}
-		
-		if (!searchPositions.isEmpty()) {
-			int length = searchedText.length();
-			for (Integer start : searchPositions) {
-				syntax.addExtra(start, length, "text-searched-word", false);
+		else {
+			String text = codeArea.getText();
+			SyntaxHighlighter syntax = new SyntaxHighlighter();
+			syntax.setText(text, null);
+			
+			if (syntaxHighlighting != null) {
+				syntaxHighlighting.generateStyle(text, syntax);
+			}
+			
+			if (!searchPositions.isEmpty()) {
+				int length = searchedText.length();
+				for (Integer start : searchPositions) {
+					syntax.addExtra(start, length, "text-searched-word", false);
+				}
 			}
+			spans = syntax.generateStyleSpans();
 		}
 		
 		// Update always, cause the syntax might have been removed
 		try {
-			codeArea.setStyleSpans(0, syntax.generateStyleSpans());
+			codeArea.setStyleSpans(0, spans);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 	
+	private StyleSpans<Collection<String>> generateSearchSpans(int textLength) {
+		StyleSpansBuilder<Collection<String>> builder = new StyleSpansBuilder<>();
+		int length = searchedText.length();
+		int lastEnd = 0;
+		for (Integer start : searchPositions) {
+			// Search results might overlap
+			if (start < lastEnd) continue;
+			builder.add(Collections.emptyList(), start - lastEnd);
+			builder.add(Collections.singleton("text-searched-word"), length);
+			lastEnd = start + length;
+		}
+		builder.add(Collections.emptyList(), Math.max(0, textLength - lastEnd));
+		return builder.create();
+	}
+	
+	/**
+	 * Updates the syntax highlighting of the lines affected by a text change, when using a line syntax format.
+	 * Only the lines that have changed their highlighting are restyled.
+	 * @param change
+	 */
+	private void updateSyntaxHighlighting(PlainTextChange change) {
+		// Search results are spread through the whole text, they must be updated entirely
+		if (searchedText != null && !searchedText.isEmpty()) {
+			doSearch();
+			updateSyntaxHighlighting();
+			return;
+		}
+		
+		int firstLine = codeArea.offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+		int[] lines = incrementalSyntax.update(firstLine, change.getRemoved(), change.getInserted(), 
+				codeArea.getParagraphs().size(), index -> codeArea.getParagraphs().get(index).getText());
+		
+		if (lines == null) {
+			updateSyntaxHighlighting();
+		}
+		else {
+			try {
+				codeArea.setStyleSpans(codeArea.getAbsolutePosition(lines[0], 0), incrementalSyntax.getStyleSpans(lines[0], lines[1]));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Called when the user edits the text, to update the syntax highlighting. By default this calls {@link #updateSyntaxHighlighting()}
+	 * immediately, but subclasses whose highlighting is expensive to generate can delay it.
+	 */
+	protected void scheduleSyntaxHighlighting() {
+		updateSyntaxHighlighting();
+	}
+	
 	/**
 	 * Replaces the text of a document fragment with the new text. This will update all the document structure parameters 
 	 * and the positions of its fragments. This method can only be used if a DocumentStructure has been specified for this editor.
@@ -18,6 +18,7 @@
 ****************************************************************************/
 package sporemodder.view.editors;
 
+import sporemodder.file.argscript.ArgScriptStream;
 import sporemodder.file.tlsa.TLSAUnit;
 import sporemodder.view.UserInterface;
 
@@ -26,8 +27,11 @@ public class TlsaEditor extends ArgScriptEditor<TLSAUnit> {
 	public TlsaEditor() {
 		super();
 		
-		TLSAUnit unit = new TLSAUnit();
-		stream = unit.generateStream();
+		stream = createStream();
+	}
+	
+	@Override protected ArgScriptStream<TLSAUnit> createStream() {
+		return new TLSAUnit().generateStream();
 	}
 	
 	@Override protected void showInspector(boolean show) {
@@ -18,6 +18,8 @@
 ****************************************************************************/
 package sporemodder.view.editors.spui;
 
+import java.io.IOException;
+
 import javafx.collections.ObservableList;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Dialog;
@@ -29,6 +31,7 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
 import sporemodder.ProjectManager;
 import sporemodder.file.ResourceKey;
+import sporemodder.file.spui.SpuiImageCache;
 import sporemodder.util.ProjectItem;
 import sporemodder.view.ProjectTreeCell;
 
@@ -48,8 +51,7 @@ public class SpuiImageFileChooser extends Dialog<ButtonType> {
 			updateButtons();
 			if (isValidImage(newValue)) {
 				if (!newValue.getValue().getFile().isDirectory()) {
-					Image image = new Image(ProjectManager.get().getFile(newValue.getValue().getRelativePath()).toURI().toString());
-					imageView.setImage(image);
+					imageView.setImage(loadImage(newValue.getValue()));
 				}
 				else {
 					String newValName = newValue.getValue().getFile().getName();
@@ -59,8 +61,7 @@ public class SpuiImageFileChooser extends Dialog<ButtonType> {
 						String childName = child.getFile().getName();
 
 						if (newValName.equalsIgnoreCase(childName)) {
-							Image chImage = new Image(ProjectManager.get().getFile(child.getRelativePath()).toURI().toString());
-							imageView.setImage(chImage);
+							imageView.setImage(loadImage(child));
 							break;
 						}
 					}
@@ -84,6 +85,15 @@ public class SpuiImageFileChooser extends Dialog<ButtonType> {
 		updateButtons();
 	}
 	
+	private static Image loadImage(ProjectItem item) {
+		// Use the shared cache, as the image is likely used by the SPUI as well
+		try {
+			return SpuiImageCache.get().getImage(ProjectManager.get().getFile(item.getRelativePath()), null);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
 	public void setSelectedFile(ResourceKey key) {
 		ProjectManager p = ProjectManager.get();
 		p.selectItem(treeView, p.getLoadedItem(p.keyToRelativePath(key)));
@@ -33,6 +33,7 @@ import sporemodder.file.LocalizedText;
 import sporemodder.file.spui.InspectableObject;
 import sporemodder.file.spui.SPUIRectangle;
 import sporemodder.file.spui.SpuiViewer;
+import sporemodder.file.spui.SpuiViewer.PaintEvent;
 import sporemodder.file.spui.SpuiWriter;
 import sporemodder.file.spui.StyleSheetInstance;
 import sporemodder.file.spui.components.IDrawable;
@@ -69,7 +70,10 @@ public class SpuiLayoutWindow extends InspectableObject implements IWindow {
 		
 		// Paint events are propagated in reverse (so first node is painted last)
 		if (event.getEventType() == SpuiViewer.PAINT_EVENT) {
-			viewer.getGraphicsContext2D().clearRect(area.x1, area.y1, area.getWidth(), area.getHeight());
+			// The viewer already cleared the dirty area in partial repaints
+			if (((PaintEvent) event).getDirtyArea() == null) {
+				viewer.getGraphicsContext2D().clearRect(area.x1, area.y1, area.getWidth(), area.getHeight());
+			}
 			
 			ListIterator<IWindow> it = children.listIterator(children.size());
 			while (it.hasPrevious()) {
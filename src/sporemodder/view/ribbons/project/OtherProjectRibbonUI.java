@@ -26,6 +26,7 @@ import sporemodder.ProjectManager;
 import sporemodder.UIManager;
 import sporemodder.view.Controller;
 import sporemodder.view.UIUpdateListener;
+import sporemodder.view.dialogs.PackProgressUI;
 import sporemodder.view.dialogs.ProjectSettingsUI;
 
 public class OtherProjectRibbonUI implements Controller, UIUpdateListener {
@@ -35,6 +36,8 @@ public class OtherProjectRibbonUI implements Controller, UIUpdateListener {
 	
 	@FXML
 	private Button btnSettings;
+	@FXML
+	private Button btnPackReport;
 	
 	@Override
 	public Node getMainNode() {
@@ -48,11 +51,16 @@ public class OtherProjectRibbonUI implements Controller, UIUpdateListener {
 		
 		//btnSettings.setGraphic(ui.loadIcon("config.png", 0, 48, true));
 		btnSettings.setGraphic(ui.loadIcon("config.png", 0, 38, true));
+		btnPackReport.setGraphic(ui.loadIcon("dialog-information.png", 0, 38, true));
 		
 		btnSettings.setOnAction((event) -> {
 			ProjectSettingsUI.show(ProjectManager.get().getActive(), true);
 		});
 		
+		btnPackReport.setOnAction((event) -> {
+			PackProgressUI.showLastProfile();
+		});
+		
 		UIManager.get().addListener(this);
 	}
 
@@ -60,5 +68,6 @@ public class OtherProjectRibbonUI implements Controller, UIUpdateListener {
 	public void onUIUpdate(boolean isFirstUpdate) {
 		
 		btnSettings.setDisable(ProjectManager.get().getActive() == null);
+		btnPackReport.setDisable(PackProgressUI.getLastProfile() == null);
 	}
 }
@@ -30,7 +30,7 @@ import java.util.regex.Pattern;
 import sporemodder.file.TextUtils;
 import sporemodder.view.editors.TextEditor;
 
-public class HlslSyntax implements SyntaxFormatFactory {
+public class HlslSyntax implements SyntaxFormatFactory, LineSyntaxFormat {
 
 	private static final String[] TAGS_ENUMS = new String[] {
 			// Vertex Shader input semantics
@@ -115,6 +115,9 @@ public class HlslSyntax implements SyntaxFormatFactory {
 	
 	private static final String HLSL_COMMENTS = "hlsl-comments";
 	
+	/** The line state used when a line ends inside a block comment. */
+	private static final int STATE_BLOCK_COMMENT = 1;
+	
 	private static Map<Pattern, String> patterns = new LinkedHashMap<>();
 	
 	static {
@@ -138,54 +141,69 @@ public class HlslSyntax implements SyntaxFormatFactory {
 	    }
 	}
 
-	@Override public void generateStyle(String text, SyntaxHighlighter syntax) {
+	@Override public int generateLineStyle(String line, int state, SyntaxHighlighter syntax) {
 		
 		SyntaxHighlighter commentsSyntax = new SyntaxHighlighter();
 		
-		// Process block comments
-		int indexOf = text.indexOf("/*");
-		while (indexOf != -1) {
-			int endIndex = text.indexOf("*/", indexOf + 2);
-			
-			// It's an error, but we comment all the following text
-			if (endIndex == -1) {
-				commentsSyntax.add(indexOf, text.length() - indexOf, Collections.singleton(HLSL_COMMENTS));
-				break;
-			} else {
-				// + 2 because we also include the ending */
-				commentsSyntax.add(indexOf, endIndex - indexOf + 2, Collections.singleton(HLSL_COMMENTS));
+		// Process block and line comments, in the order they appear
+		int position = 0;
+		while (position < line.length()) {
+			if (state == STATE_BLOCK_COMMENT) {
+				int endIndex = line.indexOf("*/", position);
+				
+				if (endIndex == -1) {
+					// The comment continues in the next line
+					commentsSyntax.add(position, line.length() - position, Collections.singleton(HLSL_COMMENTS));
+					break;
+				} else {
+					// + 2 because we also include the ending */
+					commentsSyntax.add(position, endIndex + 2 - position, Collections.singleton(HLSL_COMMENTS));
+					position = endIndex + 2;
+					state = 0;
+				}
 			}
-			
-			indexOf = text.indexOf("/*", endIndex + 2);
-		}
-		
-		// Process line comments
-		indexOf = text.indexOf("//");
-		while (indexOf != -1) {
-			int endIndex = text.indexOf("\n", indexOf + 2);
-			// End of the file
-			if (endIndex == -1) {
-				commentsSyntax.add(indexOf, text.length() - indexOf, Collections.singleton(HLSL_COMMENTS));
-				break;
-			} else {
-				commentsSyntax.add(indexOf, endIndex - indexOf, Collections.singleton(HLSL_COMMENTS));
+			else {
+				int blockIndex = line.indexOf("/*", position);
+				int lineIndex = line.indexOf("//", position);
+				
+				if (lineIndex != -1 && (blockIndex == -1 || lineIndex < blockIndex)) {
+					commentsSyntax.add(lineIndex, line.length() - lineIndex, Collections.singleton(HLSL_COMMENTS));
+					break;
+				}
+				else if (blockIndex == -1) {
+					break;
+				}
+				else {
+					int endIndex = line.indexOf("*/", blockIndex + 2);
+					int end = endIndex == -1 ? line.length() : endIndex + 2;
+					commentsSyntax.add(blockIndex, end - blockIndex, Collections.singleton(HLSL_COMMENTS));
+					
+					if (endIndex == -1) {
+						state = STATE_BLOCK_COMMENT;
+						break;
+					}
+					position = end;
+				}
 			}
-			indexOf = text.indexOf("//", endIndex + 1);
 		}
 		
+		// The patterns expect a separator before and after the words, which are the new lines
+		String text = '\n' + line + '\n';
 		for (Map.Entry<Pattern, String> entry : patterns.entrySet()) {
 			Matcher matcher = entry.getKey().matcher(text);
 			
 			while (matcher.find()) {
-				int start = matcher.start(1);
-				int end = matcher.end(1);
+				int start = Math.max(0, matcher.start(1) - 1);
+				int end = Math.min(line.length(), matcher.end(1) - 1);
 				
-				if (start != end) syntax.add(start, end - start, Collections.singleton(entry.getValue()));
+				if (start < end) syntax.add(start, end - start, Collections.singleton(entry.getValue()));
 			}
 		}
 		
 		// We remove the existing syntax if it collides with comments
 		syntax.addExtras(commentsSyntax, true);
+		
+		return state;
 	}
 
 	@Override public boolean isSupportedFile(File file) {
@@ -0,0 +1,179 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.view.syntax;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import org.fxmisc.richtext.model.StyleSpan;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+/**
+ * Keeps the syntax highlighting of every line of a document generated with a {@link LineSyntaxFormat}, together with the
+ * state at the start and end of each line. When the text is edited, only the edited lines are highlighted again, followed
+ * by as many lines as necessary until the state at the end of a line is the same as before the edit.
+ * <p>
+ * Lines are separated by a single '\n' character, as in the RichTextFX code area.
+ */
+public class IncrementalSyntaxHighlighter {
+	
+	private static class Line {
+		int startState;
+		int endState;
+		StyleSpans<Collection<String>> spans;
+	}
+	
+	private final LineSyntaxFormat format;
+	private final List<Line> lines = new ArrayList<>();
+	/** False if the lines don't correspond to the current text, so everything must be highlighted again. */
+	private boolean isValid;
+	
+	public IncrementalSyntaxHighlighter(LineSyntaxFormat format) {
+		this.format = format;
+	}
+	
+	public LineSyntaxFormat getFormat() {
+		return format;
+	}
+	
+	/**
+	 * Returns true if the highlighter has the information of the current text, so it can be updated with {@link #update(int, String, String, int, IntFunction)}.
+	 * @return
+	 */
+	public boolean isValid() {
+		return isValid;
+	}
+	
+	/**
+	 * Discards the highlighting of all lines; this must be called if the text changes without updating the highlighter.
+	 */
+	public void invalidate() {
+		isValid = false;
+		lines.clear();
+	}
+	
+	public int getLineCount() {
+		return lines.size();
+	}
+	
+	private Line highlightLine(String text, int state) {
+		SyntaxHighlighter syntax = new SyntaxHighlighter();
+		syntax.setText(text, null);
+		
+		Line line = new Line();
+		line.startState = state;
+		line.endState = format.generateLineStyle(text, state, syntax);
+		line.spans = syntax.generateStyleSpans();
+		return line;
+	}
+	
+	/**
+	 * Highlights all the lines of the text, and returns the style spans for the whole text.
+	 * @param lineCount How many lines the text has.
+	 * @param lineText A function that returns the text of the line with the given index, without the new line character.
+	 * @return
+	 */
+	public StyleSpans<Collection<String>> highlightAll(int lineCount, IntFunction<String> lineText) {
+		lines.clear();
+		int state = format.getInitialState();
+		for (int i = 0; i < lineCount; ++i) {
+			Line line = highlightLine(lineText.apply(i), state);
+			lines.add(line);
+			state = line.endState;
+		}
+		isValid = true;
+		return getStyleSpans(0, lineCount);
+	}
+	
+	private static int countNewLines(String text) {
+		int count = 0;
+		for (int i = 0; i < text.length(); ++i) {
+			if (text.charAt(i) == '\n') ++count;
+		}
+		return count;
+	}
+	
+	/**
+	 * Updates the highlighting after an edit that replaced some text with a new one. The lines affected by the edit are
+	 * highlighted again, and so are the following lines until the state converges with the one they had before the edit.
+	 * Returns the range of lines that have been highlighted again (start inclusive, end exclusive), or null if the
+	 * highlighter is not valid or the edit does not match its lines; in that case, {@link #highlightAll(int, IntFunction)} must be used.
+	 * @param firstLine The index of the line where the edit starts.
+	 * @param removed The text that was removed.
+	 * @param inserted The text that was inserted.
+	 * @param lineCount How many lines the text has after the edit.
+	 * @param lineText A function that returns the text of the line with the given index (after the edit), without the new line character.
+	 * @return
+	 */
+	public int[] update(int firstLine, String removed, String inserted, int lineCount, IntFunction<String> lineText) {
+		if (!isValid) return null;
+		
+		int removedCount = countNewLines(removed) + 1;
+		int insertedCount = countNewLines(inserted) + 1;
+		if (firstLine + removedCount > lines.size() || lines.size() - removedCount + insertedCount != lineCount) {
+			invalidate();
+			return null;
+		}
+		
+		List<Line> editedLines = lines.subList(firstLine, firstLine + removedCount);
+		editedLines.clear();
+		editedLines.addAll(Collections.nCopies(insertedCount, null));
+		
+		int lastEdited = firstLine + insertedCount - 1;
+		int state = firstLine == 0 ? format.getInitialState() : lines.get(firstLine - 1).endState;
+		int index = firstLine;
+		while (index < lines.size()) {
+			// Once we are past the edit, stop if the line would start with the same state as before
+			if (index > lastEdited && lines.get(index).startState == state) break;
+			
+			Line line = highlightLine(lineText.apply(index), state);
+			lines.set(index, line);
+			state = line.endState;
+			++index;
+		}
+		
+		return new int[] {firstLine, index};
+	}
+	
+	/**
+	 * Returns the style spans of the given range of lines (start inclusive, end exclusive), including the new line characters between them.
+	 * @param startLine
+	 * @param endLine
+	 * @return
+	 */
+	public StyleSpans<Collection<String>> getStyleSpans(int startLine, int endLine) {
+		StyleSpansBuilder<Collection<String>> builder = new StyleSpansBuilder<>();
+		for (int i = startLine; i < endLine; ++i) {
+			if (i != startLine) {
+				builder.add(Collections.emptyList(), 1);
+			}
+			for (StyleSpan<Collection<String>> span : lines.get(i).spans) {
+				builder.add(span);
+			}
+		}
+		if (startLine == endLine) {
+			builder.add(Collections.emptyList(), 0);
+		}
+		return builder.create();
+	}
+}
@@ -0,0 +1,63 @@
+/****************************************************************************
+* Copyright (C) 2019 Eric Mor
+*
+* This file is part of SporeModder FX.
+*
+* SporeModder FX is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see <http://www.gnu.org/licenses/>.
+****************************************************************************/
+package sporemodder.view.syntax;
+
+/**
+ * A syntax format that highlights the text line by line. The only information carried from one line to the next
+ * is an integer state (for example, whether the line ends inside a block comment). This allows the text editor to only
+ * highlight again the lines affected by an edit, using {@link IncrementalSyntaxHighlighter}.
+ */
+public interface LineSyntaxFormat extends SyntaxFormat {
+	
+	/**
+	 * Returns the state at the beginning of the text.
+	 * @return
+	 */
+	default public int getInitialState() {
+		return 0;
+	}
+	
+	/**
+	 * Generates the syntax highlighting of a single line. The positions added to the syntax highlighter are relative
+	 * to the start of the line, and must not go beyond its end.
+	 * @param line The text of the line, without the new line character.
+	 * @param state The state at the end of the previous line, or {@link #getInitialState()} for the first line.
+	 * @param syntax The syntax highlighter where the styles are added.
+	 * @return The state at the end of this line.
+	 */
+	public int generateLineStyle(String line, int state, SyntaxHighlighter syntax);
+	
+	@Override default public void generateStyle(String text, SyntaxHighlighter syntax) {
+		int state = getInitialState();
+		int lineStart = 0;
+		while (true) {
+			int lineEnd = text.indexOf('\n', lineStart);
+			if (lineEnd == -1) lineEnd = text.length();
+			
+			String line = text.substring(lineStart, lineEnd);
+			SyntaxHighlighter lineSyntax = new SyntaxHighlighter();
+			lineSyntax.setText(line, null);
+			state = generateLineStyle(line, state, lineSyntax);
+			syntax.add(lineSyntax, lineStart);
+			
+			if (lineEnd == text.length()) break;
+			lineStart = lineEnd + 1;
+		}
+	}
+}
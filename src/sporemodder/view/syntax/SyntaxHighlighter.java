@@ -233,6 +233,18 @@ public class SyntaxHighlighter {
 		}
 	}
 	
+	/**
+	 * Adds all the style entries of another syntax highlighter, moving them by the given offset. The entries must not
+	 * collide with the existing ones.
+	 * @param other
+	 * @param offset
+	 */
+	public void add(SyntaxHighlighter other, int offset) {
+		for (StyleEntry entry : other.entries.values()) {
+			add(offset + entry.start, entry.size, entry.styles);
+		}
+	}
+	
 	public int getEntryCount() {
 		return entries.size();
 	}
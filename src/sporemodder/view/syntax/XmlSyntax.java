@@ -26,7 +26,10 @@ import java.util.Collections;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class XmlSyntax implements SyntaxFormatFactory {
+public class XmlSyntax implements SyntaxFormatFactory, LineSyntaxFormat {
+	
+	/** Files bigger than this (in bytes) are not highlighted. */
+	private static final long MAX_FILE_SIZE = 256 * 1024;
 	
 	/*
 	 * (?<Pattern>  - the capturing group Pattern
@@ -100,10 +103,11 @@ public class XmlSyntax implements SyntaxFormatFactory {
 	@Override
 	public boolean isSupportedFile(File file) {
 		try {
-			// Unfortunately, this syntax highlighter is too slow for "big" files
+			// Edits only highlight the affected lines, but the whole file must be highlighted when loaded,
+			// and this syntax highlighter is too slow for really big files
 			return (
 				(file.getName().endsWith(".xml") || file.getName().endsWith(".eapdPixie")) &&
-				Files.size(file.toPath()) < 10240
+				Files.size(file.toPath()) < MAX_FILE_SIZE
 			);
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -113,8 +117,9 @@ public class XmlSyntax implements SyntaxFormatFactory {
 
 
 	@Override
-	public void generateStyle(String text, SyntaxHighlighter syntax) {
-		Matcher matcher = PATTERN.matcher(text);
+	public int generateLineStyle(String line, int state, SyntaxHighlighter syntax) {
+		// Attributes must be preceded by a whitespace, which at the start of a line is the previous new line
+		Matcher matcher = PATTERN.matcher('\n' + line);
 		
 		while (matcher.find()) {
 			
@@ -136,8 +141,10 @@ public class XmlSyntax implements SyntaxFormatFactory {
 				styleClass = "xml-pattern";
 			}
 			
-			syntax.add(matcher.start(), matcher.end() - matcher.start(), Collections.singleton(styleClass));
+			int start = Math.max(0, matcher.start() - 1);
+			syntax.add(start, matcher.end() - 1 - start, Collections.singleton(styleClass));
 		}
+		return state;
 	}
 
 //	@Override